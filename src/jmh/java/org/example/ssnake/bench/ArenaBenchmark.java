@@ -0,0 +1,91 @@
+package org.example.ssnake.bench;
+
+import org.example.ssnake.Arena;
+import org.example.ssnake.Board;
+import org.example.ssnake.Direction;
+import org.example.ssnake.Wall;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк такта поля с множеством змеек в зависимости от количества змеек и потоков.
+ * <p>
+ * Змейки длиной {@link #LENGTH} ходят по квадрату со стороной {@link #LENGTH} клеток в своих
+ * непересекающихся областях поля, поэтому никогда не сталкиваются, и каждый такт обновляет одинаковое количество сегментов.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArenaBenchmark {
+
+    private static final int LENGTH = 16; // Длина змеек и сторона их квадрата
+    private static final int SIDE = 1024; // Сторона поля
+    private static final Direction[] TURNS = {Direction.RIGHT, Direction.DOWN, Direction.LEFT, Direction.UP};
+
+    @Param({"100", "1000"})
+    public int snakes; // Количество змеек
+
+    @Param({"1", "4"})
+    public int threads; // Количество потоков параллельных фаз
+
+    private Arena arena;
+    private ForkJoinPool pool;
+    private int turn = 1; // Номер текущего направления обхода квадрата (первым идёт шаг вниз)
+    private int moved = 0; // Количество тактов в текущем направлении
+
+    @Setup
+    public void setUp() {
+        Board board = new Board(SIDE, SIDE);
+        arena = new Arena(board, Wall.empty(SIDE, SIDE), snakes, LENGTH, 0, 1);
+        int perRow = SIDE / (LENGTH + 2);
+        for (int i = 0; i < snakes; i++) {
+            int x = (i % perRow) * (LENGTH + 2) + LENGTH;
+            int y = (i / perRow) * (LENGTH + 2) + 1;
+            arena.spawn(board.cell(x, y), Direction.RIGHT, LENGTH);
+            arena.setDirection(i, TURNS[turn]);
+        }
+        pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        arena.setPool(pool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Один такт всех змеек.
+     *
+     * @return Количество погибших змеек (всегда 0).
+     */
+    @Benchmark
+    public int step() {
+        if (++moved == LENGTH) {
+            moved = 0;
+            turn = (turn + 1) & 3;
+            for (int i = 0; i < snakes; i++) {
+                arena.setDirection(i, TURNS[turn]);
+            }
+        }
+        return arena.step();
+    }
+}
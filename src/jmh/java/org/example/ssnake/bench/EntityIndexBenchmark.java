@@ -0,0 +1,84 @@
+package org.example.ssnake.bench;
+
+import org.example.ssnake.Board;
+import org.example.ssnake.Direction;
+import org.example.ssnake.EntityIndex;
+import org.example.ssnake.EntityKind;
+import org.example.ssnake.Wall;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Бенчмарк индекса объектов поля: такт движущихся препятствий и запрос видимой области.
+ * Половина объектов — движущиеся препятствия, остальные — неподвижная еда.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityIndexBenchmark {
+
+    private static final int SIDE = 1000; // Сторона поля
+
+    @Param({"10000", "50000"})
+    public int entities; // Количество объектов
+
+    private EntityIndex index;
+    private IntConsumer sink; // Передаёт номера найденных объектов в Blackhole
+    private int origin = 0; // Левый верхний угол видимой области
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        sink = blackhole::consume;
+        Board board = new Board(SIDE, SIDE);
+        index = new EntityIndex(board, new Wall(SIDE, SIDE), entities);
+        SplittableRandom random = new SplittableRandom(1);
+        Direction[] directions = Direction.values();
+        while (index.size() < entities) {
+            int cell = random.nextInt(board.getCellCount());
+            if (index.isBlocked(cell)) continue;
+            if (index.size() % 2 == 0) {
+                index.add(EntityKind.OBSTACLE, cell, directions[random.nextInt(directions.length)]);
+            } else {
+                index.add(EntityKind.FOOD, cell);
+            }
+        }
+    }
+
+    /**
+     * Такт всех движущихся объектов.
+     *
+     * @return Количество сдвинувшихся объектов.
+     */
+    @Benchmark
+    public int step() {
+        return index.step();
+    }
+
+    /**
+     * Запрос видимой области 30x20 клеток, которая сдвигается на каждом вызове.
+     *
+     * @return Количество найденных объектов.
+     */
+    @Benchmark
+    public int query() {
+        origin = (origin + 7) % SIDE;
+        return index.query(origin, origin, 30, 20, sink);
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.ssnake.bench;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк пропускной способности журналирования игровых событий (событий в секунду).
+ * <p>
+ * {@code sync} — прежняя схема: синхронный файловый аппендер со сбросом на диск после каждого события
+ * и вычислением номера строки. {@code async} — текущая схема, как в {@code log4j2.xml}:
+ * асинхронный корневой логгер на кольцевом буфере и буферизованный файл.
+ * При переполнении буфера асинхронная схема отбрасывает события уровня INFO, а не ждёт,
+ * поэтому её результат показывает стоимость вызова логгера для игрового потока.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(1)
+@Fork(1)
+public class LoggingBenchmark {
+
+    @Param({"sync", "async"})
+    public String mode; // Схема журналирования
+
+    private LoggerContext context;
+    private Logger logger;
+
+    @Setup
+    public void setUp() {
+        String config = mode.equals("sync") ? "classpath:log4j2-bench-sync.xml" : "classpath:log4j2-bench-async.xml";
+        context = Configurator.initialize("bench-" + mode, config);
+        logger = LogManager.getLogger(LoggingBenchmark.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Configurator.shutdown(context);
+    }
+
+    /**
+     * Событие смены направления, как в обработчике клавиш игры.
+     */
+    @Benchmark
+    public void directionChanged() {
+        logger.info("Направление змейки изменено на ВВЕРХ");
+    }
+}
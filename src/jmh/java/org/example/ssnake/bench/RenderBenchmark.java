@@ -0,0 +1,140 @@
+package org.example.ssnake.bench;
+
+import javafx.scene.canvas.Canvas;
+import org.example.ssnake.Board;
+import org.example.ssnake.Direction;
+import org.example.ssnake.GameEngine;
+import org.example.ssnake.GameRenderer;
+import org.example.ssnake.GameSnapshot;
+import org.example.ssnake.PixelRenderer;
+import org.example.ssnake.Snake;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк отрисовки кадра холстом ({@link GameRenderer}) и буфером пикселей ({@link PixelRenderer}).
+ * <p>
+ * Холсты не показываются на экране, поэтому {@link Canvas} лишь записывает команды рисования
+ * в свой буфер. Так измеряется стоимость формирования команд без участия GPU.
+ * Буфер сбрасывается сам, когда команда закрашивает холст целиком (полная перерисовка),
+ * а это происходит при каждом повторе последовательности снимков.
+ * </p>
+ * <p>
+ * Для буфера пикселей измеряется запись кадра методом {@link PixelRenderer#draw(GameSnapshot)}:
+ * передача изображения на GPU возможна только в потоке JavaFX и, как и у холста, в замер не входит.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dprism.order=sw")
+public class RenderBenchmark {
+
+    private static final int FRAMES = 1024; // Количество заранее подготовленных снимков
+
+    @Param({"3", "30", "300"})
+    public int length; // Начальная длина змейки
+
+    @Param({"canvas", "pixel"})
+    public String backend; // Способ отрисовки
+
+    private GameRenderer renderer;
+    private PixelRenderer pixelRenderer;
+    private GameSnapshot[] snapshots;
+    private int frame;
+
+    @Setup
+    public void setUp() {
+        GameEngine engine = new GameEngine(length);
+        Canvas background = new Canvas(GameEngine.BOARD_WIDTH * GameRenderer.CELL_SIZE,
+                GameEngine.BOARD_HEIGHT * GameRenderer.CELL_SIZE);
+        Canvas snakeLayer = new Canvas(background.getWidth(), background.getHeight());
+        renderer = new GameRenderer(background, snakeLayer, engine.getBoard(), engine.getWall());
+        pixelRenderer = new PixelRenderer(engine.getBoard(), engine.getWall());
+
+        // Последовательность снимков подряд идущих тактов живой змейки
+        snapshots = new GameSnapshot[FRAMES];
+        for (int i = 0; i < FRAMES; i++) {
+            steer(engine.getBoard(), engine.getSnake());
+            engine.step();
+            snapshots[i] = GameSnapshot.full(engine);
+            if (snapshots[i].isGameOver() || snapshots[i].getTick() != i + 1) {
+                throw new IllegalStateException("Змейка длины " + length + " погибла на такте " + snapshots[i].getTick());
+            }
+        }
+        render(snapshots[0]);
+    }
+
+    /**
+     * Ведёт змейку по замкнутому обходу всех клеток внутри стен по периметру: змейкой по строкам
+     * в столбцах от 1 до ширины - 3 и обратно вверх по столбцу ширины - 2. Змейка появляется
+     * в чётной строке и движется вправо, то есть уже стоит на этом обходе.
+     *
+     * @param board Игровое поле.
+     * @param snake Змейка.
+     */
+    private static void steer(Board board, Snake snake) {
+        int head = snake.getHeadCell();
+        int x = board.x(head);
+        int y = board.y(head);
+        int lane = board.getWidth() - 2; // Столбец возврата к первой строке
+        Direction direction;
+        if (x == lane) {
+            direction = y == 1 ? Direction.LEFT : Direction.UP;
+        } else if (y % 2 == 1) {
+            direction = x > 1 ? Direction.LEFT : Direction.DOWN;
+        } else {
+            direction = y == board.getHeight() - 2 || x < lane - 1 ? Direction.RIGHT : Direction.DOWN;
+        }
+        snake.setDirection(direction);
+    }
+
+    /**
+     * Кадр, в котором изменились только голова и хвост.
+     */
+    @Benchmark
+    public void deltaFrame() {
+        frame = (frame + 1) & (FRAMES - 1);
+        render(snapshots[frame]);
+    }
+
+    /**
+     * Полная перерисовка кадра, включая фон и стены.
+     */
+    @Benchmark
+    public void fullFrame() {
+        frame = (frame + 1) & (FRAMES - 1);
+        if ("pixel".equals(backend)) {
+            pixelRenderer.invalidate();
+        } else {
+            renderer.invalidate();
+        }
+        render(snapshots[frame]);
+    }
+
+    /**
+     * Отрисовка снимка выбранным способом.
+     *
+     * @param snapshot Снимок состояния игры.
+     */
+    private void render(GameSnapshot snapshot) {
+        if ("pixel".equals(backend)) {
+            pixelRenderer.draw(snapshot);
+        } else {
+            renderer.render(snapshot);
+        }
+    }
+}
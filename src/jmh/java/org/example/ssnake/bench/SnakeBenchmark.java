@@ -0,0 +1,90 @@
+package org.example.ssnake.bench;
+
+import org.example.ssnake.Board;
+import org.example.ssnake.Direction;
+import org.example.ssnake.Snake;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк такта змейки в зависимости от длины змейки и размера поля.
+ * <p>
+ * Змейка ведётся "змейкой" по строкам: чётные строки проходятся вправо, нечётные влево,
+ * переход между строками — шаг вниз. На поле чётной высоты это замкнутый обход всех клеток,
+ * поэтому змейка любой длины меньше площади поля живёт бесконечно.
+ * Расход памяти на такт смотрите в метрике {@code gc.alloc.rate.norm} профилировщика {@code -prof gc}.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnakeBenchmark {
+
+    @Param({"64", "1024"})
+    public int boardSize; // Сторона квадратного поля в клетках
+
+    @Param({"4", "64", "4000"})
+    public int length; // Начальная длина змейки
+
+    private Board board;
+    private Snake snake;
+
+    @Setup
+    public void setUp() {
+        board = new Board(boardSize, boardSize);
+        snake = new Snake(board, length);
+    }
+
+    /**
+     * Один такт: выбор направления обхода и перемещение змейки.
+     *
+     * @return Клетка головы после такта.
+     */
+    @Benchmark
+    public int tick() {
+        steer(board, snake);
+        snake.move();
+        return snake.getHeadCell();
+    }
+
+    /**
+     * Смена направления без перемещения.
+     *
+     * @return Признак изменения направления.
+     */
+    @Benchmark
+    public boolean setDirection() {
+        return snake.setDirection(snake.getDirection() == Direction.UP ? Direction.LEFT : Direction.UP);
+    }
+
+    /**
+     * Выбирает направление обхода поля по строкам.
+     *
+     * @param board Игровое поле.
+     * @param snake Змейка.
+     */
+    static void steer(Board board, Snake snake) {
+        int head = snake.getHeadCell();
+        int x = board.x(head);
+        Direction direction = snake.getDirection();
+        if ((direction == Direction.RIGHT && x == board.getWidth() - 1) || (direction == Direction.LEFT && x == 0)) {
+            snake.setDirection(Direction.DOWN);
+        } else if (direction == Direction.DOWN) {
+            snake.setDirection(board.y(head) % 2 == 0 ? Direction.RIGHT : Direction.LEFT);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.ssnake.bench;
+
+import org.example.ssnake.LevelPack;
+import org.example.ssnake.Wall;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк стен игрового поля: построение, проверка клетки и получение уровня из пакета.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WallBenchmark {
+
+    private static final int LEVELS = 300; // Количество уровней в пакете
+
+    private Wall wall; // Стены по периметру
+    private Path packPath; // Временный файл пакета уровней
+    private LevelPack pack; // Пакет уровней, открытый один раз на прогон
+    private int cell = 0; // Проверяемая клетка
+    private int level = 0; // Загружаемый уровень
+
+    /**
+     * Создание стен, временного пакета уровней и его открытие.
+     *
+     * @throws IOException Если пакет не удалось записать или открыть.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        wall = new Wall();
+        packPath = Files.createTempFile("levels", ".snkl");
+        packPath.toFile().deleteOnExit();
+        LevelPack.main(new String[]{packPath.toString(), String.valueOf(LEVELS)});
+        pack = new LevelPack(packPath);
+    }
+
+    /**
+     * Закрытие пакета: канал закрывается уже в конструкторе {@link LevelPack}, остаётся отпустить
+     * отображение и удалить временный файл.
+     *
+     * @throws IOException Если файл не удалось удалить.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        pack = null;
+        Files.deleteIfExists(packPath);
+    }
+
+    /**
+     * Построение стен по периметру поля.
+     *
+     * @return Построенные стены.
+     */
+    @Benchmark
+    public Wall construct() {
+        return new Wall();
+    }
+
+    /**
+     * Проверка столкновения со стеной в одной клетке, как на каждом такте.
+     *
+     * @return Результат проверки.
+     */
+    @Benchmark
+    public boolean isWall() {
+        cell = cell == 599 ? 0 : cell + 1;
+        return wall.isWall(cell);
+    }
+
+    /**
+     * Получение уровня из открытого пакета, как при переключении уровня в игре. Открытие файла
+     * в замер не входит; после первого прохода по уровням они берутся из кэша пакета.
+     *
+     * @return Стены уровня.
+     * @throws IOException Если запись уровня повреждена.
+     */
+    @Benchmark
+    public Wall getLevel() throws IOException {
+        level = level == LEVELS - 1 ? 0 : level + 1;
+        return pack.getLevel(level);
+    }
+}
@@ -3,6 +3,10 @@ module org.example.ssnake {
     requires javafx.fxml;
     requires org.apache.logging.log4j;
     requires org.apache.logging.log4j.core;
+    requires com.lmax.disruptor;
+    requires java.management;
+    requires jdk.management;
+    requires java.desktop;
 
     opens org.example.ssnake to javafx.fxml;
     exports org.example.ssnake;
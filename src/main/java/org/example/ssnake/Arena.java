@@ -0,0 +1,493 @@
+package org.example.ssnake;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Поле для множества змеек (ботов и игроков) с хранением в виде структуры массивов.
+ * <p>
+ * Вместо объекта на каждую змейку состояние хранится в параллельных массивах примитивов, проиндексированных
+ * номером змейки: длина, индекс головы, направление, признак жизни. Тела всех змеек лежат в одном массиве
+ * {@code int}: змейке с номером {@code i} отведён кольцевой буфер из {@code maxLength} клеток, начинающийся
+ * с {@code i * maxLength}. Занятые клетки всех змеек отмечены в общей битовой карте.
+ * </p>
+ * <p>
+ * Такт состоит из трёх фаз. Сначала для каждой змейки вычисляется клетка новой головы, и в счётчике заявок
+ * этой клетки атомарно прибавляется единица. Затем каждая змейка по неизменному состоянию поля решает
+ * свою судьбу: гибель при столкновении голова в голову (у клетки больше одной заявки), со стеной или
+ * с телом любой змейки (хвосты, как и у {@link Snake}, считаются занятыми), рост при поедании еды или
+ * обычный шаг. Обе фазы выполняются параллельно: прибавление единицы коммутативно, а решения читают только
+ * неизменное состояние, поэтому результат не зависит ни от числа потоков, ни от порядка их работы.
+ * Последняя фаза последовательно применяет решения в порядке номеров змеек и раскладывает новую еду.
+ * </p>
+ */
+public class Arena {
+
+    private static final Logger logger = LogManager.getLogger(Arena.class);
+
+    /** Номер змейки, означающий отсутствие свободного места для новой змейки. */
+    public static final int NO_SNAKE = -1;
+
+    /** Количество змеек в одной задаче параллельной фазы. */
+    public static final int CHUNK = 64;
+
+    private static final Direction[] DIRECTIONS = Direction.values(); // Направления по номеру
+    private static final VarHandle CLAIMS = MethodHandles.arrayElementVarHandle(int[].class); // Атомарный доступ к заявкам
+
+    private static final byte MOVE = 0; // Обычный шаг
+    private static final byte GROW = 1; // Шаг с ростом (хвост остаётся на месте)
+    private static final byte DIE = 2; // Гибель
+
+    private final Board board; // Игровое поле
+    private final Wall wall; // Стены
+    private final int capacity; // Наибольшее количество змеек
+    private final int maxLength; // Наибольшая длина змейки
+    private final int[] segments; // Кольцевые буферы тел всех змеек подряд
+    private final int[] headIndex; // Индекс головы в кольцевом буфере змейки
+    private final int[] length; // Длина змейки
+    private final byte[] direction; // Номер текущего направления
+    private final byte[] requested; // Номер направления, запрошенного до следующего такта
+    private final boolean[] alive; // Признак жизни
+    private final int[] nextHead; // Клетка новой головы на текущем такте
+    private final byte[] fate; // Решение змейки на текущем такте
+    private final int[] claims; // Количество заявок на клетку поля на текущем такте
+    private final long[] occupied; // Битовая карта клеток, занятых змейками
+    private final long[] food; // Битовая карта клеток с едой
+    private final FreeCellIndex freeCells; // Клетки без стен, змеек и еды
+    private final int foodTarget; // Количество еды, поддерживаемое на поле
+    private final IntConsumer planTask = this::plan; // Задача фазы заявок (создаётся один раз)
+    private final IntConsumer resolveTask = this::resolve; // Задача фазы решений
+    private ForkJoinPool pool; // Пул для параллельных фаз или null для последовательного выполнения
+    private int snakeCount = 0; // Количество занятых номеров змеек
+    private int aliveCount = 0; // Количество живых змеек
+    private int foodCount = 0; // Количество еды на поле
+    private long random; // Состояние генератора SplitMix64
+    private long tick = 0; // Количество выполненных тактов
+
+    /**
+     * Конструктор поля для множества змеек.
+     *
+     * @param board      Игровое поле, не больше {@link GameEngine#FREE_INDEX_LIMIT} клеток.
+     * @param wall       Стены того же размера, что и поле.
+     * @param capacity   Наибольшее количество змеек.
+     * @param maxLength  Наибольшая длина змейки; съевшая еду змейка такой длины больше не растёт.
+     * @param foodTarget Количество еды, поддерживаемое на поле.
+     * @param seed       Зерно генератора случайных чисел для размещения еды.
+     */
+    public Arena(Board board, Wall wall, int capacity, int maxLength, int foodTarget, long seed) {
+        if (wall.getWidth() != board.getWidth() || wall.getHeight() != board.getHeight()) {
+            throw new IllegalArgumentException("Размер стен " + wall.getWidth() + "x" + wall.getHeight()
+                    + " не совпадает с полем " + board.getWidth() + "x" + board.getHeight());
+        }
+        if (board.getCellCount() > GameEngine.FREE_INDEX_LIMIT) {
+            throw new IllegalArgumentException("Поле для множества змеек должно быть не больше "
+                    + GameEngine.FREE_INDEX_LIMIT + " клеток");
+        }
+        if (capacity <= 0 || maxLength <= 0 || (long) capacity * maxLength > Integer.MAX_VALUE || foodTarget < 0) {
+            throw new IllegalArgumentException("Неверные параметры поля: змеек " + capacity
+                    + ", длина " + maxLength + ", еды " + foodTarget);
+        }
+        this.board = board;
+        this.wall = wall;
+        this.capacity = capacity;
+        this.maxLength = maxLength;
+        this.segments = new int[capacity * maxLength];
+        this.headIndex = new int[capacity];
+        this.length = new int[capacity];
+        this.direction = new byte[capacity];
+        this.requested = new byte[capacity];
+        this.alive = new boolean[capacity];
+        this.nextHead = new int[capacity];
+        this.fate = new byte[capacity];
+        this.claims = new int[board.getCellCount()];
+        this.occupied = new long[(board.getCellCount() + 63) >>> 6];
+        this.food = new long[occupied.length];
+        long[] free = new long[occupied.length];
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            if (!wall.isWall(cell)) {
+                free[cell >>> 6] |= 1L << cell;
+            }
+        }
+        this.freeCells = new FreeCellIndex(board.getCellCount(), free);
+        this.foodTarget = foodTarget;
+        this.random = seed;
+        spawnFood();
+    }
+
+    /**
+     * Задаёт пул потоков для параллельных фаз такта. Результат такта от пула не зависит.
+     *
+     * @param pool Пул или null для выполнения в вызывающем потоке.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Добавляет змейку, вытянутую прямой линией от головы против направления движения.
+     * Змейка занимает наименьший свободный номер. Все клетки тела должны быть свободны (без стен, змеек и еды).
+     *
+     * @param headCell         Клетка головы.
+     * @param initialDirection Направление движения.
+     * @param initialLength    Длина змейки от 1 до наибольшей длины.
+     * @return Номер змейки или {@link #NO_SNAKE}, если места для змейки нет.
+     */
+    public int spawn(int headCell, Direction initialDirection, int initialLength) {
+        int axis = initialDirection == Direction.LEFT || initialDirection == Direction.RIGHT
+                ? board.getWidth() : board.getHeight();
+        if (initialLength <= 0 || initialLength > maxLength || initialLength > axis) {
+            throw new IllegalArgumentException("Неверная длина змейки: " + initialLength);
+        }
+        Direction back = DIRECTIONS[initialDirection.ordinal() ^ 1]; // Номера противоположных направлений отличаются младшим битом
+        int cell = headCell;
+        for (int i = 0; i < initialLength; i++) {
+            if (!freeCells.contains(cell)) return NO_SNAKE;
+            cell = board.neighbor(cell, back);
+        }
+        int id = 0;
+        while (id < snakeCount && alive[id]) {
+            id++;
+        }
+        if (id == capacity) return NO_SNAKE;
+        snakeCount = Math.max(snakeCount, id + 1);
+
+        int base = id * maxLength;
+        cell = headCell;
+        for (int i = 0; i < initialLength; i++) {
+            segments[base + i] = cell;
+            occupy(cell);
+            cell = board.neighbor(cell, back);
+        }
+        headIndex[id] = 0;
+        length[id] = initialLength;
+        direction[id] = (byte) initialDirection.ordinal();
+        requested[id] = direction[id];
+        alive[id] = true;
+        aliveCount++;
+        return id;
+    }
+
+    /**
+     * Запрашивает смену направления змейки на следующем такте.
+     * Разворот на 180 градусов змейки длиннее одного сегмента при такте игнорируется.
+     *
+     * @param snake        Номер змейки.
+     * @param newDirection Новое направление.
+     */
+    public void setDirection(int snake, Direction newDirection) {
+        requested[snake] = (byte) newDirection.ordinal();
+    }
+
+    /**
+     * Выполняет один такт для всех живых змеек.
+     *
+     * @return Количество змеек, погибших на этом такте.
+     */
+    public int step() {
+        int chunks = (snakeCount + CHUNK - 1) / CHUNK;
+        runPhase(planTask, chunks);
+        runPhase(resolveTask, chunks);
+
+        // Применение решений в порядке номеров змеек
+        int died = 0;
+        for (int i = 0; i < snakeCount; i++) {
+            if (!alive[i]) continue;
+            claims[nextHead[i]] = 0;
+            if (fate[i] == DIE) {
+                kill(i);
+                died++;
+                continue;
+            }
+            int head = nextHead[i];
+            if (isFood(head)) {
+                food[head >>> 6] &= ~(1L << head);
+                foodCount--;
+            }
+            int base = i * maxLength;
+            int index = headIndex[i] == 0 ? maxLength - 1 : headIndex[i] - 1;
+            if (fate[i] == GROW) {
+                // Хвост остаётся на месте; голова пишется в освободившуюся ячейку буфера
+                length[i]++;
+            } else {
+                int tail = (headIndex[i] + length[i] - 1) % maxLength;
+                release(segments[base + tail]);
+            }
+            segments[base + index] = head;
+            headIndex[i] = index;
+            occupy(head);
+        }
+        aliveCount -= died;
+        spawnFood();
+        tick++;
+        return died;
+    }
+
+    /**
+     * Фаза заявок для группы змеек: применяет запрошенное направление, вычисляет клетку новой головы
+     * и атомарно увеличивает счётчик заявок этой клетки.
+     *
+     * @param chunk Номер группы змеек.
+     */
+    private void plan(int chunk) {
+        int end = Math.min(snakeCount, (chunk + 1) * CHUNK);
+        for (int i = chunk * CHUNK; i < end; i++) {
+            if (!alive[i]) continue;
+            if (length[i] == 1 || requested[i] != (direction[i] ^ 1)) {
+                direction[i] = requested[i];
+            }
+            int head = board.neighbor(segments[i * maxLength + headIndex[i]], DIRECTIONS[direction[i]]);
+            nextHead[i] = head;
+            CLAIMS.getAndAdd(claims, head, 1);
+        }
+    }
+
+    /**
+     * Фаза решений для группы змеек. Читает только состояние, не изменяемое в этой фазе.
+     *
+     * @param chunk Номер группы змеек.
+     */
+    private void resolve(int chunk) {
+        int end = Math.min(snakeCount, (chunk + 1) * CHUNK);
+        for (int i = chunk * CHUNK; i < end; i++) {
+            if (!alive[i]) continue;
+            int head = nextHead[i];
+            if (claims[head] > 1 || wall.isWall(head) || isOccupied(head)) {
+                fate[i] = DIE;
+            } else {
+                fate[i] = isFood(head) && length[i] < maxLength ? GROW : MOVE;
+            }
+        }
+    }
+
+    /**
+     * Выполняет фазу такта по группам змеек: параллельно в пуле или последовательно.
+     * Фаза завершается до возврата из метода, поэтому её результаты видны следующей фазе.
+     *
+     * @param task   Задача для одной группы.
+     * @param chunks Количество групп.
+     */
+    private void runPhase(IntConsumer task, int chunks) {
+        if (pool == null || chunks <= 1) {
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                task.accept(chunk);
+            }
+            return;
+        }
+        pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(task)).join();
+    }
+
+    /**
+     * Гибель змейки: её клетки освобождаются, а номер может занять новая змейка.
+     *
+     * @param snake Номер змейки.
+     */
+    private void kill(int snake) {
+        int base = snake * maxLength;
+        for (int i = 0; i < length[snake]; i++) {
+            release(segments[base + (headIndex[snake] + i) % maxLength]);
+        }
+        alive[snake] = false;
+    }
+
+    /**
+     * Дополняет еду до заданного количества в случайных свободных клетках.
+     */
+    private void spawnFood() {
+        while (foodCount < foodTarget && freeCells.size() > 0) {
+            int cell = freeCells.get(nextInt(freeCells.size()));
+            freeCells.remove(cell);
+            food[cell >>> 6] |= 1L << cell;
+            foodCount++;
+        }
+    }
+
+    /**
+     * Следующее случайное число от 0 до bound - 1 (генератор {@link SplitMix64}).
+     *
+     * @param bound Верхняя граница (не включается).
+     * @return Случайное число.
+     */
+    private int nextInt(int bound) {
+        random = SplitMix64.next(random);
+        return SplitMix64.nextInt(random, bound);
+    }
+
+    /**
+     * Отмечает клетку занятой змейкой.
+     *
+     * @param cell Номер клетки.
+     */
+    private void occupy(int cell) {
+        occupied[cell >>> 6] |= 1L << cell;
+        freeCells.remove(cell);
+    }
+
+    /**
+     * Освобождает клетку.
+     *
+     * @param cell Номер клетки.
+     */
+    private void release(int cell) {
+        occupied[cell >>> 6] &= ~(1L << cell);
+        freeCells.add(cell);
+    }
+
+    /**
+     * Проверка, занята ли клетка змейкой.
+     *
+     * @param cell Номер клетки.
+     * @return true, если клетка занята.
+     */
+    public boolean isOccupied(int cell) {
+        return (occupied[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Проверка, лежит ли в клетке еда.
+     *
+     * @param cell Номер клетки.
+     * @return true, если в клетке еда.
+     */
+    public boolean isFood(int cell) {
+        return (food[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Проверка, жива ли змейка.
+     *
+     * @param snake Номер змейки.
+     * @return true, если змейка жива.
+     */
+    public boolean isAlive(int snake) {
+        return alive[snake];
+    }
+
+    /**
+     * Получение длины змейки.
+     *
+     * @param snake Номер змейки.
+     * @return Длина змейки.
+     */
+    public int getLength(int snake) {
+        return length[snake];
+    }
+
+    /**
+     * Получение клетки сегмента змейки по порядку от головы.
+     *
+     * @param snake Номер змейки.
+     * @param index Индекс сегмента (0 — голова).
+     * @return Номер клетки.
+     */
+    public int getCell(int snake, int index) {
+        return segments[snake * maxLength + (headIndex[snake] + index) % maxLength];
+    }
+
+    /**
+     * Получение клетки головы змейки.
+     *
+     * @param snake Номер змейки.
+     * @return Номер клетки головы.
+     */
+    public int getHeadCell(int snake) {
+        return segments[snake * maxLength + headIndex[snake]];
+    }
+
+    /**
+     * Получение направления змейки.
+     *
+     * @param snake Номер змейки.
+     * @return Текущее направление.
+     */
+    public Direction getDirection(int snake) {
+        return DIRECTIONS[direction[snake]];
+    }
+
+    /**
+     * Получение количества занятых номеров змеек (живых и погибших).
+     *
+     * @return Количество номеров.
+     */
+    public int getSnakeCount() {
+        return snakeCount;
+    }
+
+    /**
+     * Получение количества живых змеек.
+     *
+     * @return Количество живых змеек.
+     */
+    public int getAliveCount() {
+        return aliveCount;
+    }
+
+    /**
+     * Получение количества выполненных тактов.
+     *
+     * @return Номер такта.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Получение игрового поля.
+     *
+     * @return Игровое поле.
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * Нагрузочный запуск: боты со случайными поворотами на большом поле, погибшие боты
+     * появляются заново. Выводит количество тактов живых змей в секунду: за такт у змеи меняются
+     * только голова и хвост, поэтому длина в счёт не входит.
+     *
+     * @param args Количество ботов (по умолчанию 500), тактов (10000) и потоков (все ядра).
+     */
+    public static void main(String[] args) {
+        int bots = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        Board board = new Board(512, 512);
+        Arena arena = new Arena(board, Wall.empty(512, 512), bots, 256, bots, 1);
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        arena.setPool(pool);
+
+        long random = 7; // Состояние генератора поворотов ботов (SplitMix64)
+        long snakeTicks = 0; // Такты живых змей
+        long start = System.nanoTime();
+        for (int t = 0; t < ticks; t++) {
+            for (int i = 0; i < bots; i++) {
+                random = SplitMix64.next(random);
+                long z = SplitMix64.mix(random);
+                if (i >= arena.getSnakeCount() || !arena.isAlive(i)) {
+                    arena.spawn((int) ((z >>> 1) % board.getCellCount()), Direction.RIGHT, 8);
+                } else if ((z & 7) == 0) { // Поворот примерно раз в восемь тактов
+                    arena.setDirection(i, DIRECTIONS[(int) ((z >>> 3) & 3)]);
+                }
+            }
+            for (int i = 0; i < arena.getSnakeCount(); i++) {
+                if (arena.isAlive(i)) {
+                    snakeTicks++;
+                }
+            }
+            arena.step();
+        }
+        long elapsed = Math.max(1, System.nanoTime() - start);
+        logger.info("Ботов {}, тактов {} за {} с на {} потоках: {} тактов/с, {} млн тактов змей/с",
+                Unbox.box(bots), Unbox.box(ticks), Unbox.box(Math.round(elapsed / 1e7) / 100.0), Unbox.box(threads),
+                Unbox.box(Math.round(ticks * 1e9 / elapsed)), Unbox.box(Math.round(snakeTicks * 1e4 / elapsed) / 10.0));
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package org.example.ssnake;
+
+import java.util.Arrays;
+
+/**
+ * Автопилот змейки: выбор направления поиском пути по клеткам поля.
+ * <p>
+ * Поиск в ширину (BFS) ведётся к цели (например, еде); перед тем как идти к ней, автопилот проверяет,
+ * что из следующей клетки по-прежнему достижим хвост. Если пути к цели нет или он небезопасен,
+ * змейка следует за своим хвостом, а если недостижим и хвост — выбирает соседнюю клетку
+ * с наибольшей свободной областью.
+ * </p>
+ * <p>
+ * Все буферы (очередь, отметки посещения, первый шаг пути) выделяются один раз и переиспользуются:
+ * вместо очистки массива отметок увеличивается номер поиска. На больших полях поиск ограничен окном
+ * {@link #WINDOW}x{@link #WINDOW} клеток вокруг головы, а каждый поиск раскрывает не больше
+ * {@link #MAX_EXPANSIONS} клеток, поэтому время решения не зависит от размера поля.
+ * </p>
+ */
+public class Autopilot {
+
+    /** Максимальная сторона окна поиска в клетках. */
+    public static final int WINDOW = 128;
+
+    /** Максимальное количество клеток, раскрываемых одним поиском пути. */
+    public static final int MAX_EXPANSIONS = 4096;
+
+    private static final Direction[] DIRECTIONS = Direction.values(); // Направления по номеру
+
+    private final Board board; // Игровое поле
+    private final int windowWidth; // Ширина окна поиска
+    private final int windowHeight; // Высота окна поиска
+    private final int[] queue; // Очередь поиска в ширину (номера клеток поля)
+    private final int[] visited; // Номер поиска, в котором клетка окна была посещена
+    private final byte[] firstStep; // Направление первого шага пути к клетке окна
+    private int stamp = 0; // Номер текущего поиска
+    private int originX; // Левый край окна поиска
+    private int originY; // Верхний край окна поиска
+
+    /**
+     * Конструктор автопилота для заданного поля.
+     *
+     * @param board Игровое поле.
+     */
+    public Autopilot(Board board) {
+        this.board = board;
+        this.windowWidth = Math.min(board.getWidth(), WINDOW);
+        this.windowHeight = Math.min(board.getHeight(), WINDOW);
+        int size = windowWidth * windowHeight;
+        this.queue = new int[size];
+        this.visited = new int[size];
+        this.firstStep = new byte[size];
+    }
+
+    /**
+     * Выбирает направление следующего хода. Метод не создаёт объектов.
+     *
+     * @param engine Игровой движок.
+     * @param target Клетка цели или -1, если цели нет.
+     * @return Направление хода.
+     */
+    public Direction decide(GameEngine engine, int target) {
+        Snake snake = engine.getSnake();
+        int head = snake.getHeadCell();
+        Direction current = snake.getDirection();
+        Direction forbidden = snake.getLength() > 1 ? opposite(current) : null;
+        originX = board.x(head) - windowWidth / 2;
+        originY = board.y(head) - windowHeight / 2;
+        int tail = snake.getTailCell();
+
+        // Кратчайший путь к цели, если после первого шага хвост остаётся достижимым
+        if (target >= 0) {
+            int step = search(engine, head, target, forbidden);
+            if (step >= 0) {
+                int next = board.neighbor(head, DIRECTIONS[step]);
+                if (tail < 0 || next == target || search(engine, next, tail, null) >= 0) {
+                    return DIRECTIONS[step];
+                }
+            } else {
+                // Цель дальше, чем успевает раскрыть поиск: шаг в её сторону, если за ним достаточно места
+                Direction toward = approach(engine, head, target, forbidden, snake.getLength());
+                if (toward != null) {
+                    return toward;
+                }
+            }
+        }
+
+        // Следование за хвостом
+        if (tail >= 0 && tail != head) {
+            int step = search(engine, head, tail, forbidden);
+            if (step >= 0) {
+                return DIRECTIONS[step];
+            }
+        }
+
+        // Соседняя клетка с наибольшей свободной областью. Области больше нескольких длин змейки
+        // заведомо достаточно, поэтому подсчёт ограничен, чтобы не обходить всё окно
+        int limit = Math.min(queue.length, 4 * snake.getLength() + 64);
+        Direction best = current;
+        int bestArea = -1;
+        for (Direction direction : DIRECTIONS) {
+            if (direction == forbidden) continue;
+            int next = board.neighbor(head, direction);
+            if (engine.isBlocked(next)) continue;
+            int area = floodArea(engine, next, limit);
+            if (area > bestArea) {
+                bestArea = area;
+                best = direction;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Поиск в ширину от клетки до цели в пределах окна.
+     * Цель может быть занята (например, хвостом), остальные занятые клетки непроходимы.
+     * Если цель не найдена за {@link #MAX_EXPANSIONS} раскрытий, поиск считается неудачным.
+     *
+     * @param engine    Игровой движок.
+     * @param start     Начальная клетка.
+     * @param goal      Целевая клетка.
+     * @param forbidden Запрещённое направление первого шага или null.
+     * @return Номер направления первого шага или -1, если путь не найден.
+     */
+    private int search(GameEngine engine, int start, int goal, Direction forbidden) {
+        int startLocal = local(start);
+        if (startLocal < 0) return -1;
+        nextStamp();
+        visited[startLocal] = stamp;
+        int head = 0;
+        int tail = 0;
+
+        for (Direction direction : DIRECTIONS) {
+            if (direction == forbidden) continue;
+            int next = board.neighbor(start, direction);
+            int nextLocal = local(next);
+            if (nextLocal < 0 || visited[nextLocal] == stamp) continue;
+            visited[nextLocal] = stamp;
+            // Занятую цель (хвост) нельзя брать первым же шагом: хвост ещё на месте, и это столкновение
+            if (engine.isBlocked(next)) continue;
+            if (next == goal) return direction.ordinal();
+            firstStep[nextLocal] = (byte) direction.ordinal();
+            queue[tail++] = next;
+        }
+
+        int budget = Math.min(head + MAX_EXPANSIONS, queue.length);
+        while (head < tail && head < budget) {
+            int cell = queue[head++];
+            byte step = firstStep[local(cell)];
+            for (Direction direction : DIRECTIONS) {
+                int next = board.neighbor(cell, direction);
+                int nextLocal = local(next);
+                if (nextLocal < 0 || visited[nextLocal] == stamp) continue;
+                visited[nextLocal] = stamp;
+                if (next == goal) return step;
+                if (engine.isBlocked(next)) continue;
+                firstStep[nextLocal] = step;
+                queue[tail++] = next;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Выбор шага, сокращающего расстояние до цели (через край поля, если он не перекрыт стенами).
+     * Шаг допустим, если за ним свободная область не меньше предела подсчёта {@link #floodArea}.
+     *
+     * @param engine    Игровой движок.
+     * @param head      Клетка головы.
+     * @param target    Клетка цели.
+     * @param forbidden Запрещённое направление или null.
+     * @param length    Длина змейки.
+     * @return Направление или null, если безопасного шага к цели нет.
+     */
+    private Direction approach(GameEngine engine, int head, int target, Direction forbidden, int length) {
+        Wall wall = engine.getWall();
+        int width = board.getWidth();
+        int height = board.getHeight();
+        int headX = board.x(head);
+        int headY = board.y(head);
+        int dx = board.x(target) - headX;
+        int dy = board.y(target) - headY;
+        // Короткий путь через край поля годится, только если край в этой строке (столбце) не перекрыт стеной
+        boolean wrapX = !wall.isWall(board.cell(0, headY)) && !wall.isWall(board.cell(width - 1, headY));
+        boolean wrapY = !wall.isWall(board.cell(headX, 0)) && !wall.isWall(board.cell(headX, height - 1));
+        Direction horizontal = dx == 0 ? null
+                : (dx > 0) == (!wrapX || Math.abs(dx) <= width / 2) ? Direction.RIGHT : Direction.LEFT;
+        Direction vertical = dy == 0 ? null
+                : (dy > 0) == (!wrapY || Math.abs(dy) <= height / 2) ? Direction.DOWN : Direction.UP;
+        int limit = Math.min(queue.length, 4 * length + 64);
+        for (Direction direction : DIRECTIONS) {
+            if (direction != horizontal && direction != vertical || direction == forbidden) continue;
+            int next = board.neighbor(head, direction);
+            if (!engine.isBlocked(next) && floodArea(engine, next, limit) >= limit) {
+                return direction;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Подсчёт свободных клеток, достижимых из заданной, в пределах окна.
+     *
+     * @param engine Игровой движок.
+     * @param start  Начальная свободная клетка.
+     * @param limit  Предел подсчёта.
+     * @return Количество достижимых клеток, но не больше предела.
+     */
+    private int floodArea(GameEngine engine, int start, int limit) {
+        int startLocal = local(start);
+        if (startLocal < 0) return 0;
+        nextStamp();
+        visited[startLocal] = stamp;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        while (head < tail && tail < limit) {
+            int cell = queue[head++];
+            for (Direction direction : DIRECTIONS) {
+                int next = board.neighbor(cell, direction);
+                int nextLocal = local(next);
+                if (nextLocal < 0 || visited[nextLocal] == stamp) continue;
+                visited[nextLocal] = stamp;
+                if (!engine.isBlocked(next) && tail < limit) {
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Перевод клетки поля в индекс окна поиска.
+     *
+     * @param cell Номер клетки поля.
+     * @return Индекс в окне или -1, если клетка вне окна.
+     */
+    private int local(int cell) {
+        int dx = Math.floorMod(board.x(cell) - originX, board.getWidth());
+        int dy = Math.floorMod(board.y(cell) - originY, board.getHeight());
+        if (dx >= windowWidth || dy >= windowHeight) return -1;
+        return dy * windowWidth + dx;
+    }
+
+    /**
+     * Начинает новый поиск: отметки прошлых поисков становятся недействительными без очистки массива.
+     */
+    private void nextStamp() {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            stamp = 1;
+        }
+    }
+
+    /**
+     * Получение противоположного направления.
+     *
+     * @param direction Направление.
+     * @return Противоположное направление.
+     */
+    private static Direction opposite(Direction direction) {
+        return switch (direction) {
+            case UP -> Direction.DOWN;
+            case DOWN -> Direction.UP;
+            case LEFT -> Direction.RIGHT;
+            case RIGHT -> Direction.LEFT;
+        };
+    }
+}
@@ -0,0 +1,184 @@
+package org.example.ssnake;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Класс для пакетного запуска множества независимых партий без графики на всех ядрах процессора.
+ * <p>
+ * Партии перебираются по сетке параметров (начальная длина, размер поля, зерно)
+ * и выполняются параллельным потоком на общем пуле fork/join. Каждая партия создаёт свой движок
+ * и возвращает неизменяемый {@link Result}; общего изменяемого состояния между потоками нет,
+ * поэтому пропускная способность растёт почти линейно с числом ядер.
+ * </p>
+ * <p>
+ * Без графики уровень скорости не влияет на ход партии, он лишь задаёт длительность такта,
+ * поэтому каждая партия выполняется один раз, а время жизни змейки в секундах вычисляется
+ * из числа тактов для каждого уровня скорости. Вместо игрока змейкой управляет
+ * простая случайная стратегия с собственным генератором на каждую партию.
+ * </p>
+ */
+public class BatchRunner {
+
+    private static final Logger logger = LogManager.getLogger(BatchRunner.class);
+
+    /** Уровни скорости из меню. */
+    public static final int[] SPEED_LEVELS = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+
+    /** Начальные длины змейки (диапазон слайдера меню). */
+    public static final int[] LENGTHS = {3, 10, 20, 30};
+
+    /** Размеры полей. */
+    public static final int[][] BOARDS = {{30, 20}, {100, 100}};
+
+    /**
+     * Параметры одной партии.
+     */
+    public static final class Setting {
+        final int length; // Начальная длина змейки
+        final Board board; // Игровое поле (неизменяемое, общее для партий)
+        final long seed; // Зерно партии
+
+        Setting(int length, Board board, long seed) {
+            this.length = length;
+            this.board = board;
+            this.seed = seed;
+        }
+
+        /**
+         * Ключ группировки результатов (без зерна).
+         *
+         * @return Строка вида "длина/ШxВ".
+         */
+        String key() {
+            return String.format("%2d/%dx%d", length, board.getWidth(), board.getHeight());
+        }
+    }
+
+    /**
+     * Неизменяемый результат одной партии.
+     */
+    public static final class Result {
+        final String key; // Ключ группы параметров
+        final long ticks; // Количество прожитых тактов
+        final int maxLength; // Наибольшая длина змейки
+        final long nanos; // Время расчёта партии
+
+        Result(String key, long ticks, int maxLength, long nanos) {
+            this.key = key;
+            this.ticks = ticks;
+            this.maxLength = maxLength;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Время жизни змейки при заданном уровне скорости.
+         *
+         * @param speedLevel Уровень скорости.
+         * @return Время в секундах.
+         */
+        double seconds(int speedLevel) {
+            return ticks / (10.0 * speedLevel); // Такт длится 0,1 / уровень секунды
+        }
+    }
+
+    /**
+     * Строит сетку параметров.
+     *
+     * @param gamesPerSetting Количество партий (зёрен) на каждое сочетание параметров.
+     * @return Список параметров партий.
+     */
+    public static List<Setting> grid(int gamesPerSetting) {
+        List<Setting> settings = new ArrayList<>();
+        for (int[] size : BOARDS) {
+            Board board = new Board(size[0], size[1]);
+            for (int length : LENGTHS) {
+                for (int seed = 0; seed < gamesPerSetting; seed++) {
+                    settings.add(new Setting(length, board, seed));
+                }
+            }
+        }
+        return settings;
+    }
+
+    /**
+     * Выполняет одну партию до завершения или до лимита тактов.
+     *
+     * @param setting  Параметры партии.
+     * @param maxTicks Лимит тактов.
+     * @return Результат партии.
+     */
+    public static Result play(Setting setting, long maxTicks) {
+        long start = System.nanoTime();
+        GameEngine engine = new GameEngine(setting.board, setting.length, setting.seed);
+        Direction[] directions = Direction.values();
+        long random = setting.seed; // Состояние генератора SplitMix64
+        int maxLength = engine.getSnake().getLength();
+        while (!engine.isGameOver() && engine.getTick() < maxTicks) {
+            random = SplitMix64.next(random);
+            long z = SplitMix64.mix(random);
+            if ((z & 7) == 0) { // Поворот примерно раз в восемь тактов
+                engine.setDirection(directions[(int) ((z >>> 3) & 3)]);
+            }
+            engine.step();
+            maxLength = Math.max(maxLength, engine.getSnake().getLength());
+        }
+        return new Result(setting.key(), engine.getTick(), maxLength, System.nanoTime() - start);
+    }
+
+    /**
+     * Выполняет все партии параллельно и группирует результаты по параметрам.
+     *
+     * @param settings Параметры партий.
+     * @param maxTicks Лимит тактов на партию.
+     * @return Результаты, сгруппированные по ключу параметров.
+     */
+    public static Map<String, List<Result>> run(List<Setting> settings, long maxTicks) {
+        return settings.parallelStream()
+                .map(setting -> play(setting, maxTicks))
+                .collect(Collectors.groupingBy(result -> result.key, TreeMap::new, Collectors.toList()));
+    }
+
+    /**
+     * Точка входа для пакетного запуска.
+     *
+     * @param args Количество партий на сочетание параметров (по умолчанию 100) и лимит тактов (по умолчанию 100000).
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        long maxTicks = args.length > 1 ? Long.parseLong(args[1]) : 100_000;
+        List<Setting> settings = grid(games);
+
+        long start = System.nanoTime();
+        Map<String, List<Result>> results = run(settings, maxTicks);
+        long elapsed = Math.max(1, System.nanoTime() - start);
+
+        long totalTicks = 0;
+        for (Map.Entry<String, List<Result>> entry : results.entrySet()) {
+            List<Result> group = entry.getValue();
+            double meanTicks = group.stream().mapToLong(r -> r.ticks).average().orElse(0);
+            long groupTicks = group.stream().mapToLong(r -> r.ticks).sum();
+            long groupNanos = Math.max(1, group.stream().mapToLong(r -> r.nanos).sum());
+            int maxLength = group.stream().mapToInt(r -> r.maxLength).max().orElse(0);
+            totalTicks += groupTicks;
+            logger.info("длина/поле {}: партий {}, тактов в среднем {}, наибольшая длина {}, тактов/с на поток {}",
+                    entry.getKey(), Unbox.box(group.size()), Unbox.box(Math.round(meanTicks)), Unbox.box(maxLength),
+                    Unbox.box(Math.round(groupTicks * 1e9 / groupNanos)));
+            for (int speed : SPEED_LEVELS) {
+                // Время жизни на каждом уровне скорости вычисляется из тех же партий
+                double meanSeconds = group.stream().mapToDouble(r -> r.seconds(speed)).average().orElse(0);
+                logger.info("  скорость {}: секунд в среднем {}", Unbox.box(speed), Unbox.box(Math.round(meanSeconds * 10) / 10.0));
+            }
+        }
+        logger.info("Всего партий {}, тактов {} за {} с: {} тактов/с на {} ядрах",
+                Unbox.box(settings.size()), Unbox.box(totalTicks), Unbox.box(Math.round(elapsed / 1e7) / 100.0),
+                Unbox.box(Math.round(totalTicks * 1e9 / elapsed)), Unbox.box(Runtime.getRuntime().availableProcessors()));
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.ssnake;
+
+/**
+ * Класс, описывающий размеры игрового поля и упакованное представление клеток.
+ * <p>
+ * Каждая клетка поля кодируется одним числом {@code int}: {@code y * width + x}.
+ * Для каждой клетки и каждого направления заранее вычисляется номер соседней клетки
+ * с учётом перехода через край поля (поле замкнуто, как тор), поэтому шаг змейки
+ * сводится к одному чтению из массива без создания объектов.
+ * </p>
+ * <p>
+ * Для больших полей (больше {@link #NEIGHBOR_TABLE_LIMIT} клеток) таблица заняла бы слишком много памяти,
+ * поэтому соседи вычисляются арифметически. Поле может иметь размер до {@link #MAX_SIZE}x{@link #MAX_SIZE}.
+ * </p>
+ */
+public final class Board {
+
+    /** Максимальная ширина и высота поля в клетках. */
+    public static final int MAX_SIZE = 10_000;
+
+    /** Максимальное количество клеток, для которого строится таблица соседей (16 МБ). */
+    public static final int NEIGHBOR_TABLE_LIMIT = 1 << 20;
+
+    private final int width; // Ширина поля в клетках
+    private final int height; // Высота поля в клетках
+    private final int[] neighbors; // Таблица соседей: [cell * 4 + direction.ordinal()] или null для больших полей
+
+    /**
+     * Конструктор поля заданного размера.
+     *
+     * @param width  Ширина поля в клетках.
+     * @param height Высота поля в клетках.
+     */
+    public Board(int width, int height) {
+        if (width <= 0 || height <= 0 || width > MAX_SIZE || height > MAX_SIZE) {
+            throw new IllegalArgumentException("Размер поля должен быть от 1 до " + MAX_SIZE + ": " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        if (width * height > NEIGHBOR_TABLE_LIMIT) {
+            this.neighbors = null;
+            return;
+        }
+        this.neighbors = new int[width * height * 4];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int base = cell(x, y) * 4;
+                neighbors[base + Direction.UP.ordinal()] = cell(x, y == 0 ? height - 1 : y - 1);
+                neighbors[base + Direction.DOWN.ordinal()] = cell(x, y == height - 1 ? 0 : y + 1);
+                neighbors[base + Direction.LEFT.ordinal()] = cell(x == 0 ? width - 1 : x - 1, y);
+                neighbors[base + Direction.RIGHT.ordinal()] = cell(x == width - 1 ? 0 : x + 1, y);
+            }
+        }
+    }
+
+    /**
+     * Получение ширины поля.
+     *
+     * @return Ширина поля в клетках.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Получение высоты поля.
+     *
+     * @return Высота поля в клетках.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Получение количества клеток поля.
+     *
+     * @return Количество клеток.
+     */
+    public int getCellCount() {
+        return width * height;
+    }
+
+    /**
+     * Упаковка координат в номер клетки.
+     *
+     * @param x Координата по оси X.
+     * @param y Координата по оси Y.
+     * @return Номер клетки.
+     */
+    public int cell(int x, int y) {
+        return y * width + x;
+    }
+
+    /**
+     * Получение координаты X клетки.
+     *
+     * @param cell Номер клетки.
+     * @return Координата по оси X.
+     */
+    public int x(int cell) {
+        return cell % width;
+    }
+
+    /**
+     * Получение координаты Y клетки.
+     *
+     * @param cell Номер клетки.
+     * @return Координата по оси Y.
+     */
+    public int y(int cell) {
+        return cell / width;
+    }
+
+    /**
+     * Получение соседней клетки в заданном направлении с переходом через край поля.
+     *
+     * @param cell      Номер клетки.
+     * @param direction Направление.
+     * @return Номер соседней клетки.
+     */
+    public int neighbor(int cell, Direction direction) {
+        if (neighbors != null) {
+            return neighbors[cell * 4 + direction.ordinal()];
+        }
+        return switch (direction) {
+            case UP -> cell < width ? cell + (height - 1) * width : cell - width;
+            case DOWN -> cell >= (height - 1) * width ? cell - (height - 1) * width : cell + width;
+            case LEFT -> cell % width == 0 ? cell + width - 1 : cell - 1;
+            case RIGHT -> cell % width == width - 1 ? cell - width + 1 : cell + 1;
+        };
+    }
+}
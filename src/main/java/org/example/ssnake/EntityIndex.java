@@ -0,0 +1,491 @@
+package org.example.ssnake;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Объекты поля (еда, ускорения, движущиеся препятствия, порталы) с индексом по клеткам.
+ * <p>
+ * Объект — номер в параллельных массивах примитивов (вид, клетка, направление), как змейки в {@link Arena}.
+ * Объекты одной клетки связаны в двусвязный список прямо в этих массивах ({@code next}/{@code prev}),
+ * а массив {@code head} хранит первый объект каждой клетки. Поэтому поиск по клетке, добавление, удаление
+ * и перенос объекта выполняются за O(1) без создания объектов. Номера удалённых объектов переиспользуются.
+ * </p>
+ * <p>
+ * Непустые клетки отмечены в битовой карте, по которой запрос прямоугольной области (например, видимой
+ * части поля) пропускает пустые клетки по 64 за раз. Движущиеся объекты собраны в плотный массив,
+ * и {@link #step()} сдвигает их все за один проход; упёршийся в стену или препятствие объект
+ * разворачивается. Количество препятствий в клетке хранится отдельно, и {@link #isBlocked(int)}
+ * отвечает за O(1).
+ * </p>
+ */
+public class EntityIndex {
+
+    private static final Logger logger = LogManager.getLogger(EntityIndex.class);
+
+    /** Номер, означающий отсутствие объекта. */
+    public static final int NONE = -1;
+
+    private static final EntityKind[] KINDS = EntityKind.values(); // Виды по номеру
+    private static final Direction[] DIRECTIONS = Direction.values(); // Направления по номеру
+    private static final byte STATIC = -1; // Направление неподвижного объекта
+    private static final byte FREE = -1; // Вид свободного номера
+
+    private final Board board; // Игровое поле
+    private final Wall wall; // Стены
+    private final int[] head; // Первый объект в каждой клетке или NONE
+    private final long[] occupied; // Битовая карта непустых клеток
+    private final short[] blocking; // Количество препятствий в каждой клетке
+    private byte[] kind; // Номер вида объекта или FREE
+    private int[] cell; // Клетка объекта
+    private int[] next; // Следующий объект той же клетки (для свободных номеров — следующий свободный)
+    private int[] prev; // Предыдущий объект той же клетки
+    private byte[] direction; // Номер направления движения или STATIC
+    private int[] movingIndex; // Позиция объекта в массиве движущихся
+    private int[] moving; // Номера движущихся объектов подряд
+    private int movingCount = 0; // Количество движущихся объектов
+    private int highWater = 0; // Количество когда-либо выданных номеров
+    private int freeHead = NONE; // Первый свободный номер
+    private int count = 0; // Количество объектов
+
+    /**
+     * Конструктор индекса объектов.
+     *
+     * @param board    Игровое поле, не больше {@link GameEngine#FREE_INDEX_LIMIT} клеток.
+     * @param wall     Стены того же размера, что и поле.
+     * @param capacity Начальная вместимость (при необходимости удваивается).
+     */
+    public EntityIndex(Board board, Wall wall, int capacity) {
+        if (wall.getWidth() != board.getWidth() || wall.getHeight() != board.getHeight()) {
+            throw new IllegalArgumentException("Размер стен " + wall.getWidth() + "x" + wall.getHeight()
+                    + " не совпадает с полем " + board.getWidth() + "x" + board.getHeight());
+        }
+        if (board.getCellCount() > GameEngine.FREE_INDEX_LIMIT) {
+            throw new IllegalArgumentException("Поле для объектов должно быть не больше "
+                    + GameEngine.FREE_INDEX_LIMIT + " клеток");
+        }
+        this.board = board;
+        this.wall = wall;
+        this.head = new int[board.getCellCount()];
+        Arrays.fill(head, NONE);
+        this.occupied = new long[(board.getCellCount() + 63) >>> 6];
+        this.blocking = new short[board.getCellCount()];
+        capacity = Math.max(capacity, 16);
+        this.kind = new byte[capacity];
+        this.cell = new int[capacity];
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+        this.direction = new byte[capacity];
+        this.movingIndex = new int[capacity];
+        this.moving = new int[capacity];
+    }
+
+    /**
+     * Добавляет неподвижный объект.
+     *
+     * @param entityKind Вид объекта.
+     * @param cellIndex  Клетка.
+     * @return Номер объекта.
+     */
+    public int add(EntityKind entityKind, int cellIndex) {
+        return add(entityKind, cellIndex, null);
+    }
+
+    /**
+     * Добавляет объект, который на каждом такте {@link #step()} сдвигается на клетку в заданном направлении.
+     *
+     * @param entityKind Вид объекта.
+     * @param cellIndex  Клетка.
+     * @param heading    Направление движения или null для неподвижного объекта.
+     * @return Номер объекта.
+     */
+    public int add(EntityKind entityKind, int cellIndex, Direction heading) {
+        if (cellIndex < 0 || cellIndex >= head.length) {
+            throw new IllegalArgumentException("Клетка вне поля: " + cellIndex);
+        }
+        int id;
+        if (freeHead != NONE) {
+            id = freeHead;
+            freeHead = next[id];
+        } else {
+            if (highWater == kind.length) {
+                grow();
+            }
+            id = highWater++;
+        }
+        kind[id] = (byte) entityKind.ordinal();
+        direction[id] = heading == null ? STATIC : (byte) heading.ordinal();
+        if (heading != null) {
+            movingIndex[id] = movingCount;
+            moving[movingCount++] = id;
+        }
+        link(id, cellIndex);
+        count++;
+        return id;
+    }
+
+    /**
+     * Удаляет объект; его номер может быть выдан новому объекту.
+     *
+     * @param id Номер объекта.
+     */
+    public void remove(int id) {
+        checkAlive(id);
+        unlink(id);
+        if (direction[id] != STATIC) {
+            // На место удалённого ставится последний движущийся объект
+            int last = moving[--movingCount];
+            moving[movingIndex[id]] = last;
+            movingIndex[last] = movingIndex[id];
+        }
+        kind[id] = FREE;
+        next[id] = freeHead;
+        freeHead = id;
+        count--;
+    }
+
+    /**
+     * Переносит объект в другую клетку.
+     *
+     * @param id        Номер объекта.
+     * @param cellIndex Новая клетка.
+     */
+    public void move(int id, int cellIndex) {
+        checkAlive(id);
+        if (cellIndex < 0 || cellIndex >= head.length) {
+            throw new IllegalArgumentException("Клетка вне поля: " + cellIndex);
+        }
+        unlink(id);
+        link(id, cellIndex);
+    }
+
+    /**
+     * Сдвигает все движущиеся объекты на одну клетку в их направлении. Метод не создаёт объектов.
+     * Объекты обрабатываются по очереди, поэтому два препятствия не могут войти в одну клетку;
+     * объект, перед которым стена или препятствие, остаётся на месте и разворачивается.
+     *
+     * @return Количество сдвинувшихся объектов.
+     */
+    public int step() {
+        int moved = 0;
+        for (int i = 0; i < movingCount; i++) {
+            int id = moving[i];
+            int from = cell[id];
+            int to = board.neighbor(from, DIRECTIONS[direction[id]]);
+            if (wall.isWall(to) || blocking[to] > 0) {
+                direction[id] ^= 1; // Противоположное направление (UP/DOWN и LEFT/RIGHT идут парами)
+                continue;
+            }
+            unlink(id);
+            link(id, to);
+            moved++;
+        }
+        return moved;
+    }
+
+    /**
+     * Получение первого объекта в клетке; остальные перебираются через {@link #next(int)}.
+     *
+     * @param cellIndex Клетка.
+     * @return Номер объекта или {@link #NONE}, если клетка пуста.
+     */
+    public int first(int cellIndex) {
+        return head[cellIndex];
+    }
+
+    /**
+     * Получение следующего объекта той же клетки.
+     *
+     * @param id Номер объекта.
+     * @return Номер следующего объекта или {@link #NONE}.
+     */
+    public int next(int id) {
+        return next[id];
+    }
+
+    /**
+     * Поиск объекта заданного вида в клетке.
+     *
+     * @param cellIndex  Клетка.
+     * @param entityKind Вид объекта.
+     * @return Номер объекта или {@link #NONE}.
+     */
+    public int find(int cellIndex, EntityKind entityKind) {
+        for (int id = head[cellIndex]; id != NONE; id = next[id]) {
+            if (kind[id] == entityKind.ordinal()) {
+                return id;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Проверка, есть ли в клетке объекты.
+     *
+     * @param cellIndex Клетка.
+     * @return true, если в клетке есть хотя бы один объект.
+     */
+    public boolean isOccupied(int cellIndex) {
+        return head[cellIndex] != NONE;
+    }
+
+    /**
+     * Проверка, закрыта ли клетка стеной или препятствием.
+     *
+     * @param cellIndex Клетка.
+     * @return true, если в клетку нельзя войти.
+     */
+    public boolean isBlocked(int cellIndex) {
+        return blocking[cellIndex] > 0 || wall.isWall(cellIndex);
+    }
+
+    /**
+     * Перебирает объекты в прямоугольной области поля; область, выходящая за край, продолжается
+     * с противоположного края, как и движение по полю. Метод не создаёт объектов.
+     *
+     * @param x      Левый край области.
+     * @param y      Верхний край области.
+     * @param width  Ширина области (не больше ширины поля).
+     * @param height Высота области (не больше высоты поля).
+     * @param action Получает номер каждого объекта области.
+     * @return Количество объектов в области.
+     */
+    public int query(int x, int y, int width, int height, IntConsumer action) {
+        int boardWidth = board.getWidth();
+        width = Math.min(width, boardWidth);
+        height = Math.min(height, board.getHeight());
+        x = Math.floorMod(x, boardWidth);
+        y = Math.floorMod(y, board.getHeight());
+        int found = 0;
+        for (int row = 0; row < height; row++) {
+            int rowStart = ((y + row) % board.getHeight()) * boardWidth;
+            // Строка области — один или два (при переходе через край) отрезка подряд идущих клеток
+            int right = Math.min(x + width, boardWidth);
+            found += queryRange(rowStart + x, rowStart + right, action);
+            if (x + width > boardWidth) {
+                found += queryRange(rowStart, rowStart + x + width - boardWidth, action);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Перебирает объекты в отрезке клеток, пропуская пустые клетки по битовой карте.
+     *
+     * @param from   Первая клетка отрезка.
+     * @param to     Клетка за концом отрезка.
+     * @param action Получает номер каждого объекта.
+     * @return Количество объектов.
+     */
+    private int queryRange(int from, int to, IntConsumer action) {
+        int found = 0;
+        int word = from >>> 6;
+        long bits = occupied[word] & (-1L << from); // Сдвиг берётся по модулю 64
+        while (true) {
+            while (bits == 0) {
+                if (++word << 6 >= to) return found;
+                bits = occupied[word];
+            }
+            int c = (word << 6) + Long.numberOfTrailingZeros(bits);
+            if (c >= to) return found;
+            for (int id = head[c]; id != NONE; id = next[id]) {
+                action.accept(id);
+                found++;
+            }
+            bits &= bits - 1;
+        }
+    }
+
+    /**
+     * Получение вида объекта.
+     *
+     * @param id Номер объекта.
+     * @return Вид объекта.
+     */
+    public EntityKind getKind(int id) {
+        checkAlive(id);
+        return KINDS[kind[id]];
+    }
+
+    /**
+     * Получение клетки объекта.
+     *
+     * @param id Номер объекта.
+     * @return Номер клетки.
+     */
+    public int getCell(int id) {
+        checkAlive(id);
+        return cell[id];
+    }
+
+    /**
+     * Получение направления движения объекта.
+     *
+     * @param id Номер объекта.
+     * @return Направление или null для неподвижного объекта.
+     */
+    public Direction getDirection(int id) {
+        checkAlive(id);
+        return direction[id] == STATIC ? null : DIRECTIONS[direction[id]];
+    }
+
+    /**
+     * Проверка, существует ли объект с таким номером.
+     *
+     * @param id Номер объекта.
+     * @return true, если объект добавлен и не удалён.
+     */
+    public boolean isAlive(int id) {
+        return id >= 0 && id < highWater && kind[id] != FREE;
+    }
+
+    /**
+     * Получение количества объектов.
+     *
+     * @return Количество объектов.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Получение количества движущихся объектов.
+     *
+     * @return Количество движущихся объектов.
+     */
+    public int getMovingCount() {
+        return movingCount;
+    }
+
+    /**
+     * Получение игрового поля.
+     *
+     * @return Игровое поле.
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * Добавляет объект в начало списка клетки.
+     *
+     * @param id        Номер объекта.
+     * @param cellIndex Клетка.
+     */
+    private void link(int id, int cellIndex) {
+        int first = head[cellIndex];
+        next[id] = first;
+        prev[id] = NONE;
+        if (first != NONE) {
+            prev[first] = id;
+        } else {
+            occupied[cellIndex >>> 6] |= 1L << cellIndex;
+        }
+        head[cellIndex] = id;
+        cell[id] = cellIndex;
+        if (KINDS[kind[id]].isBlocking()) {
+            blocking[cellIndex]++;
+        }
+    }
+
+    /**
+     * Убирает объект из списка его клетки.
+     *
+     * @param id Номер объекта.
+     */
+    private void unlink(int id) {
+        int cellIndex = cell[id];
+        int before = prev[id];
+        int after = next[id];
+        if (before != NONE) {
+            next[before] = after;
+        } else {
+            head[cellIndex] = after;
+            if (after == NONE) {
+                occupied[cellIndex >>> 6] &= ~(1L << cellIndex);
+            }
+        }
+        if (after != NONE) {
+            prev[after] = before;
+        }
+        if (KINDS[kind[id]].isBlocking()) {
+            blocking[cellIndex]--;
+        }
+    }
+
+    /**
+     * Проверка номера объекта.
+     *
+     * @param id Номер объекта.
+     */
+    private void checkAlive(int id) {
+        if (!isAlive(id)) {
+            throw new IllegalArgumentException("Нет объекта с номером " + id);
+        }
+    }
+
+    /**
+     * Удваивает вместимость массивов объектов.
+     */
+    private void grow() {
+        int capacity = kind.length * 2;
+        kind = Arrays.copyOf(kind, capacity);
+        cell = Arrays.copyOf(cell, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        direction = Arrays.copyOf(direction, capacity);
+        movingIndex = Arrays.copyOf(movingIndex, capacity);
+        moving = Arrays.copyOf(moving, capacity);
+    }
+
+    /**
+     * Нагрузочная проверка: такт и запрос видимой области при большом количестве объектов.
+     *
+     * @param args Количество объектов (по умолчанию 50000), сторона поля (1000) и количество тактов (1000).
+     */
+    public static void main(String[] args) {
+        int entities = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int side = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int ticks = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        Board board = new Board(side, side);
+        Wall wall = new Wall(side, side);
+        EntityIndex index = new EntityIndex(board, wall, entities);
+        EntityKind[] items = {EntityKind.FOOD, EntityKind.SPEED_BOOST, EntityKind.PORTAL}; // Неподвижные объекты
+        long random = 1; // Состояние генератора (SplitMix64)
+        while (index.size() < entities) {
+            random = SplitMix64.next(random);
+            long z = SplitMix64.mix(random);
+            int c = (int) ((z >>> 8) % board.getCellCount());
+            if (index.isBlocked(c)) continue;
+            // Половина объектов — движущиеся препятствия, остальные — неподвижные еда, ускорения и порталы
+            if ((z & 1) == 0) {
+                index.add(EntityKind.OBSTACLE, c, DIRECTIONS[(int) ((z >>> 1) & 3)]);
+            } else {
+                index.add(items[(int) ((z >>> 1) % items.length)], c);
+            }
+        }
+        long budget = 100_000_000L / 10; // Интервал обновления уровня скорости 10
+        int[] visible = new int[1]; // Счётчик объектов видимой области
+        IntConsumer counter = id -> visible[0]++;
+        for (int t = 0; t < ticks; t++) {
+            index.step(); // Прогрев JIT
+        }
+        long worst = 0;
+        long start = System.nanoTime();
+        for (int t = 0; t < ticks; t++) {
+            long tickStart = System.nanoTime();
+            index.step();
+            index.query(t % side, t % side, GameRenderer.VIEWPORT_WIDTH, GameRenderer.VIEWPORT_HEIGHT, counter);
+            worst = Math.max(worst, System.nanoTime() - tickStart);
+        }
+        long average = (System.nanoTime() - start) / ticks;
+        logger.info("Объектов {} (движущихся {}) на поле {}x{}: такт в среднем {} мкс, худший {} мкс, бюджет {} мкс; "
+                        + "в видимой области найдено {}",
+                Unbox.box(index.size()), Unbox.box(index.getMovingCount()), Unbox.box(side), Unbox.box(side),
+                Unbox.box(average / 1000), Unbox.box(worst / 1000), Unbox.box(budget / 1000), Unbox.box(visible[0]));
+    }
+}
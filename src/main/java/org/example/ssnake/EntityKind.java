@@ -0,0 +1,33 @@
+package org.example.ssnake;
+
+/**
+ * Виды объектов на поле помимо змейки и стен, хранимых в {@link EntityIndex}.
+ */
+public enum EntityKind {
+    /** Еда. */
+    FOOD(false),
+
+    /** Ускорение. */
+    SPEED_BOOST(false),
+
+    /** Препятствие, в том числе движущееся; в его клетку нельзя войти. */
+    OBSTACLE(true),
+
+    /** Портал. */
+    PORTAL(false);
+
+    private final boolean blocking; // Занимает ли объект клетку, как стена
+
+    EntityKind(boolean blocking) {
+        this.blocking = blocking;
+    }
+
+    /**
+     * Проверка, закрывает ли объект клетку для змейки и других движущихся препятствий.
+     *
+     * @return true, если в клетку с таким объектом нельзя войти.
+     */
+    public boolean isBlocking() {
+        return blocking;
+    }
+}
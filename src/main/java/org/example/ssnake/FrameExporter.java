@@ -0,0 +1,373 @@
+package org.example.ssnake;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Фоновый вывод партий в изображения без окна: для записей ({@link ReplayReader}) и для партий автопилота.
+ * <p>
+ * Для каждой партии сохраняется миниатюра {@code <имя>.png} с последним кадром и, в зависимости от режима,
+ * анимация {@code <имя>.gif} или последовательность {@code <имя>/frame-000000.png}. Кадры рисует
+ * {@link FrameRasterizer} и кодирует ImageIO сразу по мере хода партии: кадры не накапливаются, поэтому
+ * память ограничена одним изображением на рабочий поток независимо от длины и количества партий.
+ * </p>
+ * <p>
+ * Партии раздаются рабочим потокам через общий счётчик; каждый поток переиспользует свой рисовальщик,
+ * пока размер поля не изменится. Графическая система не нужна, экспорт работает на сервере без дисплея.
+ * </p>
+ */
+public class FrameExporter {
+
+    private static final Logger logger = LogManager.getLogger(FrameExporter.class);
+
+    /** Режим: только миниатюры. */
+    public static final String THUMBNAIL = "thumb";
+
+    /** Режим: анимация GIF и миниатюра. */
+    public static final String GIF = "gif";
+
+    /** Режим: последовательность кадров PNG и миниатюра. */
+    public static final String PNG = "png";
+
+    /** Наибольшая длина партии автопилота в тактах. */
+    public static final long MAX_SIMULATED_TICKS = 10_000;
+
+    private final Path directory; // Каталог для изображений
+    private final String mode; // Режим вывода
+    private final int cellSize; // Сторона клетки в пикселях
+    private final int frameEvery; // Кадр выводится на каждом frameEvery-м такте
+    private LevelPack levelPack; // Пакет уровней для записей, открывается при первой необходимости
+
+    /**
+     * Конструктор экспорта.
+     *
+     * @param directory  Каталог для изображений (создаётся при необходимости).
+     * @param mode       Режим вывода: {@link #THUMBNAIL}, {@link #GIF} или {@link #PNG}.
+     * @param cellSize   Сторона клетки в пикселях ({@link GameRenderer#CELL_SIZE} — как в игре).
+     * @param frameEvery Кадр выводится на каждом frameEvery-м такте.
+     */
+    public FrameExporter(Path directory, String mode, int cellSize, int frameEvery) {
+        if (!THUMBNAIL.equals(mode) && !GIF.equals(mode) && !PNG.equals(mode)) {
+            throw new IllegalArgumentException("Неизвестный режим вывода: " + mode);
+        }
+        if (cellSize <= 0 || frameEvery <= 0) {
+            throw new IllegalArgumentException("Неверные параметры вывода: клетка " + cellSize + ", шаг кадров " + frameEvery);
+        }
+        this.directory = directory;
+        this.mode = mode;
+        this.cellSize = cellSize;
+        this.frameEvery = frameEvery;
+    }
+
+    /**
+     * Выводит все партии на заданном количестве потоков.
+     * Ошибка в одной партии записывается в журнал и не прерывает остальные.
+     *
+     * @param replays   Файлы записей.
+     * @param firstSeed Зерно первой партии автопилота.
+     * @param simulated Количество партий автопилота (зёрна идут подряд).
+     * @param threads   Количество рабочих потоков.
+     * @return Количество успешно выведенных партий.
+     * @throws InterruptedException Если ожидание потоков прервано.
+     */
+    public int exportAll(List<Path> replays, long firstSeed, int simulated, int threads) throws InterruptedException {
+        int total = replays.size() + simulated;
+        AtomicInteger next = new AtomicInteger(); // Номер следующей партии
+        AtomicInteger done = new AtomicInteger(); // Количество выведенных партий
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                FrameRasterizer rasterizer = null; // Изображение потока, переиспользуется между партиями
+                for (int i = next.getAndIncrement(); i < total; i = next.getAndIncrement()) {
+                    try {
+                        if (i < replays.size()) {
+                            rasterizer = exportReplay(replays.get(i), rasterizer);
+                        } else {
+                            rasterizer = exportSimulated(firstSeed + i - replays.size(), rasterizer);
+                        }
+                        done.incrementAndGet();
+                    } catch (IOException | RuntimeException e) {
+                        // Повреждённая запись не должна останавливать поток: остальные партии выводятся дальше
+                        logger.error("Не удалось вывести партию {}", Unbox.box(i), e);
+                    }
+                }
+            }, "frame-export-" + t);
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return done.get();
+    }
+
+    /**
+     * Выводит записанную партию в вызывающем потоке.
+     *
+     * @param replay     Файл записи.
+     * @param rasterizer Рисовальщик для переиспользования или null.
+     * @return Рисовальщик, использованный для партии.
+     * @throws IOException Если запись не удалось прочитать или изображения не удалось записать.
+     */
+    public FrameRasterizer exportReplay(Path replay, FrameRasterizer rasterizer) throws IOException {
+        ReplayReader reader = new ReplayReader(replay);
+        Board board = new Board(reader.getBoardWidth(), reader.getBoardHeight());
+        FrameRasterizer frames = reuse(rasterizer, board);
+        String name = replay.getFileName().toString().replaceFirst("\\.[^.]*$", "");
+        LevelPack pack = reader.getLevel() == Replay.BORDER_LEVEL ? null : levelPack();
+        try (FrameSink sink = new FrameSink(name, frames, reader.getSpeedLevel())) {
+            ReplayPlayer.play(reader, pack, sink::tick);
+        }
+        return frames;
+    }
+
+    /**
+     * Выводит партию автопилота на стандартном поле в вызывающем потоке.
+     *
+     * @param seed       Зерно партии.
+     * @param rasterizer Рисовальщик для переиспользования или null.
+     * @return Рисовальщик, использованный для партии.
+     * @throws IOException Если изображения не удалось записать.
+     */
+    public FrameRasterizer exportSimulated(long seed, FrameRasterizer rasterizer) throws IOException {
+        Board board = new Board(GameEngine.BOARD_WIDTH, GameEngine.BOARD_HEIGHT);
+        GameEngine engine = new GameEngine(board, new Wall(board.getWidth(), board.getHeight()), 3, seed);
+        Autopilot autopilot = new Autopilot(board);
+        FrameRasterizer frames = reuse(rasterizer, board);
+        try (FrameSink sink = new FrameSink("game-" + seed, frames, 5)) {
+            sink.tick(engine);
+            while (!engine.isGameOver() && engine.getTick() < MAX_SIMULATED_TICKS) {
+                engine.setDirection(autopilot.decide(engine, engine.getFoodCell()));
+                engine.step();
+                sink.tick(engine);
+            }
+        }
+        return frames;
+    }
+
+    /**
+     * Рисовальщик для поля: переданный, если размеры совпадают, иначе новый.
+     *
+     * @param rasterizer Рисовальщик для переиспользования или null.
+     * @param board      Игровое поле.
+     * @return Рисовальщик.
+     */
+    private FrameRasterizer reuse(FrameRasterizer rasterizer, Board board) {
+        return rasterizer != null && rasterizer.fits(board, cellSize)
+                ? rasterizer
+                : new FrameRasterizer(board.getWidth(), board.getHeight(), cellSize);
+    }
+
+    /**
+     * Пакет уровней по пути {@link LevelPack#DEFAULT_PATH}, общий для всех потоков.
+     *
+     * @return Открытый пакет уровней.
+     * @throws IOException Если пакет не удалось открыть.
+     */
+    private synchronized LevelPack levelPack() throws IOException {
+        if (levelPack == null) {
+            levelPack = new LevelPack(LevelPack.DEFAULT_PATH);
+        }
+        return levelPack;
+    }
+
+    /**
+     * Вывод кадров одной партии: рисует каждый такт и кодирует каждый {@link #frameEvery}-й кадр.
+     */
+    private final class FrameSink implements AutoCloseable {
+        private final String name; // Имя партии (основа имён файлов)
+        private final FrameRasterizer frames; // Рисовальщик
+        private final int delay; // Задержка кадра анимации в сотых долях секунды
+        private ImageWriter gifWriter; // Кодировщик анимации (в режиме GIF)
+        private ImageOutputStream gifOutput; // Файл анимации (в режиме GIF)
+        private IIOMetadata gifMetadata; // Параметры кадра анимации (в режиме GIF)
+        private IIOMetadataNode gifTree; // Дерево параметров кадра, в котором меняется положение кадра
+        private Path frameDirectory; // Каталог кадров (в режиме PNG)
+        private int frameCount = 0; // Количество выведенных кадров
+
+        FrameSink(String name, FrameRasterizer frames, int speedLevel) throws IOException {
+            this.name = name;
+            this.frames = frames;
+            // Такт игры длится 100 / speedLevel мс; проигрыватели GIF не соблюдают задержки меньше 2/100 с
+            this.delay = Math.max(2, Math.round(10f * frameEvery / Math.max(1, speedLevel)));
+            Files.createDirectories(directory);
+            if (GIF.equals(mode)) {
+                gifWriter = ImageIO.getImageWritersByFormatName("gif").next();
+                gifOutput = ImageIO.createImageOutputStream(directory.resolve(name + ".gif").toFile());
+                gifWriter.setOutput(gifOutput);
+                gifWriter.prepareWriteSequence(null);
+                gifMetadata = gifWriter.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(frames.getImage()), null);
+                gifTree = gifTree(gifMetadata, (IndexColorModel) frames.getImage().getColorModel(), delay);
+            } else if (PNG.equals(mode)) {
+                frameDirectory = Files.createDirectories(directory.resolve(name));
+            }
+        }
+
+        /**
+         * Рисует состояние после такта и кодирует кадр, если он выводится.
+         *
+         * @param engine Игровой движок.
+         */
+        void tick(GameEngine engine) {
+            BufferedImage image = frames.draw(engine);
+            boolean last = engine.isGameOver();
+            if (THUMBNAIL.equals(mode) || (engine.getTick() % frameEvery != 0 && !last)) return;
+            try {
+                if (gifWriter != null) {
+                    // Кадры не стираются, поэтому записывается только изменившаяся часть изображения
+                    Rectangle dirty = frames.getDirty();
+                    if (dirty == null) {
+                        dirty = new Rectangle(0, 0, 1, 1);
+                    }
+                    frames.clearDirty();
+                    IIOMetadataNode descriptor = child(gifTree, "ImageDescriptor");
+                    descriptor.setAttribute("imageLeftPosition", Integer.toString(dirty.x));
+                    descriptor.setAttribute("imageTopPosition", Integer.toString(dirty.y));
+                    descriptor.setAttribute("imageWidth", Integer.toString(dirty.width));
+                    descriptor.setAttribute("imageHeight", Integer.toString(dirty.height));
+                    gifMetadata.setFromTree(gifMetadata.getNativeMetadataFormatName(), gifTree);
+                    BufferedImage part = image.getSubimage(dirty.x, dirty.y, dirty.width, dirty.height);
+                    gifWriter.writeToSequence(new IIOImage(part, null, gifMetadata), null);
+                } else {
+                    ImageIO.write(image, "png", frameDirectory.resolve(String.format("frame-%06d.png", frameCount)).toFile());
+                }
+                frameCount++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Завершает анимацию и сохраняет миниатюру с последним кадром.
+         *
+         * @throws IOException Если изображения не удалось записать.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                if (gifWriter != null) {
+                    gifWriter.endWriteSequence();
+                }
+            } finally {
+                if (gifWriter != null) {
+                    gifWriter.dispose();
+                    gifOutput.close();
+                }
+            }
+            ImageIO.write(frames.getImage(), "png", directory.resolve(name + ".png").toFile());
+        }
+    }
+
+    /**
+     * Дерево параметров кадра анимированного GIF: палитра, задержка и бесконечный повтор.
+     *
+     * @param metadata Параметры кадра по умолчанию.
+     * @param palette  Палитра изображения.
+     * @param delay    Задержка кадра в сотых долях секунды.
+     * @return Дерево параметров.
+     */
+    private static IIOMetadataNode gifTree(IIOMetadata metadata, IndexColorModel palette, int delay) {
+        IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(metadata.getNativeMetadataFormatName());
+
+        // Без явной палитры кадра кодировщик последовательности подставляет стандартную и номера цветов теряют смысл
+        IIOMetadataNode colors = child(root, "LocalColorTable");
+        int size = 2; // Размер таблицы GIF — степень двойки
+        while (size < palette.getMapSize()) {
+            size <<= 1;
+        }
+        colors.setAttribute("sizeOfLocalColorTable", Integer.toString(size));
+        colors.setAttribute("sortFlag", "FALSE");
+        while (colors.getFirstChild() != null) {
+            colors.removeChild(colors.getFirstChild());
+        }
+        for (int i = 0; i < size; i++) {
+            int rgb = i < palette.getMapSize() ? palette.getRGB(i) : 0;
+            IIOMetadataNode entry = new IIOMetadataNode("ColorTableEntry");
+            entry.setAttribute("index", Integer.toString(i));
+            entry.setAttribute("red", Integer.toString((rgb >> 16) & 0xFF));
+            entry.setAttribute("green", Integer.toString((rgb >> 8) & 0xFF));
+            entry.setAttribute("blue", Integer.toString(rgb & 0xFF));
+            colors.appendChild(entry);
+        }
+
+        IIOMetadataNode control = child(root, "GraphicControlExtension");
+        control.setAttribute("disposalMethod", "none");
+        control.setAttribute("userInputFlag", "FALSE");
+        control.setAttribute("transparentColorFlag", "FALSE");
+        control.setAttribute("delayTime", Integer.toString(delay));
+        control.setAttribute("transparentColorIndex", "0");
+
+        IIOMetadataNode loop = new IIOMetadataNode("ApplicationExtension");
+        loop.setAttribute("applicationID", "NETSCAPE");
+        loop.setAttribute("authenticationCode", "2.0");
+        loop.setUserObject(new byte[]{1, 0, 0}); // Повторять без конца
+        child(root, "ApplicationExtensions").appendChild(loop);
+        return root;
+    }
+
+    /**
+     * Дочерний узел метаданных с заданным именем; создаётся, если его нет.
+     *
+     * @param parent Родительский узел.
+     * @param name   Имя узла.
+     * @return Узел.
+     */
+    private static IIOMetadataNode child(IIOMetadataNode parent, String name) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeName().equals(name)) {
+                return (IIOMetadataNode) node;
+            }
+        }
+        IIOMetadataNode node = new IIOMetadataNode(name);
+        parent.appendChild(node);
+        return node;
+    }
+
+    /**
+     * Точка входа для пакетного вывода.
+     *
+     * @param args Каталог, режим ({@code thumb}, {@code gif}, {@code png}), количество партий автопилота
+     *             и файлы записей. Размер клетки и шаг кадров задаются свойствами {@code snake.cellSize}
+     *             и {@code snake.frameEvery}.
+     * @throws InterruptedException Если ожидание потоков прервано.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 3) {
+            System.err.println("Использование: FrameExporter <каталог> <thumb|gif|png> <партий автопилота> [файлы записей...]");
+            return;
+        }
+        System.setProperty("java.awt.headless", "true");
+        List<Path> replays = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            replays.add(Path.of(args[i]));
+        }
+        int cellSize = Integer.getInteger("snake.cellSize", GameRenderer.CELL_SIZE);
+        int frameEvery = Integer.getInteger("snake.frameEvery", 1);
+        int threads = Runtime.getRuntime().availableProcessors();
+        FrameExporter exporter = new FrameExporter(Path.of(args[0]), args[1], cellSize, frameEvery);
+        long start = System.nanoTime();
+        int done = exporter.exportAll(replays, 1, Integer.parseInt(args[2]), threads);
+        logger.info("Выведено партий: {} за {} мс на {} потоках",
+                Unbox.box(done), Unbox.box((System.nanoTime() - start) / 1_000_000), Unbox.box(threads));
+    }
+}
@@ -0,0 +1,195 @@
+package org.example.ssnake;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.util.Arrays;
+
+/**
+ * Рисование кадров игры в изображение в памяти без окна и без JavaFX.
+ * <p>
+ * Кадр выглядит так же, как в {@link GameRenderer}: чёрный фон, красные стены, зелёная змейка и оранжевая еда,
+ * клетка — квадрат со стороной {@code cellSize} пикселей. Изображение палитровое (байт на пиксель, четыре цвета),
+ * поэтому клетка закрашивается заполнением строк массива, а кодировщики PNG и GIF записывают его без
+ * преобразования цветов. Если с прошлого кадра прошёл один такт той же партии, перерисовываются только
+ * голова, хвост и еда, как в {@link PixelRenderer}.
+ * </p>
+ * <p>
+ * Рисовальщик не потокобезопасен: каждый рабочий поток экспорта держит свой и переиспользует его между партиями.
+ * </p>
+ */
+public class FrameRasterizer {
+
+    private static final byte BACKGROUND = 0; // Номер цвета фона (чёрный)
+    private static final byte WALL = 1; // Номер цвета стен (красный)
+    private static final byte SNAKE = 2; // Номер цвета змейки (зелёный)
+    private static final byte FOOD = 3; // Номер цвета еды (оранжевый)
+
+    /** Палитра кадров: фон, стены, змейка, еда (цвета {@link GameRenderer}). */
+    private static final IndexColorModel PALETTE = new IndexColorModel(8, 4,
+            new byte[]{0, (byte) 0xFF, 0, (byte) 0xFF},
+            new byte[]{0, 0, (byte) 0x80, (byte) 0xA5},
+            new byte[]{0, 0, 0, 0});
+
+    private final int width; // Ширина поля в клетках
+    private final int height; // Высота поля в клетках
+    private final int cellSize; // Сторона клетки в пикселях
+    private final int stride; // Ширина изображения в пикселях
+    private final BufferedImage image; // Изображение кадра
+    private final byte[] pixels; // Пиксели изображения (номера цветов палитры)
+    private GameEngine drawnEngine; // Партия, которая сейчас изображена
+    private long drawnTick = -1; // Такт, который сейчас изображён
+    private int drawnFoodCell = GameEngine.NO_FOOD; // Клетка еды, которая сейчас изображена
+    private int minX; // Левая граница клеток, изменившихся после clearDirty()
+    private int minY; // Верхняя граница изменившихся клеток
+    private int maxX; // Правая граница изменившихся клеток (-1, если изменений нет)
+    private int maxY; // Нижняя граница изменившихся клеток
+
+    /**
+     * Конструктор рисовальщика для полей заданного размера.
+     *
+     * @param width    Ширина поля в клетках.
+     * @param height   Высота поля в клетках.
+     * @param cellSize Сторона клетки в пикселях.
+     */
+    public FrameRasterizer(int width, int height, int cellSize) {
+        if (width <= 0 || height <= 0 || cellSize <= 0 || (long) width * height * cellSize * cellSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Неверный размер кадра: " + width + "x" + height + ", клетка " + cellSize);
+        }
+        this.width = width;
+        this.height = height;
+        this.cellSize = cellSize;
+        this.stride = width * cellSize;
+        this.image = new BufferedImage(stride, height * cellSize, BufferedImage.TYPE_BYTE_INDEXED, PALETTE);
+        this.pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        clearDirty();
+    }
+
+    /**
+     * Проверка, подходит ли рисовальщик для поля, чтобы переиспользовать его изображение.
+     *
+     * @param board    Игровое поле.
+     * @param cellSize Сторона клетки в пикселях.
+     * @return true, если размеры совпадают.
+     */
+    public boolean fits(Board board, int cellSize) {
+        return board.getWidth() == width && board.getHeight() == height && this.cellSize == cellSize;
+    }
+
+    /**
+     * Рисует текущее состояние партии.
+     *
+     * @param engine Игровой движок с полем того же размера.
+     * @return Изображение кадра (одно и то же при каждом вызове).
+     */
+    public BufferedImage draw(GameEngine engine) {
+        long tick = engine.getTick();
+        if (engine == drawnEngine && tick == drawnTick + 1) {
+            drawDelta(engine);
+        } else if (engine != drawnEngine || tick != drawnTick) {
+            redraw(engine);
+        }
+        drawnEngine = engine;
+        drawnTick = tick;
+        return image;
+    }
+
+    /**
+     * Получение изображения кадра.
+     *
+     * @return Изображение, в которое рисует {@link #draw(GameEngine)}.
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Получение прямоугольника пикселей, изменившихся после последнего {@link #clearDirty()}.
+     * Позволяет кодировать в анимацию только изменившуюся часть кадра.
+     *
+     * @return Прямоугольник в пикселях или null, если изменений нет.
+     */
+    public Rectangle getDirty() {
+        if (maxX < 0) return null;
+        return new Rectangle(minX * cellSize, minY * cellSize, (maxX - minX + 1) * cellSize, (maxY - minY + 1) * cellSize);
+    }
+
+    /**
+     * Сбрасывает прямоугольник изменившихся пикселей.
+     */
+    public void clearDirty() {
+        minX = Integer.MAX_VALUE;
+        minY = Integer.MAX_VALUE;
+        maxX = -1;
+        maxY = -1;
+    }
+
+    /**
+     * Полная перерисовка: фон, стены, змейка и еда.
+     *
+     * @param engine Игровой движок.
+     */
+    private void redraw(GameEngine engine) {
+        Arrays.fill(pixels, BACKGROUND);
+        Wall wall = engine.getWall();
+        for (int cell = wall.nextWall(0); cell >= 0; cell = wall.nextWall(cell + 1)) {
+            fill(cell, WALL);
+        }
+        Snake snake = engine.getSnake();
+        for (int cell = 0; cell < width * height; cell++) {
+            if (snake.isOccupied(cell)) {
+                fill(cell, SNAKE);
+            }
+        }
+        int food = engine.getFoodCell();
+        if (food >= 0) {
+            fill(food, FOOD);
+        }
+        drawnFoodCell = food;
+        minX = 0;
+        minY = 0;
+        maxX = width - 1;
+        maxY = height - 1;
+    }
+
+    /**
+     * Перерисовка только изменившихся за последний такт клеток.
+     *
+     * @param engine Игровой движок.
+     */
+    private void drawDelta(GameEngine engine) {
+        if (engine.isGameOver()) return; // На такте гибели змейка не сдвинулась
+        Snake snake = engine.getSnake();
+        int removed = snake.getLastRemovedCell();
+        if (removed >= 0) {
+            fill(removed, BACKGROUND);
+        }
+        fill(snake.getLastAddedCell(), SNAKE);
+        // Съеденная еда закрашена головой, поэтому рисуется только новая
+        int food = engine.getFoodCell();
+        if (food != drawnFoodCell && food >= 0) {
+            fill(food, FOOD);
+        }
+        drawnFoodCell = food;
+    }
+
+    /**
+     * Закрашивает квадрат клетки и расширяет прямоугольник изменившихся клеток.
+     *
+     * @param cell  Номер клетки.
+     * @param color Номер цвета палитры.
+     */
+    private void fill(int cell, byte color) {
+        int x = cell % width;
+        int y = cell / width;
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+        int offset = y * cellSize * stride + x * cellSize;
+        for (int row = 0; row < cellSize; row++, offset += stride) {
+            Arrays.fill(pixels, offset, offset + cellSize, color);
+        }
+    }
+}
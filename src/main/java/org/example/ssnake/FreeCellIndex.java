@@ -0,0 +1,139 @@
+package org.example.ssnake;
+
+import java.util.Arrays;
+
+/**
+ * Индекс свободных клеток поля для выбора случайной клетки за постоянное время.
+ * <p>
+ * Свободные клетки хранятся в плотном массиве, а для каждой клетки поля запоминается её позиция
+ * в этом массиве. Удаление выполняется перестановкой последнего элемента на место удаляемого,
+ * поэтому добавление, удаление и выбор случайной свободной клетки не зависят от того,
+ * насколько заполнено поле. Это исключает повторные попытки "угадать" свободную клетку,
+ * которые становятся очень медленными, когда змейка занимает почти всё поле.
+ * </p>
+ * <p>
+ * Порядок плотного массива зависит от истории добавлений и удалений. Чтобы перемотка возвращала
+ * и его, удаление можно отменить методом {@link #restore(int, int)}, зная позицию удалённой клетки
+ * ({@link #positionOf(int)}), а добавление — удалением той же клетки: она последняя в массиве.
+ * </p>
+ */
+public class FreeCellIndex {
+
+    private final int[] cells; // Плотный массив свободных клеток
+    private final int[] positions; // Позиция клетки в плотном массиве или -1, если клетка занята
+    private int size = 0; // Количество свободных клеток
+
+    /**
+     * Конструктор пустого индекса (все клетки считаются занятыми).
+     *
+     * @param cellCount Количество клеток поля.
+     */
+    public FreeCellIndex(int cellCount) {
+        cells = new int[cellCount];
+        positions = new int[cellCount];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * Конструктор индекса по битовой карте свободных клеток. Клетки добавляются по возрастанию номеров.
+     *
+     * @param cellCount Количество клеток поля.
+     * @param free      Битовая карта свободных клеток (одно слово {@code long} на 64 клетки).
+     */
+    FreeCellIndex(int cellCount, long[] free) {
+        this(cellCount);
+        if (free.length != (cellCount + 63) >>> 6) {
+            throw new IllegalArgumentException("Размер битовой карты не совпадает с количеством клеток: " + cellCount);
+        }
+        for (int word = 0; word < free.length; word++) {
+            for (long bits = free[word]; bits != 0; bits &= bits - 1) {
+                add((word << 6) + Long.numberOfTrailingZeros(bits));
+            }
+        }
+    }
+
+    /**
+     * Отмечает клетку как свободную. Повторное добавление игнорируется.
+     *
+     * @param cell Номер клетки.
+     */
+    public void add(int cell) {
+        if (positions[cell] >= 0) return;
+        positions[cell] = size;
+        cells[size++] = cell;
+    }
+
+    /**
+     * Отмечает клетку как занятую. Удаление отсутствующей клетки игнорируется.
+     *
+     * @param cell Номер клетки.
+     */
+    public void remove(int cell) {
+        int position = positions[cell];
+        if (position < 0) return;
+        int last = cells[--size];
+        cells[position] = last;
+        positions[last] = position;
+        positions[cell] = -1;
+    }
+
+    /**
+     * Отмена удаления: возвращает клетку на прежнюю позицию, а клетку, занявшую её при удалении, — в конец.
+     * После отмены в обратном порядке всех изменений плотный массив совпадает с прежним.
+     *
+     * @param cell     Удалённая клетка.
+     * @param position Позиция клетки до удаления ({@link #positionOf(int)}).
+     */
+    void restore(int cell, int position) {
+        if (positions[cell] >= 0 || position > size) {
+            throw new IllegalStateException("Удаление клетки " + cell + " с позиции " + position + " нельзя отменить");
+        }
+        if (position < size) {
+            int moved = cells[position];
+            cells[size] = moved;
+            positions[moved] = size;
+        }
+        cells[position] = cell;
+        positions[cell] = position;
+        size++;
+    }
+
+    /**
+     * Проверка, свободна ли клетка.
+     *
+     * @param cell Номер клетки.
+     * @return true, если клетка в индексе.
+     */
+    public boolean contains(int cell) {
+        return positions[cell] >= 0;
+    }
+
+    /**
+     * Получение позиции клетки в плотном массиве.
+     *
+     * @param cell Номер клетки.
+     * @return Позиция или -1, если клетка занята.
+     */
+    int positionOf(int cell) {
+        return positions[cell];
+    }
+
+    /**
+     * Получение количества свободных клеток.
+     *
+     * @return Количество свободных клеток.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Получение свободной клетки по порядковому номеру.
+     *
+     * @param index Номер от 0 до {@link #size()} - 1.
+     * @return Номер клетки.
+     */
+    public int get(int index) {
+        return cells[index];
+    }
+}
@@ -0,0 +1,459 @@
+package org.example.ssnake;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Класс, представляющий игровой движок "Змейки" без привязки к графике.
+ * <p>
+ * Движок хранит состояние игрового поля (змейку, стены, счётчик тактов и флаг завершения игры)
+ * и продвигает симуляцию на один такт методом {@link #step()}. Движок не использует типы JavaFX,
+ * поэтому его можно запускать без дисплея, например для замеров производительности.
+ * </p>
+ * <p>
+ * Когда голова входит в клетку с едой, змейка вырастает на один сегмент, а новая еда появляется
+ * в случайной свободной клетке. Свободные клетки хранятся в {@link FreeCellIndex}, поэтому выбор
+ * занимает постоянное время даже на почти заполненном поле. На полях больше {@link #FREE_INDEX_LIMIT}
+ * клеток индекс не строится: змейка занимает ничтожную долю такого поля, и случайная клетка
+ * почти всегда свободна с первой попытки. Генератор случайных чисел детерминирован и зависит только от зерна.
+ * </p>
+ * <p>
+ * Выбор еды зависит и от порядка клеток в индексе, поэтому снимок состояния хранит изменения индекса
+ * за последний такт, и {@link RewindBuffer} при перемотке отменяет их такт за тактом: продолжение
+ * перемотанной партии выбирает ту же еду, что и исходная.
+ * </p>
+ */
+public class GameEngine {
+
+    /** Ширина игрового поля в клетках. */
+    public static final int BOARD_WIDTH = 30;
+
+    /** Высота игрового поля в клетках. */
+    public static final int BOARD_HEIGHT = 20;
+
+    /** Минимальная ширина и высота поля в клетках. */
+    public static final int MIN_BOARD_SIZE = 12;
+
+    /** Максимальное количество клеток, для которого строится индекс свободных клеток (32 МБ). */
+    public static final int FREE_INDEX_LIMIT = 1 << 22;
+
+    /** Номер клетки, означающий отсутствие еды (всё поле занято). */
+    public static final int NO_FOOD = -1;
+
+    /** Версия двоичного формата состояния движка. */
+    public static final byte STATE_VERSION = 2;
+
+    private static final int STATE_TICK_OFFSET = 9; // Смещение номера такта в состоянии
+    private static final int STATE_UNDO_OFFSET = 37; // Смещение изменений индекса свободных клеток в состоянии
+
+    private final Board board; // Игровое поле
+    private final int initialLength; // Начальная длина змейки
+    private long seed; // Зерно генератора случайных чисел партии
+    private Snake snake; // Змейка
+    private Wall wall; // Стены текущего уровня
+    private long tick = 0; // Количество выполненных тактов
+    private FreeCellIndex freeCells; // Индекс свободных клеток или null для больших полей
+    private long random; // Состояние генератора SplitMix64
+    private int foodCell = NO_FOOD; // Клетка с едой
+    private int takenCell = -1; // Клетка, удалённая из индекса на последнем такте (новая голова), или -1
+    private int takenPosition = -1; // Позиция этой клетки в индексе до удаления
+    private int returnedCell = -1; // Клетка, возвращённая в индекс на последнем такте (старый хвост), или -1
+
+    /**
+     * Конструктор движка.
+     * Создаёт змейку с заданной начальной длиной и стены по периметру поля.
+     *
+     * @param initialLength Начальная длина змейки.
+     */
+    public GameEngine(int initialLength) {
+        this(initialLength, System.nanoTime());
+    }
+
+    /**
+     * Конструктор движка с заданным зерном генератора случайных чисел.
+     * Две партии с одинаковыми зерном, длиной и вводом проходят одинаково.
+     *
+     * @param initialLength Начальная длина змейки.
+     * @param seed          Зерно генератора случайных чисел.
+     */
+    public GameEngine(int initialLength, long seed) {
+        this(new Board(BOARD_WIDTH, BOARD_HEIGHT), initialLength, seed);
+    }
+
+    /**
+     * Конструктор движка для поля произвольного размера со стенами по периметру.
+     * Змейка появляется в клетке (10, 10), поэтому поле должно быть не меньше
+     * {@link #MIN_BOARD_SIZE} клеток по каждой стороне.
+     *
+     * @param board         Игровое поле.
+     * @param initialLength Начальная длина змейки.
+     * @param seed          Зерно генератора случайных чисел.
+     */
+    public GameEngine(Board board, int initialLength, long seed) {
+        this(board, new Wall(board.getWidth(), board.getHeight()), initialLength, seed);
+    }
+
+    /**
+     * Конструктор движка для поля с заданными стенами (уровнем).
+     *
+     * @param board         Игровое поле.
+     * @param wall          Стены уровня того же размера, что и поле.
+     * @param initialLength Начальная длина змейки.
+     * @param seed          Зерно генератора случайных чисел.
+     */
+    public GameEngine(Board board, Wall wall, int initialLength, long seed) {
+        if (board.getWidth() < MIN_BOARD_SIZE || board.getHeight() < MIN_BOARD_SIZE) {
+            throw new IllegalArgumentException("Поле должно быть не меньше " + MIN_BOARD_SIZE + "x" + MIN_BOARD_SIZE);
+        }
+        this.board = board;
+        this.wall = wall;
+        this.initialLength = initialLength;
+        this.seed = seed;
+        reset();
+    }
+
+    /**
+     * Начинает новую партию с другим зерном на том же поле и уровне.
+     *
+     * @param seed Зерно генератора случайных чисел новой партии.
+     */
+    public void reset(long seed) {
+        this.seed = seed;
+        reset();
+    }
+
+    /**
+     * Возвращает движок в начальное состояние.
+     */
+    public void reset() {
+        snake = new Snake(board, wall, initialLength);
+        tick = 0;
+        random = seed;
+        takenCell = -1;
+        takenPosition = -1;
+        returnedCell = -1;
+        freeCells = board.getCellCount() <= FREE_INDEX_LIMIT ? buildFreeCells() : null;
+        spawnFood();
+    }
+
+    /**
+     * Строит индекс свободных клеток: все клетки поля, кроме стен и занятых змейкой.
+     *
+     * @return Индекс свободных клеток.
+     */
+    private FreeCellIndex buildFreeCells() {
+        long[] free = new long[(board.getCellCount() + 63) >>> 6];
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            if (!isBlocked(cell)) {
+                free[cell >>> 6] |= 1L << cell;
+            }
+        }
+        return new FreeCellIndex(board.getCellCount(), free);
+    }
+
+    /**
+     * Выполняет один такт симуляции: перемещает змейку, проверяет столкновения и поедание еды.
+     * Если игра уже завершена, состояние не изменяется.
+     *
+     * @return true, если такт был выполнен, false, если игра уже завершена.
+     */
+    public boolean step() {
+        if (snake.isGameOver()) return false;
+        boolean eat = foodCell != NO_FOOD && snake.nextHeadCell() == foodCell;
+        snake.move(eat);
+        takenCell = -1;
+        takenPosition = -1;
+        returnedCell = -1;
+        if (freeCells != null && !snake.isGameOver()) {
+            // Индекс следует за головой и хвостом; клетки стен в него не возвращаются.
+            // Изменения запоминаются, чтобы перемотка могла их отменить
+            int added = snake.getLastAddedCell();
+            int position = freeCells.positionOf(added);
+            if (position >= 0) {
+                freeCells.remove(added);
+                takenCell = added;
+                takenPosition = position;
+            }
+            int removed = snake.getLastRemovedCell();
+            if (removed >= 0 && !wall.isWall(removed) && !freeCells.contains(removed)) {
+                freeCells.add(removed);
+                returnedCell = removed;
+            }
+        }
+        if (eat && !snake.isGameOver()) {
+            spawnFood();
+        }
+        tick++;
+        return true;
+    }
+
+    /**
+     * Размещает еду в случайной свободной клетке.
+     * Если свободных клеток не осталось, еды на поле нет.
+     */
+    private void spawnFood() {
+        if (freeCells != null) {
+            int size = freeCells.size();
+            foodCell = size > 0 ? freeCells.get(nextInt(size)) : NO_FOOD;
+            return;
+        }
+        // Большое поле: змейка занимает ничтожную долю клеток, поэтому повторы почти не случаются
+        int cell;
+        do {
+            cell = nextInt(board.getCellCount());
+        } while (isBlocked(cell));
+        foodCell = cell;
+    }
+
+    /**
+     * Следующее случайное число от 0 до bound - 1 (генератор {@link SplitMix64}).
+     *
+     * @param bound Верхняя граница (не включается).
+     * @return Случайное число.
+     */
+    private int nextInt(int bound) {
+        random = SplitMix64.next(random);
+        return SplitMix64.nextInt(random, bound);
+    }
+
+    /**
+     * Наибольший размер состояния движка в байтах для {@link #saveState(ByteBuffer, boolean)}.
+     *
+     * @param includeWalls Учитывать ли карту стен.
+     * @return Размер в байтах.
+     */
+    public int getStateSize(boolean includeWalls) {
+        int size = 1 + 4 + 4 + 8 + 8 + 8 + 4 + 12 + snake.stateSize() + 1;
+        return includeWalls ? size + Wall.wordCount(board.getWidth(), board.getHeight()) * Long.BYTES : size;
+    }
+
+    /**
+     * Сохраняет полное состояние партии в компактном двоичном виде: номер такта, зерно и состояние
+     * генератора случайных чисел, клетку еды, изменения индекса свободных клеток за последний такт,
+     * тело, направление змейки и флаг завершения игры. Метод не создаёт объектов.
+     * <p>
+     * Стены в пределах уровня не меняются, поэтому их карту можно не сохранять на каждом такте:
+     * без неё состояние восстанавливается на текущих стенах движка.
+     * </p>
+     *
+     * @param buffer       Буфер с достаточным свободным местом ({@link #getStateSize(boolean)}).
+     * @param includeWalls Сохранять ли карту стен.
+     */
+    public void saveState(ByteBuffer buffer, boolean includeWalls) {
+        buffer.put(STATE_VERSION);
+        buffer.putInt(board.getWidth()).putInt(board.getHeight());
+        buffer.putLong(tick).putLong(seed).putLong(random).putInt(foodCell);
+        buffer.putInt(takenCell).putInt(takenPosition).putInt(returnedCell);
+        buffer.put((byte) (includeWalls ? 1 : 0));
+        if (includeWalls) {
+            for (long word : wall.bits()) {
+                buffer.putLong(word);
+            }
+        }
+        snake.save(buffer);
+    }
+
+    /**
+     * Восстанавливает состояние партии, сохранённое методом {@link #saveState(ByteBuffer, boolean)}.
+     * Индекс свободных клеток обновляется только в клетках старого и нового тела змейки
+     * (или перестраивается целиком, если в состоянии есть карта стен). Множество свободных клеток
+     * восстанавливается точно, а их порядок в индексе — нет, поэтому дальнейшая еда может отличаться
+     * от исходной партии; точную перемотку выполняет {@link RewindBuffer}.
+     *
+     * @param buffer Буфер, установленный на начало состояния.
+     */
+    public void restoreState(ByteBuffer buffer) {
+        restoreState(buffer, false);
+    }
+
+    /**
+     * Восстанавливает состояние партии.
+     *
+     * @param buffer        Буфер, установленный на начало состояния.
+     * @param freeCellsUndone true, если индекс свободных клеток уже возвращён к этому состоянию
+     *                        методом {@link #undoFreeCells(ByteBuffer)} и его не нужно обновлять.
+     */
+    void restoreState(ByteBuffer buffer, boolean freeCellsUndone) {
+        byte version = buffer.get();
+        if (version != STATE_VERSION) {
+            throw new IllegalArgumentException("Неподдерживаемая версия состояния: " + version);
+        }
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+        if (width != board.getWidth() || height != board.getHeight()) {
+            throw new IllegalArgumentException("Состояние поля " + width + "x" + height
+                    + " не подходит для поля " + board.getWidth() + "x" + board.getHeight());
+        }
+        long newTick = buffer.getLong();
+        long newSeed = buffer.getLong();
+        long newRandom = buffer.getLong();
+        int newFood = buffer.getInt();
+        if (newFood < NO_FOOD || newFood >= board.getCellCount()) {
+            throw new IllegalArgumentException("Неверная клетка еды в состоянии: " + newFood);
+        }
+        int newTaken = buffer.getInt();
+        int newTakenPosition = buffer.getInt();
+        int newReturned = buffer.getInt();
+
+        if (buffer.get() != 0) {
+            // Другая карта стен: змейка создаётся заново на новых стенах, индекс перестраивается целиком
+            long[] bits = new long[Wall.wordCount(width, height)];
+            for (int i = 0; i < bits.length; i++) {
+                bits[i] = buffer.getLong();
+            }
+            wall = new Wall(width, height, bits);
+            snake = new Snake(board, wall, initialLength);
+            snake.restore(buffer);
+            freeCells = freeCells != null ? buildFreeCells() : null;
+        } else if (freeCellsUndone) {
+            snake.restore(buffer);
+        } else {
+            // Клетки старого тела снова свободны, клетки нового тела заняты
+            if (freeCells != null) {
+                for (int i = 0; i < snake.getLength(); i++) {
+                    int cell = snake.cellAt(i);
+                    if (cell >= 0 && !wall.isWall(cell)) {
+                        freeCells.add(cell);
+                    }
+                }
+            }
+            snake.restore(buffer);
+            if (freeCells != null) {
+                for (int i = 0; i < snake.getLength(); i++) {
+                    int cell = snake.cellAt(i);
+                    if (cell >= 0) {
+                        freeCells.remove(cell);
+                    }
+                }
+            }
+        }
+        tick = newTick;
+        seed = newSeed;
+        random = newRandom;
+        foodCell = newFood;
+        takenCell = newTaken;
+        takenPosition = newTakenPosition;
+        returnedCell = newReturned;
+    }
+
+    /**
+     * Проверка, что движок находится в состоянии из снимка (совпадает номер такта).
+     *
+     * @param state Снимок, записанный с начала буфера.
+     * @return true, если номер такта снимка равен текущему.
+     */
+    boolean isAt(ByteBuffer state) {
+        return state.getLong(STATE_TICK_OFFSET) == tick;
+    }
+
+    /**
+     * Отменяет изменения индекса свободных клеток, сделанные на такте снимка. Отмена снимков от текущего
+     * к более ранним в обратном порядке возвращает индекс к прежнему состоянию вместе с порядком клеток.
+     * Змейка и остальное состояние не меняются.
+     *
+     * @param state Снимок такта, записанный с начала буфера.
+     */
+    void undoFreeCells(ByteBuffer state) {
+        if (freeCells == null) return;
+        int taken = state.getInt(STATE_UNDO_OFFSET);
+        int position = state.getInt(STATE_UNDO_OFFSET + 4);
+        int returned = state.getInt(STATE_UNDO_OFFSET + 8);
+        if (returned >= 0) {
+            freeCells.remove(returned); // Возвращённая клетка последняя в индексе
+        }
+        if (taken >= 0) {
+            freeCells.restore(taken, position);
+        }
+    }
+
+    /**
+     * Изменяет направление движения змейки.
+     *
+     * @param direction Новое направление.
+     * @return true, если направление действительно изменилось.
+     */
+    public boolean setDirection(Direction direction) {
+        return snake.setDirection(direction);
+    }
+
+    /**
+     * Проверка, приведёт ли вход головы в клетку к завершению игры.
+     *
+     * @param cell Номер клетки.
+     * @return true, если клетка занята змейкой или стеной.
+     */
+    public boolean isBlocked(int cell) {
+        return snake.isOccupied(cell) || wall.isWall(cell);
+    }
+
+    /**
+     * Проверка, завершена ли игра.
+     *
+     * @return true, если игра завершена, иначе false.
+     */
+    public boolean isGameOver() {
+        return snake.isGameOver();
+    }
+
+    /**
+     * Получение количества выполненных тактов.
+     *
+     * @return Номер текущего такта.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Получение клетки с едой.
+     *
+     * @return Номер клетки или {@link #NO_FOOD}, если еды нет.
+     */
+    public int getFoodCell() {
+        return foodCell;
+    }
+
+    /**
+     * Получение начальной длины змейки.
+     *
+     * @return Начальная длина змейки.
+     */
+    public int getInitialLength() {
+        return initialLength;
+    }
+
+    /**
+     * Получение зерна генератора случайных чисел партии.
+     *
+     * @return Зерно.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Получение игрового поля.
+     *
+     * @return Игровое поле.
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * Получение змейки.
+     *
+     * @return Текущая змейка.
+     */
+    public Snake getSnake() {
+        return snake;
+    }
+
+    /**
+     * Получение стен игрового поля.
+     *
+     * @return Стены игрового поля.
+     */
+    public Wall getWall() {
+        return wall;
+    }
+}
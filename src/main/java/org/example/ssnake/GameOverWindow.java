@@ -3,62 +3,84 @@ package org.example.ssnake;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.Label;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
- * Класс, отображающий окно завершения игры с кнопкой для выхода из приложения.
- * После завершения игры окно будет показывать сообщение о завершении и кнопки для выхода.
+ * Класс, отображающий окно завершения игры с кнопками новой партии и выхода из приложения.
+ * <p>
+ * Окно, сцена и кнопки создаются заранее, вместе со сценой игры, а при гибели змейки окно только
+ * показывается. Поэтому завершение игры не вызывает задержки кадра, а новая партия начинается
+ * в том же процессе без перезапуска приложения.
+ * </p>
  */
 public class GameOverWindow {
 
     // Логгер для использования в классе
     private static final Logger logger = LogManager.getLogger(GameOverWindow.class);
 
-    private Stage gameStage;
+    private final Stage gameOverStage; // Заранее построенное окно
+    private final Label scoresLabel = new Label(); // Таблица рекордов
+    private boolean ownerSet = false; // Задан ли владелец окна
 
     /**
-     * Конструктор, инициализирующий объект окна завершения игры.
+     * Конструктор, заранее строящий окно завершения игры. Вызывается из потока JavaFX.
      *
-     * @param gameStage Ссылка на основное окно игры, которое будет минимизировано при отображении окна завершения игры
+     * @param onRestart Действие для кнопки новой партии.
      */
-    public GameOverWindow(Stage gameStage) {
-        this.gameStage = gameStage;
+    public GameOverWindow(Runnable onRestart) {
+        // Создаем новое окно для завершения игры
+        gameOverStage = new Stage();
+        gameOverStage.setTitle("Конец игры");
+
+        // Кнопка новой партии без перезапуска приложения
+        Button restartButton = new Button("Играть снова");
+        restartButton.setOnAction(e -> {
+            logger.info("Кнопка новой партии нажата.");
+            onRestart.run();
+        });
+
+        // Создаем кнопку выхода
+        Button exitButton = new Button("Выход");
+        exitButton.setOnAction(e -> {
+            // Логируем информацию о нажатии кнопки
+            logger.info("Кнопка выхода нажата. Закрытие приложения.");
+            System.exit(0);
+        });
+
+        // Создаем HBox для размещения кнопок
+        HBox buttons = new HBox(20); // Отступ между кнопками
+        buttons.setAlignment(Pos.CENTER);
+        buttons.getChildren().addAll(restartButton, exitButton);
+
+        // Таблица рекордов над кнопками
+        VBox layout = new VBox(15, scoresLabel, buttons);
+        layout.setAlignment(Pos.CENTER);
+
+        // Создаем сцену и сразу применяем стили, чтобы первый показ не тратил на это время
+        Scene gameOverScene = new Scene(layout, 300, 300);
+        layout.applyCss();
+        layout.layout();
+        gameOverStage.setScene(gameOverScene);
     }
 
     /**
-     * Показывает окно завершения игры с кнопкой для выхода.
-     * При нажатии на кнопку приложение завершится.
-     * В процессе отображения окна, основное окно игры будет минимизировано.
+     * Показывает окно завершения игры поверх окна игры.
+     *
+     * @param gameStage Окно игры, которому принадлежит окно завершения.
      */
-    public void showGameOverWindow() {
+    public void showGameOverWindow(Stage gameStage) {
         try {
-            // Создаем новое окно для завершения игры
-            Stage gameOverStage = new Stage();
-            gameOverStage.setTitle("Конец игры");
-
-            // Создаем кнопку выхода
-            Button exitButton = new Button("Выход");
-            exitButton.setOnAction(e -> {
-                // Логируем информацию о нажатии кнопки
-                logger.info("Кнопка выхода нажата. Закрытие приложения.");
-                System.exit(0);
-            });
-
-            // Создаем HBox для размещения кнопки
-            HBox layout = new HBox(20); // Отступ между кнопками
-            layout.setAlignment(Pos.CENTER);
-            layout.getChildren().addAll(exitButton);
-
-            // Создаем сцену и показываем её
-            Scene gameOverScene = new Scene(layout, 300, 200);
-            gameOverStage.setScene(gameOverScene);
+            if (!ownerSet && gameStage != null) {
+                gameOverStage.initOwner(gameStage);
+                ownerSet = true;
+            }
             gameOverStage.show();
-
-            // Минимизируем основное окно игры
-            gameStage.setIconified(true);
+            gameOverStage.toFront();
 
             // Логируем факт отображения окна
             logger.info("Окно завершения игры отображено.");
@@ -68,4 +90,20 @@ public class GameOverWindow {
             logger.error("Произошла ошибка при отображении окна завершения игры", e);
         }
     }
+
+    /**
+     * Задаёт текст таблицы рекордов, показываемой над кнопками.
+     *
+     * @param text Таблица рекордов или пустая строка.
+     */
+    public void setScores(String text) {
+        scoresLabel.setText(text);
+    }
+
+    /**
+     * Скрывает окно завершения игры перед новой партией.
+     */
+    public void hide() {
+        gameOverStage.hide();
+    }
 }
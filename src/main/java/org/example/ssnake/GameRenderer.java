@@ -0,0 +1,273 @@
+package org.example.ssnake;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/**
+ * Класс, отвечающий за отрисовку снимков состояния игры ({@link GameSnapshot}) на холсте.
+ * <p>
+ * Отрисовка разделена на два слоя. Нижний слой (фон и стены) статичен и рисуется один раз.
+ * Верхний слой прозрачный и содержит змейку и еду: на каждом такте перерисовываются лишь
+ * клетка новой головы, клетка освободившегося хвоста и, если еда съедена, клетка новой еды, поэтому количество команд рисования
+ * за кадр не зависит ни от размера поля, ни от длины змейки.
+ * </p>
+ * <p>
+ * Если поле больше окна ({@link #VIEWPORT_WIDTH}x{@link #VIEWPORT_HEIGHT} клеток), рендерер переходит
+ * в режим прокрутки: камера следует за головой змейки, и на каждом такте перерисовываются только
+ * видимые клетки по снимку окна ({@link GameSnapshot#viewport(GameEngine, int, int)}). Тогда память
+ * и время кадра зависят от размера окна, а не от размера поля или длины змейки.
+ * </p>
+ */
+public class GameRenderer implements Renderer {
+
+    /** Размер клетки в пикселях. */
+    public static final int CELL_SIZE = 20;
+
+    /** Ширина видимой области в клетках. */
+    public static final int VIEWPORT_WIDTH = 30;
+
+    /** Высота видимой области в клетках. */
+    public static final int VIEWPORT_HEIGHT = 20;
+
+    private final Canvas backgroundLayer; // Слой с фоном и стенами
+    private final Canvas snakeLayer; // Слой со змейкой
+    private final Board board; // Игровое поле
+    private final Wall wall; // Стены игрового поля
+    private final int viewportWidth; // Ширина видимой области в клетках
+    private final int viewportHeight; // Высота видимой области в клетках
+    private final boolean scrolling; // Режим прокрутки для полей больше окна
+    private long renderedTick = -1; // Такт, который сейчас изображён на слое змейки
+    private int renderedFoodCell = GameEngine.NO_FOOD; // Клетка еды, которая сейчас изображена на слое змейки
+
+    /**
+     * Конструктор рендерера.
+     *
+     * @param backgroundLayer Холст для фона и стен.
+     * @param snakeLayer      Прозрачный холст поверх фона для змейки.
+     * @param board           Игровое поле.
+     * @param wall            Стены игрового поля.
+     */
+    public GameRenderer(Canvas backgroundLayer, Canvas snakeLayer, Board board, Wall wall) {
+        this.backgroundLayer = backgroundLayer;
+        this.snakeLayer = snakeLayer;
+        this.board = board;
+        this.wall = wall;
+        this.viewportWidth = viewportWidth(board);
+        this.viewportHeight = viewportHeight(board);
+        this.scrolling = board.getWidth() > viewportWidth || board.getHeight() > viewportHeight;
+    }
+
+    /**
+     * Ширина видимой области для поля в клетках.
+     *
+     * @param board Игровое поле.
+     * @return Ширина видимой области.
+     */
+    public static int viewportWidth(Board board) {
+        return Math.min(board.getWidth(), VIEWPORT_WIDTH);
+    }
+
+    /**
+     * Высота видимой области для поля в клетках.
+     *
+     * @param board Игровое поле.
+     * @return Высота видимой области.
+     */
+    public static int viewportHeight(Board board) {
+        return Math.min(board.getHeight(), VIEWPORT_HEIGHT);
+    }
+
+    /**
+     * Отрисовка снимка состояния игры.
+     * При первом вызове (или если пропущено больше одного такта) слой змейки перерисовывается целиком,
+     * иначе обновляются только клетки головы и хвоста. Повторный вызов с тем же снимком ничего не рисует.
+     *
+     * @param snapshot Снимок состояния игры.
+     * @return false, если для полной перерисовки нужен полный снимок.
+     */
+    @Override
+    public boolean render(GameSnapshot snapshot) {
+        if (!canDraw(snapshot)) {
+            return false;
+        }
+        long tick = snapshot.getTick();
+        if (scrolling) {
+            if (renderedTick < 0) {
+                clearBackground();
+                drawViewport(snapshot);
+            } else if (tick != renderedTick) {
+                drawViewport(snapshot);
+            }
+        } else if (renderedTick < 0) {
+            drawBackground();
+            redrawSnake(snapshot);
+        } else if (tick == renderedTick + 1) {
+            drawDelta(snapshot);
+        } else if (tick != renderedTick) {
+            redrawSnake(snapshot);
+        }
+        renderedTick = tick;
+        return true;
+    }
+
+    @Override
+    public boolean isScrolling() {
+        return scrolling;
+    }
+
+    /**
+     * Проверка, можно ли нарисовать кадр по снимку: в режиме прокрутки нужен снимок окна,
+     * а для полной перерисовки без прокрутки — клетки всего тела змейки.
+     *
+     * @param snapshot Снимок состояния игры.
+     * @return true, если снимка достаточно для кадра.
+     */
+    private boolean canDraw(GameSnapshot snapshot) {
+        if (scrolling) return snapshot.hasViewport();
+        long tick = snapshot.getTick();
+        return snapshot.hasBody() || (renderedTick >= 0 && (tick == renderedTick || tick == renderedTick + 1));
+    }
+
+    /**
+     * Сбрасывает кэш рендерера, чтобы следующий кадр был перерисован полностью.
+     */
+    @Override
+    public void invalidate() {
+        renderedTick = -1;
+    }
+
+    /**
+     * Отрисовка фона и стен на нижний слой. Выполняется один раз.
+     */
+    private void drawBackground() {
+        GraphicsContext gc = backgroundLayer.getGraphicsContext2D();
+        gc.setFill(Color.BLACK);
+        gc.fillRect(0, 0, board.getWidth() * CELL_SIZE, board.getHeight() * CELL_SIZE);
+
+        gc.setFill(Color.RED); // Цвет стен (красный)
+        for (int cell = wall.nextWall(0); cell >= 0; cell = wall.nextWall(cell + 1)) {
+            fillCell(gc, cell);
+        }
+    }
+
+    /**
+     * Заливка нижнего слоя чёрным фоном в режиме прокрутки.
+     */
+    private void clearBackground() {
+        GraphicsContext gc = backgroundLayer.getGraphicsContext2D();
+        gc.setFill(Color.BLACK);
+        gc.fillRect(0, 0, viewportWidth * CELL_SIZE, viewportHeight * CELL_SIZE);
+    }
+
+    /**
+     * Перерисовка видимой области в режиме прокрутки по снимку окна.
+     * Камера центрируется на голове змейки; поле замкнуто, поэтому видимая область тоже переходит через край.
+     *
+     * @param snapshot Снимок окна.
+     */
+    private void drawViewport(GameSnapshot snapshot) {
+        int width = board.getWidth();
+        int height = board.getHeight();
+        int cameraX = snapshot.getCameraX();
+        int cameraY = snapshot.getCameraY();
+
+        GraphicsContext gc = snakeLayer.getGraphicsContext2D();
+        gc.clearRect(0, 0, viewportWidth * CELL_SIZE, viewportHeight * CELL_SIZE);
+
+        // Стены в видимых клетках
+        gc.setFill(Color.RED);
+        for (int vy = 0; vy < viewportHeight; vy++) {
+            int y = (cameraY + vy) % height;
+            for (int vx = 0; vx < viewportWidth; vx++) {
+                if (wall.isWall(board.cell((cameraX + vx) % width, y))) {
+                    gc.fillRect(vx * CELL_SIZE, vy * CELL_SIZE, CELL_SIZE, CELL_SIZE);
+                }
+            }
+        }
+
+        // Еда, если она попала в видимую область
+        int food = snapshot.getFoodCell();
+        if (food >= 0) {
+            int vx = Math.floorMod(board.x(food) - cameraX, width);
+            int vy = Math.floorMod(board.y(food) - cameraY, height);
+            if (vx < viewportWidth && vy < viewportHeight) {
+                gc.setFill(Color.ORANGE);
+                gc.fillRect(vx * CELL_SIZE, vy * CELL_SIZE, CELL_SIZE, CELL_SIZE);
+            }
+        }
+
+        // Сегменты змейки в видимых клетках
+        gc.setFill(Color.GREEN);
+        for (int vy = 0; vy < viewportHeight; vy++) {
+            for (int vx = 0; vx < viewportWidth; vx++) {
+                if (snapshot.isSnakeVisible(vx, vy)) {
+                    gc.fillRect(vx * CELL_SIZE, vy * CELL_SIZE, CELL_SIZE, CELL_SIZE);
+                }
+            }
+        }
+    }
+
+    /**
+     * Полная перерисовка слоя змейки.
+     *
+     * @param snapshot Снимок состояния игры.
+     */
+    private void redrawSnake(GameSnapshot snapshot) {
+        GraphicsContext gc = snakeLayer.getGraphicsContext2D();
+        gc.clearRect(0, 0, board.getWidth() * CELL_SIZE, board.getHeight() * CELL_SIZE);
+        gc.setFill(Color.GREEN);
+        for (int i = 0; i < snapshot.getBodyLength(); i++) {
+            fillCell(gc, snapshot.getBodyCell(i));
+        }
+        drawFood(gc, snapshot.getFoodCell());
+    }
+
+    /**
+     * Перерисовка только изменившихся за последний такт клеток.
+     *
+     * @param snapshot Снимок состояния игры.
+     */
+    private void drawDelta(GameSnapshot snapshot) {
+        GraphicsContext gc = snakeLayer.getGraphicsContext2D();
+        int removed = snapshot.getRemovedCell();
+        if (removed >= 0) {
+            // Освободившаяся клетка становится прозрачной, и сквозь неё виден фон
+            gc.clearRect(board.x(removed) * CELL_SIZE, board.y(removed) * CELL_SIZE, CELL_SIZE, CELL_SIZE);
+        }
+        int added = snapshot.getAddedCell();
+        if (added >= 0) {
+            gc.setFill(Color.GREEN);
+            fillCell(gc, added);
+        }
+        // Съеденная еда закрашена головой, поэтому рисуется только новая
+        int food = snapshot.getFoodCell();
+        if (food != renderedFoodCell) {
+            drawFood(gc, food);
+        }
+    }
+
+    /**
+     * Отрисовка еды на слое змейки.
+     *
+     * @param gc   Графический контекст.
+     * @param food Клетка с едой или {@link GameEngine#NO_FOOD}.
+     */
+    private void drawFood(GraphicsContext gc, int food) {
+        if (food >= 0) {
+            gc.setFill(Color.ORANGE); // Цвет еды (оранжевый)
+            fillCell(gc, food);
+        }
+        renderedFoodCell = food;
+    }
+
+    /**
+     * Закрашивает клетку поля текущим цветом заливки.
+     *
+     * @param gc   Графический контекст.
+     * @param cell Номер клетки.
+     */
+    private void fillCell(GraphicsContext gc, int cell) {
+        gc.fillRect(board.x(cell) * CELL_SIZE, board.y(cell) * CELL_SIZE, CELL_SIZE, CELL_SIZE);
+    }
+}
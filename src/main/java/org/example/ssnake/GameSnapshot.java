@@ -0,0 +1,232 @@
+package org.example.ssnake;
+
+/**
+ * Неизменяемый снимок состояния игры, который поток симуляции передаёт рендереру.
+ * <p>
+ * Снимок содержит номер такта, флаг завершения игры, длину змейки, клетки головы и еды и клетки,
+ * изменившиеся на последнем такте, — этого достаточно, чтобы дорисовать кадр после одного такта,
+ * поэтому снимок {@link #of(GameEngine)} создаётся за O(1) независимо от длины змейки. Клетки всего тела
+ * копируются только в полный снимок {@link #full(GameEngine)}, который нужен для полной перерисовки.
+ * </p>
+ * <p>
+ * В режиме прокрутки больших полей кадр перерисовывается целиком, но только в пределах окна. Для него служит
+ * снимок {@link #viewport(GameEngine, int, int)}: положение камеры, следующей за головой, и копия битовой карты
+ * занятых змейкой клеток в прямоугольнике окна. Его стоимость зависит от размера окна, а не от длины змейки.
+ * После публикации снимок не изменяется, поэтому его можно безопасно читать из потока JavaFX без блокировок.
+ * </p>
+ */
+public final class GameSnapshot {
+
+    private final long tick; // Номер такта
+    private final boolean gameOver; // Флаг завершения игры
+    private final int snakeLength; // Длина змейки вместе с сегментами, ещё не вошедшими на поле
+    private final int headCell; // Клетка головы змейки
+    private final int[] bodyCells; // Клетки тела змейки от головы к хвосту или null в снимке изменений
+    private final int addedCell; // Клетка, занятая головой на последнем такте
+    private final int removedCell; // Клетка, освобождённая хвостом на последнем такте
+    private final int foodCell; // Клетка с едой
+    private final int cameraX; // Левый край видимой области (только в снимке окна)
+    private final int cameraY; // Верхний край видимой области (только в снимке окна)
+    private final int viewportWidth; // Ширина видимой области в клетках или 0, если снимок не содержит окна
+    private final long[] viewportCells; // Занятые змейкой клетки окна, бит vy * ширина + vx, или null
+
+    /**
+     * Создаёт снимок изменений за последний такт без копии тела змейки. Время создания не зависит от длины змейки.
+     *
+     * @param engine Игровой движок.
+     * @return Новый снимок без клеток тела.
+     */
+    public static GameSnapshot of(GameEngine engine) {
+        return of(engine, null);
+    }
+
+    /**
+     * Создаёт полный снимок с копией клеток тела змейки для полной перерисовки.
+     *
+     * @param engine Игровой движок.
+     * @return Новый снимок с клетками тела.
+     */
+    public static GameSnapshot full(GameEngine engine) {
+        return of(engine, engine.getSnake().copyCells());
+    }
+
+    /**
+     * Создаёт снимок для режима прокрутки: камера центрируется на голове змейки, а из битовой карты
+     * занятых клеток копируется только прямоугольник окна. Поле замкнуто, поэтому окно может переходить
+     * через край. Время создания зависит от размера окна, а не от длины змейки.
+     *
+     * @param engine Игровой движок.
+     * @param width  Ширина видимой области в клетках.
+     * @param height Высота видимой области в клетках.
+     * @return Новый снимок с занятыми клетками окна.
+     */
+    public static GameSnapshot viewport(GameEngine engine, int width, int height) {
+        Board board = engine.getBoard();
+        Snake snake = engine.getSnake();
+        int head = snake.getHeadCell();
+        int cameraX = Math.floorMod(board.x(head) - width / 2, board.getWidth());
+        int cameraY = Math.floorMod(board.y(head) - height / 2, board.getHeight());
+        long[] cells = new long[(width * height + 63) >>> 6];
+        for (int vy = 0; vy < height; vy++) {
+            int y = (cameraY + vy) % board.getHeight();
+            for (int vx = 0; vx < width; vx++) {
+                if (snake.isOccupied(board.cell((cameraX + vx) % board.getWidth(), y))) {
+                    int bit = vy * width + vx;
+                    cells[bit >>> 6] |= 1L << bit;
+                }
+            }
+        }
+        return new GameSnapshot(engine, null, cameraX, cameraY, width, cells);
+    }
+
+    private static GameSnapshot of(GameEngine engine, int[] bodyCells) {
+        return new GameSnapshot(engine, bodyCells, 0, 0, 0, null);
+    }
+
+    private GameSnapshot(GameEngine engine, int[] bodyCells, int cameraX, int cameraY, int viewportWidth,
+                         long[] viewportCells) {
+        Snake snake = engine.getSnake();
+        this.tick = engine.getTick();
+        this.gameOver = engine.isGameOver();
+        this.snakeLength = snake.getLength();
+        this.headCell = snake.getHeadCell();
+        this.bodyCells = bodyCells;
+        this.addedCell = snake.getLastAddedCell();
+        this.removedCell = snake.getLastRemovedCell();
+        this.foodCell = engine.getFoodCell();
+        this.cameraX = cameraX;
+        this.cameraY = cameraY;
+        this.viewportWidth = viewportWidth;
+        this.viewportCells = viewportCells;
+    }
+
+    /**
+     * Получение номера такта.
+     *
+     * @return Номер такта.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Проверка, завершена ли игра.
+     *
+     * @return true, если игра завершена.
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * Получение длины змейки, включая сегменты, ещё не вошедшие на поле.
+     *
+     * @return Количество сегментов змейки.
+     */
+    public int getSnakeLength() {
+        return snakeLength;
+    }
+
+    /**
+     * Получение клетки головы змейки.
+     *
+     * @return Номер клетки.
+     */
+    public int getHeadCell() {
+        return headCell;
+    }
+
+    /**
+     * Проверка, содержит ли снимок клетки всего тела змейки.
+     *
+     * @return true для полного снимка {@link #full(GameEngine)}.
+     */
+    public boolean hasBody() {
+        return bodyCells != null;
+    }
+
+    /**
+     * Получение количества сегментов змейки на поле. Доступно только в полном снимке.
+     *
+     * @return Количество клеток тела.
+     */
+    public int getBodyLength() {
+        return bodyCells.length;
+    }
+
+    /**
+     * Получение клетки сегмента змейки. Доступно только в полном снимке.
+     *
+     * @param index Индекс сегмента (0 — голова).
+     * @return Номер клетки.
+     */
+    public int getBodyCell(int index) {
+        return bodyCells[index];
+    }
+
+    /**
+     * Получение клетки, занятой головой на последнем такте.
+     *
+     * @return Номер клетки или -1.
+     */
+    public int getAddedCell() {
+        return addedCell;
+    }
+
+    /**
+     * Получение клетки, освобождённой хвостом на последнем такте.
+     *
+     * @return Номер клетки или -1.
+     */
+    public int getRemovedCell() {
+        return removedCell;
+    }
+
+    /**
+     * Получение клетки с едой.
+     *
+     * @return Номер клетки или {@link GameEngine#NO_FOOD}.
+     */
+    public int getFoodCell() {
+        return foodCell;
+    }
+
+    /**
+     * Проверка, содержит ли снимок видимую область режима прокрутки.
+     *
+     * @return true для снимка {@link #viewport(GameEngine, int, int)}.
+     */
+    public boolean hasViewport() {
+        return viewportCells != null;
+    }
+
+    /**
+     * Получение левого края видимой области. Доступно только в снимке окна.
+     *
+     * @return Столбец поля.
+     */
+    public int getCameraX() {
+        return cameraX;
+    }
+
+    /**
+     * Получение верхнего края видимой области. Доступно только в снимке окна.
+     *
+     * @return Строка поля.
+     */
+    public int getCameraY() {
+        return cameraY;
+    }
+
+    /**
+     * Проверка, занята ли змейкой клетка видимой области. Доступно только в снимке окна.
+     *
+     * @param vx Столбец в видимой области.
+     * @param vy Строка в видимой области.
+     * @return true, если в клетке сегмент змейки.
+     */
+    public boolean isSnakeVisible(int vx, int vy) {
+        int bit = vy * viewportWidth + vx;
+        return (viewportCells[bit >>> 6] & (1L << bit)) != 0;
+    }
+}
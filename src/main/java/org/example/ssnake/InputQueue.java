@@ -0,0 +1,102 @@
+package org.example.ssnake;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограниченная неблокирующая очередь команд направления между потоком ввода и потоком симуляции.
+ * <p>
+ * Очередь рассчитана на одного писателя (поток JavaFX) и одного читателя (поток симуляции).
+ * Вместе с каждой командой сохраняется момент нажатия клавиши ({@link System#nanoTime()}),
+ * чтобы можно было измерить задержку от нажатия до применения хода.
+ * Если очередь переполнена, новая команда отбрасывается: ранее нажатые повороты важнее.
+ * </p>
+ */
+public class InputQueue {
+
+    private final Direction[] directions; // Направления команд
+    private final long[] timestamps; // Моменты нажатия клавиш
+    private final int mask; // Маска индекса (ёмкость — степень двойки)
+    private final AtomicLong head = new AtomicLong(); // Индекс следующей команды для чтения
+    private final AtomicLong tail = new AtomicLong(); // Индекс следующей свободной ячейки для записи
+
+    /**
+     * Конструктор очереди.
+     *
+     * @param capacity Ёмкость очереди. Округляется вверх до степени двойки.
+     */
+    public InputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        directions = new Direction[size];
+        timestamps = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Добавляет команду в очередь. Вызывается только из потока ввода.
+     *
+     * @param direction Новое направление.
+     * @param timestamp Момент нажатия клавиши в наносекундах.
+     * @return true, если команда добавлена, false, если очередь переполнена.
+     */
+    public boolean offer(Direction direction, long timestamp) {
+        long t = tail.get();
+        if (t - head.get() > mask) {
+            return false;
+        }
+        int index = (int) t & mask;
+        directions[index] = direction;
+        timestamps[index] = timestamp;
+        tail.lazySet(t + 1); // Публикуем команду после записи её полей
+        return true;
+    }
+
+    /**
+     * Проверка, пуста ли очередь.
+     *
+     * @return true, если команд нет.
+     */
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    /**
+     * Получение направления первой команды без удаления. Вызывается только из потока симуляции.
+     *
+     * @return Направление или null, если очередь пуста.
+     */
+    public Direction peekDirection() {
+        long h = head.get();
+        return h == tail.get() ? null : directions[(int) h & mask];
+    }
+
+    /**
+     * Получение момента нажатия для первой команды без удаления.
+     *
+     * @return Момент нажатия в наносекундах (значение не определено для пустой очереди).
+     */
+    public long peekTimestamp() {
+        return timestamps[(int) head.get() & mask];
+    }
+
+    /**
+     * Удаляет первую команду из очереди. Вызывается только из потока симуляции.
+     */
+    public void remove() {
+        long h = head.get();
+        if (h != tail.get()) {
+            directions[(int) h & mask] = null;
+            head.lazySet(h + 1);
+        }
+    }
+
+    /**
+     * Очищает очередь. Как и {@link #remove()}, это действие читателя: вызывается из потока симуляции
+     * либо из другого потока (например, JavaFX при перезапуске и перемотке), но только после того,
+     * как поток симуляции завершён, чтобы у очереди не было двух читателей одновременно.
+     */
+    public void clear() {
+        while (!isEmpty()) {
+            remove();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.ssnake;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Гистограмма задержек с логарифмическими корзинами.
+ * <p>
+ * Значения в наносекундах раскладываются по корзинам вида [2^k, 2^(k+1)), каждая из которых
+ * дополнительно делится на {@link #SUB_BUCKETS} равных частей. Запись выполняется без блокировок
+ * и без создания объектов, поэтому гистограмму можно обновлять прямо в игровом такте,
+ * а читать из любого другого потока.
+ * </p>
+ */
+public class LatencyHistogram {
+
+    /** Количество подкорзин в каждой степени двойки. */
+    public static final int SUB_BUCKETS = 8;
+
+    private static final int SUB_BITS = 3; // log2(SUB_BUCKETS)
+    private static final int POWERS = 64; // Количество степеней двойки для long
+
+    private final AtomicLongArray counts = new AtomicLongArray(POWERS * SUB_BUCKETS); // Счётчики корзин
+    private final AtomicLongArray summary = new AtomicLongArray(3); // [количество, сумма, максимум]
+
+    /**
+     * Записывает значение в гистограмму.
+     *
+     * @param nanos Значение в наносекундах. Отрицательные значения считаются нулём.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        summary.incrementAndGet(0);
+        summary.addAndGet(1, value);
+        long max;
+        while (value > (max = summary.get(2)) && !summary.compareAndSet(2, max, value)) {
+            // Повторяем, пока не удастся обновить максимум
+        }
+    }
+
+    /**
+     * Получение количества записанных значений.
+     *
+     * @return Количество значений.
+     */
+    public long getCount() {
+        return summary.get(0);
+    }
+
+    /**
+     * Получение среднего значения.
+     *
+     * @return Среднее в наносекундах или 0, если значений нет.
+     */
+    public long getMean() {
+        long count = summary.get(0);
+        return count == 0 ? 0 : summary.get(1) / count;
+    }
+
+    /**
+     * Получение максимального значения.
+     *
+     * @return Максимум в наносекундах.
+     */
+    public long getMax() {
+        return summary.get(2);
+    }
+
+    /**
+     * Оценка значения перцентиля (верхняя граница соответствующей корзины).
+     *
+     * @param percentile Перцентиль от 0 до 100.
+     * @return Оценка значения в наносекундах или 0, если значений нет.
+     */
+    public long getPercentile(double percentile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * Math.min(100.0, Math.max(0.0, percentile)) / 100.0);
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= Math.max(1, rank)) {
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Сброс всех значений гистограммы.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        for (int i = 0; i < summary.length(); i++) {
+            summary.set(i, 0);
+        }
+    }
+
+    /**
+     * Краткое текстовое описание гистограммы для журнала.
+     *
+     * @return Строка с количеством, средним, перцентилями и максимумом в микросекундах.
+     */
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%dus p50=%dus p99=%dus max=%dus",
+                getCount(), getMean() / 1000, getPercentile(50) / 1000, getPercentile(99) / 1000, getMax() / 1000);
+    }
+
+    /**
+     * Вычисление индекса корзины для значения.
+     *
+     * @param value Неотрицательное значение.
+     * @return Индекс корзины.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int power = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (power - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (power - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Верхняя граница значений корзины.
+     *
+     * @param bucket Индекс корзины.
+     * @return Наибольшее значение, попадающее в корзину.
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int power = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long lower = (1L << power) + (sub << (power - SUB_BITS));
+        return lower + (1L << (power - SUB_BITS)) - 1;
+    }
+}
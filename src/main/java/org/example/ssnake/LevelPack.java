@@ -0,0 +1,250 @@
+package org.example.ssnake;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Пакет уровней: набор карт стен в одном двоичном файле.
+ * <p>
+ * Формат файла (порядок байт little-endian):
+ * </p>
+ * <pre>
+ * int   MAGIC ("SNKL")
+ * int   VERSION
+ * int   количество уровней
+ * int   зарезервировано (0)
+ * далее для каждого уровня запись оглавления:
+ *   int   ширина поля
+ *   int   высота поля
+ *   long  смещение карты стен от начала файла (кратно 8)
+ * далее карты стен: по {@link Wall#wordCount(int, int)} слов long, бит клетки y * ширина + x
+ * </pre>
+ * <p>
+ * Карта стен хранится в файле ровно в том виде, в каком её использует {@link Wall}, поэтому загрузка уровня —
+ * это одно копирование слов без разбора и без объектов на каждый блок. Файл отображается в память,
+ * и операционная система читает с диска только страницы тех уровней, к которым обратились.
+ * Загруженные уровни кэшируются, поэтому повторное переключение на уровень мгновенно.
+ * </p>
+ */
+public class LevelPack {
+
+    private static final Logger logger = LogManager.getLogger(LevelPack.class);
+
+    /** Путь к пакету уровней по умолчанию. */
+    public static final Path DEFAULT_PATH = Path.of("levels", "levels.snkl");
+
+    /** Сигнатура файла пакета уровней. */
+    static final int MAGIC = 0x4C4B4E53; // "SNKL" в порядке little-endian
+
+    /** Версия формата. */
+    static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16; // Размер заголовка в байтах
+    private static final int ENTRY_SIZE = 16; // Размер записи оглавления в байтах
+
+    private final Path path; // Путь к файлу пакета
+    private final MappedByteBuffer buffer; // Отображённый в память файл
+    private final int count; // Количество уровней
+    private final Wall[] levels; // Уже загруженные уровни
+
+    /**
+     * Открывает пакет уровней и проверяет заголовок. Сами уровни читаются при первом обращении.
+     *
+     * @param path Путь к файлу пакета.
+     * @throws IOException Если файл не удалось прочитать или он имеет неверный формат.
+     */
+    public LevelPack(Path path) throws IOException {
+        this.path = path;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Файл не является пакетом уровней: " + path);
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Неподдерживаемая версия пакета уровней: " + version);
+        }
+        count = buffer.getInt(8);
+        if (count < 0 || HEADER_SIZE + (long) count * ENTRY_SIZE > buffer.capacity()) {
+            throw new IOException("Повреждено оглавление пакета уровней: " + path);
+        }
+        levels = new Wall[count];
+    }
+
+    /**
+     * Получение количества уровней в пакете.
+     *
+     * @return Количество уровней.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Получение ширины поля уровня без загрузки карты стен.
+     *
+     * @param index Номер уровня.
+     * @return Ширина поля в клетках.
+     */
+    public int getWidth(int index) {
+        return buffer.getInt(entry(index));
+    }
+
+    /**
+     * Получение высоты поля уровня без загрузки карты стен.
+     *
+     * @param index Номер уровня.
+     * @return Высота поля в клетках.
+     */
+    public int getHeight(int index) {
+        return buffer.getInt(entry(index) + 4);
+    }
+
+    /**
+     * Получение стен уровня. При первом обращении карта копируется из отображённого файла,
+     * затем возвращается из кэша.
+     *
+     * @param index Номер уровня.
+     * @return Стены уровня.
+     * @throws IOException Если запись уровня повреждена.
+     */
+    public synchronized Wall getLevel(int index) throws IOException {
+        Wall level = levels[index];
+        if (level != null) {
+            return level;
+        }
+        int entry = entry(index);
+        int width = buffer.getInt(entry);
+        int height = buffer.getInt(entry + 4);
+        long offset = buffer.getLong(entry + 8);
+        if (width <= 0 || height <= 0 || width > Board.MAX_SIZE || height > Board.MAX_SIZE) {
+            throw new IOException("Неверный размер уровня " + index + " в пакете " + path);
+        }
+        long[] bits = new long[Wall.wordCount(width, height)];
+        if (offset < HEADER_SIZE || (offset & 7) != 0 || offset + (long) bits.length * Long.BYTES > buffer.capacity()) {
+            throw new IOException("Неверное смещение уровня " + index + " в пакете " + path);
+        }
+        ByteBuffer data = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        data.position((int) offset);
+        data.asLongBuffer().get(bits);
+        level = new Wall(width, height, bits);
+        levels[index] = level;
+        return level;
+    }
+
+    /**
+     * Смещение записи оглавления уровня.
+     *
+     * @param index Номер уровня.
+     * @return Смещение в байтах.
+     */
+    private int entry(int index) {
+        if (index < 0 || index >= count) {
+            throw new IllegalArgumentException("Нет уровня с номером " + index + " (всего " + count + ")");
+        }
+        return HEADER_SIZE + index * ENTRY_SIZE;
+    }
+
+    /**
+     * Записывает уровни в файл пакета.
+     *
+     * @param path   Путь к файлу пакета.
+     * @param levels Стены уровней.
+     * @throws IOException Если файл не удалось записать.
+     */
+    public static void write(Path path, List<Wall> levels) throws IOException {
+        long size = HEADER_SIZE + (long) levels.size() * ENTRY_SIZE;
+        for (Wall level : levels) {
+            size += (long) level.bits().length * Long.BYTES;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Пакет уровней слишком велик: " + size + " байт");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(levels.size()).putInt(0);
+        long offset = HEADER_SIZE + (long) levels.size() * ENTRY_SIZE;
+        for (Wall level : levels) {
+            buffer.putInt(level.getWidth()).putInt(level.getHeight()).putLong(offset);
+            offset += (long) level.bits().length * Long.BYTES;
+        }
+        for (Wall level : levels) {
+            buffer.asLongBuffer().put(level.bits());
+            buffer.position(buffer.position() + level.bits().length * Long.BYTES);
+        }
+        buffer.flip();
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Создаёт уровень: стены по периметру и случайные отрезки внутри поля.
+     * Строки рядом с начальной позицией змейки остаются свободными.
+     *
+     * @param width   Ширина поля в клетках.
+     * @param height  Высота поля в клетках.
+     * @param seed    Зерно генератора уровня.
+     * @param density Доля клеток, занятых внутренними стенами.
+     * @return Стены уровня.
+     */
+    static Wall generate(int width, int height, long seed, double density) {
+        Wall border = new Wall(width, height);
+        long[] bits = border.bits();
+        long random = seed;
+        int segments = (int) (width * height * density / 4);
+        for (int i = 0; i < segments; i++) {
+            random = SplitMix64.next(random);
+            long z = SplitMix64.mix(random);
+            int x = (int) ((z >>> 1) % width);
+            int y = (int) ((z >>> 33) % height);
+            boolean horizontal = (z & 1) == 0;
+            for (int k = 0; k < 4; k++) {
+                int cx = horizontal ? x + k : x;
+                int cy = horizontal ? y : y + k;
+                if (cx >= width || cy >= height || Math.abs(cy - 10) <= 1) continue;
+                int cell = cy * width + cx;
+                bits[cell >>> 6] |= 1L << cell;
+            }
+        }
+        return new Wall(width, height, bits);
+    }
+
+    /**
+     * Точка входа для создания пакета уровней.
+     *
+     * @param args Путь к файлу (по умолчанию {@link #DEFAULT_PATH}) и количество уровней (по умолчанию 200).
+     * @throws IOException Если файл не удалось записать.
+     */
+    public static void main(String[] args) throws IOException {
+        Path path = args.length > 0 ? Path.of(args[0]) : DEFAULT_PATH;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        List<Wall> levels = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // Плотность внутренних стен растёт от уровня к уровню
+            levels.add(generate(GameEngine.BOARD_WIDTH, GameEngine.BOARD_HEIGHT, i, 0.02 + 0.10 * i / count));
+        }
+        write(path, levels);
+        logger.info("Пакет уровней записан: {}, уровней {}", path, count);
+    }
+}
@@ -0,0 +1,134 @@
+package org.example.ssnake;
+
+import java.util.ArrayDeque;
+
+/**
+ * Связь клиента с сервером внутри одного процесса с имитацией сетевой задержки — для проверки
+ * {@link RollbackClient} без сети.
+ * <p>
+ * Время измеряется в тактах и продвигается методом {@link #advance()}, который вызывает цикл проверки
+ * перед каждым тактом клиента. Сообщения в обе стороны доставляются через {@code latency} тактов плюс
+ * случайный разброс до {@code jitter} тактов, но по порядку отправки, как в TCP. Авторитетный движок
+ * сервера отстаёт от часов клиента на {@code lead} тактов и применяет не больше одного поворота за такт:
+ * первый из пришедших, если его такт уже наступил. Разброс задаётся своим генератором, поэтому прогон
+ * с тем же зерном повторяется в точности.
+ * </p>
+ */
+public class LoopbackTransport implements RollbackTransport {
+
+    /**
+     * Сообщение в пути.
+     */
+    private static final class Message {
+        final long due; // Такт доставки
+        final long tick; // Такт сообщения
+        final int direction; // Номер направления или -1
+        final long inputTick; // Такт применённого ввода или -1 (только в подтверждениях)
+
+        Message(long due, long tick, int direction, long inputTick) {
+            this.due = due;
+            this.tick = tick;
+            this.direction = direction;
+            this.inputTick = inputTick;
+        }
+    }
+
+    private static final Direction[] DIRECTIONS = Direction.values(); // Направления по номеру
+
+    private final GameEngine server; // Авторитетное состояние
+    private final int latency; // Задержка в одну сторону в тактах
+    private final int jitter; // Наибольший разброс задержки в тактах
+    private final int lead; // Отставание сервера от часов клиента в тактах
+    private final ArrayDeque<Message> toServer = new ArrayDeque<>(); // Повороты в пути к серверу
+    private final ArrayDeque<Message> arrived = new ArrayDeque<>(); // Повороты, пришедшие на сервер
+    private final ArrayDeque<Message> toClient = new ArrayDeque<>(); // Подтверждения в пути к клиенту
+    private long random; // Состояние генератора разброса (SplitMix64)
+    private long now = 0; // Часы в тактах
+    private long lastToServer = 0; // Такт доставки последнего поворота (для порядка доставки)
+    private long lastToClient = 0; // Такт доставки последнего подтверждения
+
+    /**
+     * Конструктор связи.
+     *
+     * @param server  Движок сервера в том же начальном состоянии, что и у клиента.
+     * @param latency Задержка в одну сторону в тактах.
+     * @param jitter  Наибольший случайный разброс задержки в тактах.
+     * @param lead    На сколько тактов сервер отстаёт от часов клиента.
+     * @param seed    Зерно генератора разброса.
+     */
+    public LoopbackTransport(GameEngine server, int latency, int jitter, int lead, long seed) {
+        if (latency < 0 || jitter < 0 || lead < 0) {
+            throw new IllegalArgumentException("Неверные параметры связи: задержка " + latency
+                    + ", разброс " + jitter + ", отставание " + lead);
+        }
+        this.server = server;
+        this.latency = latency;
+        this.jitter = jitter;
+        this.lead = lead;
+        this.random = seed;
+    }
+
+    @Override
+    public void send(long tick, Direction direction) {
+        lastToServer = Math.max(lastToServer, now + delay());
+        toServer.add(new Message(lastToServer, tick, direction.ordinal(), -1));
+    }
+
+    @Override
+    public void poll(Receiver receiver) {
+        while (!toClient.isEmpty() && toClient.peek().due <= now) {
+            Message message = toClient.poll();
+            receiver.confirm(message.tick, message.direction, message.inputTick);
+        }
+    }
+
+    /**
+     * Продвигает часы на один такт: доставляет повороты на сервер и выполняет наступившие такты сервера.
+     */
+    public void advance() {
+        now++;
+        while (!toServer.isEmpty() && toServer.peek().due <= now) {
+            arrived.add(toServer.poll());
+        }
+        while (!server.isGameOver() && server.getTick() < now - lead) {
+            long tick = server.getTick() + 1;
+            Message input = !arrived.isEmpty() && arrived.peek().tick <= tick ? arrived.poll() : null;
+            if (input != null) {
+                server.setDirection(DIRECTIONS[input.direction]);
+            }
+            server.step();
+            lastToClient = Math.max(lastToClient, now + delay());
+            toClient.add(new Message(lastToClient, tick,
+                    input != null ? input.direction : -1, input != null ? input.tick : -1));
+        }
+    }
+
+    /**
+     * Проверка, есть ли сообщения в пути или повороты, которые сервер ещё применит.
+     *
+     * @return true, если связь ещё не доставила или не применила все сообщения.
+     */
+    public boolean isBusy() {
+        return !toServer.isEmpty() || (!arrived.isEmpty() && !server.isGameOver()) || !toClient.isEmpty();
+    }
+
+    /**
+     * Получение движка сервера.
+     *
+     * @return Авторитетный движок.
+     */
+    public GameEngine getServer() {
+        return server;
+    }
+
+    /**
+     * Задержка очередного сообщения.
+     *
+     * @return Задержка в тактах.
+     */
+    private int delay() {
+        if (jitter == 0) return latency;
+        random = SplitMix64.next(random);
+        return latency + SplitMix64.nextInt(random, jitter + 1);
+    }
+}
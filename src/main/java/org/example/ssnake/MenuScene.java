@@ -1,19 +1,36 @@
 package org.example.ssnake;
 
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
+import javafx.concurrent.Task;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.Slider;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 /**
  * Класс для отображения главного меню игры Snake.
- * В этом классе пользователь может выбрать уровень сложности (скорость) и начальную длину змейки,
- * а затем начать игру с выбранными параметрами.
+ * В этом классе пользователь может выбрать уровень сложности (скорость), начальную длину змейки и размер поля
+ * (или уровень из пакета уровней, если он есть), а затем начать игру с выбранными параметрами.
+ * <p>
+ * Игра для текущих параметров готовится заранее, пока пользователь находится в меню, поэтому нажатие
+ * "Начать игру" лишь показывает готовую сцену. Движок (поле, стены и индекс свободных клеток — на больших
+ * полях это самая долгая часть) строится в фоновом потоке, а в потоке JavaFX создаются только узлы сцены.
+ * При изменении параметров подготовка начинается через {@link #PREPARE_DELAY_MS} мс после последнего
+ * изменения, а устаревшая подготовка отменяется или её результат отбрасывается.
+ * </p>
  */
 public class MenuScene extends Application {
 
@@ -21,6 +38,31 @@ public class MenuScene extends Application {
     private static final Logger logger = LogManager.getLogger(MenuScene.class);    // Переменные для выбранного уровня скорости и начальной длины змейки
     private int selectedSpeedLevel = 1; // Выбранный уровень скорости
     private int snakeLength = 3; // Начальная длина змейки
+    private int boardWidth = GameEngine.BOARD_WIDTH; // Ширина поля в клетках
+    private int boardHeight = GameEngine.BOARD_HEIGHT; // Высота поля в клетках
+    private int levelIndex = -1; // Номер уровня в пакете или -1 для стен по периметру
+    private LevelPack levelPack; // Пакет уровней или null, если файла нет
+    private ScoreStore scoreStore; // Хранилище результатов или null, если его не удалось открыть
+    private SnakeGame preparedGame; // Заранее подготовленная игра
+    private String preparedKey; // Параметры подготовленной игры
+    private String pendingKey; // Параметры игры, которая готовится в фоне
+    private Future<?> pending; // Фоновая подготовка или null
+
+    /** Пауза после последнего изменения параметров перед подготовкой игры. */
+    public static final int PREPARE_DELAY_MS = 300;
+
+    // Фоновый поток подготовки движка; задачи выполняются по одной, устаревшие отменяются
+    private final ExecutorService preparer = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "game-prepare");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Название пункта без уровня из пакета
+    private static final String BORDER_LEVEL = "Стены по периметру";
+
+    // Доступные размеры поля; поля больше окна прокручиваются вслед за змейкой
+    private static final String[] BOARD_SIZES = {"30x20", "100x100", "1000x1000", "10000x10000"};
 
     /**
      * Метод запускает сцены главного меню игры.
@@ -45,48 +87,183 @@ public class MenuScene extends Application {
             lengthSlider.setShowTickMarks(true);
             lengthSlider.setBlockIncrement(1);
 
+            // Выбор размера поля
+            Label boardLabel = new Label("Выберите размер поля:");
+            ComboBox<String> boardBox = new ComboBox<>();
+            boardBox.getItems().addAll(BOARD_SIZES);
+            boardBox.setValue(boardWidth + "x" + boardHeight);
+
+            // Выбор уровня из пакета; в списке только размеры, карты стен читаются при запуске игры
+            Label levelLabel = new Label("Выберите уровень:");
+            ComboBox<String> levelBox = new ComboBox<>();
+            levelBox.getItems().add(BORDER_LEVEL);
+            openLevelPack();
+            openScoreStore();
+            if (levelPack != null) {
+                for (int i = 0; i < levelPack.size(); i++) {
+                    levelBox.getItems().add("Уровень " + (i + 1) + " (" + levelPack.getWidth(i) + "x" + levelPack.getHeight(i) + ")");
+                }
+            }
+            levelBox.setValue(BORDER_LEVEL);
+            boardBox.disableProperty().bind(levelBox.valueProperty().isNotEqualTo(BORDER_LEVEL));
+
             // Кнопка для старта игры
             Button startButton = new Button("Начать игру");
 
             // Обработчик для кнопки старта игры
             startButton.setOnAction(event -> {
                 // Получаем значения слайдеров
-                selectedSpeedLevel = (int) speedSlider.getValue();
-                snakeLength = (int) lengthSlider.getValue();
-                logger.info("Игра начата с уровнем скорости: " + selectedSpeedLevel + " и длиной змейки: " + snakeLength);
+                readSettings(speedSlider, lengthSlider, boardBox, levelBox);
+                logger.info("Игра начата с уровнем скорости: {}, длиной змейки: {} и полем {}x{}",
+                        selectedSpeedLevel, snakeLength, boardWidth, boardHeight);
                 startGame(primaryStage); // Запускаем игру с выбранными параметрами
             });
 
+            // Игра готовится заранее и перестраивается, когда пользователь перестал менять параметры
+            PauseTransition debounce = new PauseTransition(Duration.millis(PREPARE_DELAY_MS));
+            debounce.setOnFinished(event -> {
+                readSettings(speedSlider, lengthSlider, boardBox, levelBox);
+                prepareGame();
+            });
+            Runnable prepare = debounce::playFromStart;
+            for (Slider slider : new Slider[]{speedSlider, lengthSlider}) {
+                // Пока ползунок перетаскивают, сцена не перестраивается
+                slider.valueChangingProperty().addListener((obs, was, changing) -> {
+                    if (!changing) prepare.run();
+                });
+                slider.valueProperty().addListener((obs, was, value) -> {
+                    if (!slider.isValueChanging()) prepare.run();
+                });
+            }
+            boardBox.valueProperty().addListener((obs, was, value) -> prepare.run());
+            levelBox.valueProperty().addListener((obs, was, value) -> prepare.run());
+
             // Организуем элементы управления в вертикальном порядке
-            VBox vbox = new VBox(20, speedLabel, speedSlider, lengthLabel, lengthSlider, startButton);
+            VBox vbox = new VBox(20, speedLabel, speedSlider, lengthLabel, lengthSlider, boardLabel, boardBox,
+                    levelLabel, levelBox, startButton);
             vbox.setStyle("-fx-padding: 20px;");
 
             // Создаем сцену с заданным макетом
-            Scene scene = new Scene(vbox, 400, 300);
+            Scene scene = new Scene(vbox, 400, 500);
             primaryStage.setTitle("Меню игры Snake");
             primaryStage.setScene(scene);
             primaryStage.show();
 
             logger.info("Отображена сцена меню.");
 
+            // Готовим игру с параметрами по умолчанию, когда меню уже показано
+            prepareGame();
+
         } catch (Exception e) {
             // Логируем ошибку при создании сцены
             logger.info("Ошибка при настройке сцены меню: ", e);
         }
     }
 
+    /**
+     * Чтение параметров игры из элементов управления.
+     *
+     * @param speedSlider  Слайдер скорости.
+     * @param lengthSlider Слайдер длины змейки.
+     * @param boardBox     Выбор размера поля.
+     * @param levelBox     Выбор уровня.
+     */
+    private void readSettings(Slider speedSlider, Slider lengthSlider, ComboBox<String> boardBox, ComboBox<String> levelBox) {
+        selectedSpeedLevel = (int) speedSlider.getValue();
+        snakeLength = (int) lengthSlider.getValue();
+        String[] size = boardBox.getValue().split("x");
+        boardWidth = Integer.parseInt(size[0]);
+        boardHeight = Integer.parseInt(size[1]);
+        levelIndex = levelBox.getSelectionModel().getSelectedIndex() - 1;
+    }
+
+    /**
+     * Ключ параметров игры для проверки, подходит ли подготовленная игра.
+     *
+     * @return Строка с параметрами.
+     */
+    private String settingsKey() {
+        return selectedSpeedLevel + "/" + snakeLength + "/" + boardWidth + "x" + boardHeight + "/" + levelIndex;
+    }
+
+    /**
+     * Создание игры с текущими параметрами.
+     *
+     * @return Новая игра.
+     * @throws IOException Если уровень не удалось прочитать из пакета.
+     */
+    private SnakeGame createGame() throws IOException {
+        SnakeGame game = levelIndex >= 0
+                ? new SnakeGame(selectedSpeedLevel, snakeLength, levelPack.getLevel(levelIndex), levelIndex)
+                : new SnakeGame(selectedSpeedLevel, snakeLength, boardWidth, boardHeight);
+        game.setScoreStore(scoreStore);
+        return game;
+    }
+
+    /**
+     * Заранее готовит игру для текущих параметров, если она ещё не готова и не готовится.
+     * Движок строится в фоновом потоке, а сцена — в потоке JavaFX, когда движок готов
+     * и параметры за это время не изменились.
+     */
+    private void prepareGame() {
+        String key = settingsKey();
+        if (key.equals(preparedKey) || key.equals(pendingKey)) return;
+        if (pending != null) {
+            pending.cancel(false); // Ещё не начатая подготовка для старых параметров не нужна
+        }
+        SnakeGame game;
+        try {
+            game = createGame();
+        } catch (IOException e) {
+            logger.info("Ошибка при подготовке игры: ", e);
+            return;
+        }
+        Task<SnakeGame> task = new Task<>() {
+            @Override
+            protected SnakeGame call() {
+                game.prepareEngine();
+                return game;
+            }
+        };
+        task.setOnSucceeded(event -> {
+            if (!key.equals(pendingKey)) return; // Параметры изменились, пока строился движок
+            pendingKey = null;
+            pending = null;
+            try {
+                game.prepare();
+                preparedGame = game;
+                preparedKey = key;
+            } catch (Exception e) {
+                logger.info("Ошибка при подготовке игры: ", e);
+            }
+        });
+        task.setOnFailed(event -> {
+            if (key.equals(pendingKey)) {
+                pendingKey = null;
+                pending = null;
+            }
+            logger.info("Ошибка при подготовке игры: ", task.getException());
+        });
+        pendingKey = key;
+        pending = preparer.submit(task);
+    }
+
     /**
      * Метод для запуска игры с выбранными пользователем параметрами.
-     * При запуске игры передаются выбранные уровень скорости и длина змейки.
+     * Если сцена для этих параметров уже подготовлена, она только показывается.
      *
      * @param primaryStage Ссылка на основной Stage для игры
      */
     private void startGame(Stage primaryStage) {
         try {
-            // Создаем объект игры с переданными параметрами
-            SnakeGame game = new SnakeGame(selectedSpeedLevel, snakeLength);
+            // Берём подготовленную игру, если параметры не изменились, иначе создаём новую
+            SnakeGame game = settingsKey().equals(preparedKey) ? preparedGame : createGame();
+            preparedGame = null;
+            preparedKey = null;
+            pendingKey = null; // Результат незавершённой подготовки больше не нужен
             game.start(primaryStage); // Запуск игры
-            logger.info("Игра успешно запущена с уровнем скорости: " + selectedSpeedLevel + " и длиной змейки: " + snakeLength);
+            preparer.shutdown();
+            logger.info("Игра успешно запущена с уровнем скорости: {} и длиной змейки: {}", selectedSpeedLevel, snakeLength);
 
         } catch (Exception e) {
             // Логируем ошибку при запуске игры
@@ -94,6 +271,42 @@ public class MenuScene extends Application {
         }
     }
 
+    /**
+     * Открывает пакет уровней по пути {@link LevelPack#DEFAULT_PATH}, если файл существует.
+     * Без пакета доступны только стены по периметру.
+     */
+    private void openLevelPack() {
+        if (!Files.exists(LevelPack.DEFAULT_PATH)) {
+            return;
+        }
+        try {
+            levelPack = new LevelPack(LevelPack.DEFAULT_PATH);
+            logger.info("Открыт пакет уровней {}: уровней {}", LevelPack.DEFAULT_PATH, levelPack.size());
+        } catch (IOException e) {
+            logger.error("Не удалось открыть пакет уровней", e);
+        }
+    }
+
+    /**
+     * Открывает хранилище результатов в каталоге {@link ScoreStore#DEFAULT_DIR}.
+     * Хранилище закрывается при завершении процесса, в том числе через {@code System.exit}.
+     */
+    private void openScoreStore() {
+        try {
+            ScoreStore store = new ScoreStore(ScoreStore.DEFAULT_DIR);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    store.close();
+                } catch (IOException e) {
+                    logger.error("Не удалось закрыть хранилище результатов", e);
+                }
+            }, "score-close"));
+            scoreStore = store;
+        } catch (IOException e) {
+            logger.error("Не удалось открыть хранилище результатов, результаты не будут сохраняться", e);
+        }
+    }
+
     /**
      * Главный метод для запуска приложения.
      * Запускает сцену MenuScene.
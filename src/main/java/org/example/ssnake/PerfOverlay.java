@@ -0,0 +1,79 @@
+package org.example.ssnake;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/**
+ * Отладочный слой поверх игры с текущими замерами производительности ({@link PerfStats}).
+ * <p>
+ * Слой — отдельный прозрачный холст, поэтому его отрисовка не сбрасывает кэш слоёв рендерера.
+ * Текст обновляется не чаще {@link #REFRESH_NANOS}, чтобы сам слой почти не влиял на время кадра.
+ * </p>
+ */
+public class PerfOverlay {
+
+    /** Минимальный интервал обновления текста в наносекундах. */
+    public static final long REFRESH_NANOS = 250_000_000L;
+
+    private static final double LINE_HEIGHT = 14; // Высота строки текста в пикселях
+    private static final int LINES = 6; // Количество строк
+
+    private final Canvas canvas; // Холст отладочного слоя
+    private final PerfStats stats; // Замеры производительности
+    private boolean visible = false; // Показан ли слой
+    private long refreshedAt = 0; // Момент последнего обновления текста
+
+    /**
+     * Конструктор отладочного слоя.
+     *
+     * @param canvas Прозрачный холст поверх игры.
+     * @param stats  Замеры производительности.
+     */
+    public PerfOverlay(Canvas canvas, PerfStats stats) {
+        this.canvas = canvas;
+        this.stats = stats;
+    }
+
+    /**
+     * Показывает или скрывает слой.
+     */
+    public void toggle() {
+        visible = !visible;
+        refreshedAt = 0;
+        if (!visible) {
+            canvas.getGraphicsContext2D().clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        }
+    }
+
+    /**
+     * Обновляет текст слоя, если он показан и с прошлого обновления прошло достаточно времени.
+     *
+     * @param now Момент кадра в наносекундах.
+     */
+    public void update(long now) {
+        if (!visible || now - refreshedAt < REFRESH_NANOS) return;
+        refreshedAt = now;
+
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        double width = 300;
+        gc.clearRect(0, 0, width, LINES * LINE_HEIGHT + 8);
+        gc.setFill(Color.color(0, 0, 0, 0.6));
+        gc.fillRect(0, 0, width, LINES * LINE_HEIGHT + 8);
+        gc.setFill(Color.WHITE);
+        double y = LINE_HEIGHT;
+        gc.fillText(String.format("такт: ср %d мкс, p99 %d мкс, макс %d мкс",
+                stats.getTickMeanMicros(), stats.getTickP99Micros(), stats.getTickMaxMicros()), 4, y);
+        y += LINE_HEIGHT;
+        gc.fillText("пропущено тактов: " + stats.getMissedTicks(), 4, y);
+        y += LINE_HEIGHT;
+        gc.fillText(String.format("кадр: p50 %d мкс, p99 %d мкс, макс %d мкс",
+                stats.getFrameIntervalP50Micros(), stats.getFrameIntervalP99Micros(), stats.getFrameIntervalMaxMicros()), 4, y);
+        y += LINE_HEIGHT;
+        gc.fillText("отрисовка p99: " + stats.getRenderP99Micros() + " мкс", 4, y);
+        y += LINE_HEIGHT;
+        gc.fillText("задержка ввода p99: " + stats.getInputLatencyP99Micros() + " мкс", 4, y);
+        y += LINE_HEIGHT;
+        gc.fillText("выделение памяти: " + stats.getAllocationRateKb() + " КБ/с", 4, y);
+    }
+}
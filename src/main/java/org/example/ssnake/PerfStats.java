@@ -0,0 +1,204 @@
+package org.example.ssnake;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Замеры производительности игры: длительность такта, интервал и время отрисовки кадра,
+ * пропущенные такты, скорость выделения памяти и задержка ввода.
+ * <p>
+ * Значения пишутся в {@link LatencyHistogram} без блокировок и доступны через JMX
+ * (объект {@value #OBJECT_NAME}) и в отладочном слое поверх игры ({@link PerfOverlay}).
+ * Замеры включаются свойством {@code -Dsnake.perf=true}. Флаг {@link #ENABLED} — статическая константа,
+ * поэтому при выключенных замерах JIT-компилятор убирает проверки и вызовы таймера целиком.
+ * </p>
+ */
+public class PerfStats implements PerfStatsMBean {
+
+    private static final Logger logger = LogManager.getLogger(PerfStats.class);
+
+    /** Включены ли замеры (свойство {@code snake.perf}). */
+    public static final boolean ENABLED = Boolean.getBoolean("snake.perf");
+
+    /** Имя объекта JMX. */
+    public static final String OBJECT_NAME = "org.example.ssnake:type=PerfStats";
+
+    private static final long ALLOCATION_WINDOW = 1_000_000_000L; // Окно усреднения скорости выделения, нс
+
+    private final SimulationLoop simulation; // Цикл симуляции с гистограммами такта и ввода
+    private final long fxThreadId; // Идентификатор потока JavaFX
+    private final LatencyHistogram frameInterval = new LatencyHistogram(); // Интервал между кадрами
+    private final LatencyHistogram renderDuration = new LatencyHistogram(); // Время отрисовки кадра
+    private long lastFrame = 0; // Момент предыдущего кадра (только поток JavaFX)
+    private long allocationSampleTime = 0; // Момент последнего замера выделения памяти
+    private long allocationSampleBytes = 0; // Выделено байт к моменту последнего замера
+    private long allocationRate = 0; // Скорость выделения памяти, байт/с
+    private ObjectName objectName; // Имя зарегистрированного объекта JMX
+
+    /**
+     * Конструктор замеров. Вызывается из потока JavaFX.
+     *
+     * @param simulation Цикл симуляции.
+     */
+    public PerfStats(SimulationLoop simulation) {
+        this.simulation = simulation;
+        this.fxThreadId = Thread.currentThread().getId();
+    }
+
+    /**
+     * Регистрирует объект в платформенном сервере JMX.
+     * Ошибка регистрации не мешает игре и только записывается в журнал.
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name); // Объект прошлой партии
+            }
+            server.registerMBean(this, name);
+            objectName = name;
+        } catch (JMException e) {
+            logger.error("Не удалось зарегистрировать замеры в JMX", e);
+        }
+    }
+
+    /**
+     * Снимает объект с регистрации в JMX.
+     */
+    public void unregister() {
+        if (objectName == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            logger.error("Не удалось снять замеры с регистрации в JMX", e);
+        }
+        objectName = null;
+    }
+
+    /**
+     * Отмечает начало кадра. Вызывается из таймера анимации.
+     *
+     * @param now Момент кадра в наносекундах.
+     */
+    public void recordFrame(long now) {
+        if (lastFrame != 0) {
+            frameInterval.record(now - lastFrame);
+        }
+        lastFrame = now;
+    }
+
+    /**
+     * Записывает время отрисовки кадра.
+     *
+     * @param nanos Длительность в наносекундах.
+     */
+    public void recordRender(long nanos) {
+        renderDuration.record(nanos);
+    }
+
+    @Override
+    public long getTickCount() {
+        return simulation.getTickDuration().getCount();
+    }
+
+    @Override
+    public long getTickMeanMicros() {
+        return simulation.getTickDuration().getMean() / 1000;
+    }
+
+    @Override
+    public long getTickP99Micros() {
+        return simulation.getTickDuration().getPercentile(99) / 1000;
+    }
+
+    @Override
+    public long getTickMaxMicros() {
+        return simulation.getTickDuration().getMax() / 1000;
+    }
+
+    @Override
+    public long getMissedTicks() {
+        return simulation.getMissedTicks();
+    }
+
+    @Override
+    public long getFrameCount() {
+        return frameInterval.getCount();
+    }
+
+    @Override
+    public long getFrameIntervalP50Micros() {
+        return frameInterval.getPercentile(50) / 1000;
+    }
+
+    @Override
+    public long getFrameIntervalP99Micros() {
+        return frameInterval.getPercentile(99) / 1000;
+    }
+
+    @Override
+    public long getFrameIntervalMaxMicros() {
+        return frameInterval.getMax() / 1000;
+    }
+
+    @Override
+    public long getRenderP99Micros() {
+        return renderDuration.getPercentile(99) / 1000;
+    }
+
+    @Override
+    public long getInputLatencyP99Micros() {
+        return simulation.getInputLatency().getPercentile(99) / 1000;
+    }
+
+    /**
+     * Скорость выделения памяти потоками симуляции и JavaFX, усреднённая за последнюю секунду.
+     *
+     * @return Скорость в КБ/с или 0, если JVM не поддерживает подсчёт выделенной памяти.
+     */
+    @Override
+    public synchronized long getAllocationRateKb() {
+        long now = System.nanoTime();
+        if (now - allocationSampleTime >= ALLOCATION_WINDOW) {
+            long bytes = allocatedBytes();
+            if (allocationSampleTime != 0 && bytes >= allocationSampleBytes) {
+                allocationRate = (bytes - allocationSampleBytes) * 1_000_000_000L / (now - allocationSampleTime);
+            }
+            allocationSampleTime = now;
+            allocationSampleBytes = bytes;
+        }
+        return allocationRate / 1024;
+    }
+
+    @Override
+    public void reset() {
+        simulation.getTickDuration().reset();
+        simulation.getInputLatency().reset();
+        frameInterval.reset();
+        renderDuration.reset();
+    }
+
+    /**
+     * Подсчёт памяти, выделенной потоками симуляции и JavaFX с их запуска.
+     *
+     * @return Количество байт или 0, если подсчёт не поддерживается.
+     */
+    private long allocatedBytes() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return 0;
+        }
+        long bytes = Math.max(0, threads.getThreadAllocatedBytes(fxThreadId));
+        Thread thread = simulation.getThread();
+        if (thread != null) {
+            bytes += Math.max(0, threads.getThreadAllocatedBytes(thread.getId()));
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.ssnake;
+
+/**
+ * JMX-интерфейс замеров производительности игры ({@link PerfStats}).
+ * Все длительности — в микросекундах.
+ */
+public interface PerfStatsMBean {
+
+    /**
+     * @return Количество выполненных тактов.
+     */
+    long getTickCount();
+
+    /**
+     * @return Средняя длительность такта.
+     */
+    long getTickMeanMicros();
+
+    /**
+     * @return 99-й перцентиль длительности такта.
+     */
+    long getTickP99Micros();
+
+    /**
+     * @return Наибольшая длительность такта.
+     */
+    long getTickMaxMicros();
+
+    /**
+     * @return Количество отброшенных тактов симуляции.
+     */
+    long getMissedTicks();
+
+    /**
+     * @return Количество кадров.
+     */
+    long getFrameCount();
+
+    /**
+     * @return Медиана интервала между кадрами.
+     */
+    long getFrameIntervalP50Micros();
+
+    /**
+     * @return 99-й перцентиль интервала между кадрами.
+     */
+    long getFrameIntervalP99Micros();
+
+    /**
+     * @return Наибольший интервал между кадрами.
+     */
+    long getFrameIntervalMaxMicros();
+
+    /**
+     * @return 99-й перцентиль времени отрисовки кадра.
+     */
+    long getRenderP99Micros();
+
+    /**
+     * @return 99-й перцентиль задержки от нажатия клавиши до хода.
+     */
+    long getInputLatencyP99Micros();
+
+    /**
+     * @return Скорость выделения памяти потоками симуляции и JavaFX в КБ/с.
+     */
+    long getAllocationRateKb();
+
+    /**
+     * Сброс всех гистограмм.
+     */
+    void reset();
+}
@@ -0,0 +1,269 @@
+package org.example.ssnake;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.util.Callback;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Рендерер, записывающий цвета клеток прямо в буфер пикселей изображения: один пиксель на клетку.
+ * <p>
+ * Изображение построено поверх {@link PixelBuffer} с прямым {@link IntBuffer}, поэтому JavaFX забирает
+ * пиксели из буфера без копирования в промежуточный массив. До размера окна изображение растягивается
+ * на GPU в {@link ImageView} без сглаживания. Вместо команды {@code fillRect} на каждую клетку кадр
+ * сводится к записи нескольких чисел в буфер, а на GPU передаётся только прямоугольник,
+ * охватывающий изменившиеся клетки (голову, хвост и еду).
+ * </p>
+ * <p>
+ * Включается свойством {@code -Dsnake.renderer=pixel}. На полях больше окна изображение имеет размер
+ * видимой области, и на каждом такте она перерисовывается целиком по снимку окна, как в {@link GameRenderer}.
+ * </p>
+ */
+public class PixelRenderer implements Renderer {
+
+    /** Выбран ли этот рендерер при запуске ({@code -Dsnake.renderer=pixel}). */
+    public static final boolean ENABLED = "pixel".equals(System.getProperty("snake.renderer"));
+
+    private static final int BACKGROUND = 0xFF000000; // Цвет фона (чёрный)
+    private static final int WALL = 0xFFFF0000; // Цвет стен (красный)
+    private static final int SNAKE = 0xFF008000; // Цвет змейки (зелёный)
+    private static final int FOOD = 0xFFFFA500; // Цвет еды (оранжевый)
+
+    private final Board board; // Игровое поле
+    private final Wall wall; // Стены игрового поля
+    private final int viewportWidth; // Ширина изображения в клетках
+    private final int viewportHeight; // Высота изображения в клетках
+    private final boolean scrolling; // Режим прокрутки для полей больше окна
+    private final IntBuffer pixels; // Пиксели изображения, по одному на клетку
+    private final PixelBuffer<IntBuffer> pixelBuffer; // Буфер, разделяемый с изображением
+    private final ImageView view; // Узел сцены, растягивающий изображение до размера окна
+    private final Callback<PixelBuffer<IntBuffer>, Rectangle2D> dirtyRegion = buffer -> dirty(); // Создаётся один раз
+    private final Rectangle2D[] rowBands; // Полосы строк minY..maxY во всю ширину, создаются по одному разу
+    private long renderedTick = -1; // Такт, который сейчас изображён
+    private int renderedFoodCell = GameEngine.NO_FOOD; // Клетка еды, которая сейчас изображена
+    private boolean fullUpdate; // Изменилось всё изображение
+    private int minY; // Верхняя граница изменившихся клеток
+    private int maxY; // Нижняя граница изменившихся клеток (-1, если изменений нет)
+
+    /**
+     * Конструктор рендерера.
+     *
+     * @param board Игровое поле.
+     * @param wall  Стены игрового поля.
+     */
+    public PixelRenderer(Board board, Wall wall) {
+        this.board = board;
+        this.wall = wall;
+        this.viewportWidth = GameRenderer.viewportWidth(board);
+        this.viewportHeight = GameRenderer.viewportHeight(board);
+        this.scrolling = board.getWidth() > viewportWidth || board.getHeight() > viewportHeight;
+        // Прямой буфер в порядке байтов платформы: JavaFX читает его без преобразования
+        this.pixels = ByteBuffer.allocateDirect(viewportWidth * viewportHeight * Integer.BYTES)
+                .order(ByteOrder.nativeOrder()).asIntBuffer();
+        this.pixelBuffer = new PixelBuffer<>(viewportWidth, viewportHeight, pixels, PixelFormat.getIntArgbPreInstance());
+        this.view = new ImageView(new WritableImage(pixelBuffer));
+        this.rowBands = new Rectangle2D[viewportHeight * viewportHeight];
+        view.setSmooth(false); // Каждый пиксель растягивается в квадрат клетки без размытия
+        view.setFitWidth(viewportWidth * GameRenderer.CELL_SIZE);
+        view.setFitHeight(viewportHeight * GameRenderer.CELL_SIZE);
+    }
+
+    /**
+     * Получение узла сцены с изображением поля.
+     *
+     * @return Узел с изображением, растянутым до размера окна.
+     */
+    public ImageView getView() {
+        return view;
+    }
+
+    @Override
+    public boolean render(GameSnapshot snapshot) {
+        if (!canDraw(snapshot)) {
+            return false;
+        }
+        if (draw(snapshot)) {
+            pixelBuffer.updateBuffer(dirtyRegion);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isScrolling() {
+        return scrolling;
+    }
+
+    /**
+     * Проверка, можно ли нарисовать кадр по снимку: в режиме прокрутки нужен снимок окна,
+     * а для полной перерисовки без прокрутки — клетки всего тела змейки.
+     *
+     * @param snapshot Снимок состояния игры.
+     * @return true, если снимка достаточно для кадра.
+     */
+    private boolean canDraw(GameSnapshot snapshot) {
+        if (scrolling) return snapshot.hasViewport();
+        long tick = snapshot.getTick();
+        return snapshot.hasBody() || (renderedTick >= 0 && (tick == renderedTick || tick == renderedTick + 1));
+    }
+
+    /**
+     * Запись кадра в буфер пикселей без передачи изображения на GPU.
+     * Вынесена из {@link #render(GameSnapshot)}, чтобы подготовку кадра можно было замерить вне потока JavaFX.
+     * Для полной перерисовки снимок должен содержать клетки тела ({@link GameSnapshot#full(GameEngine)}),
+     * а в режиме прокрутки — видимую область ({@link GameSnapshot#viewport(GameEngine, int, int)}).
+     *
+     * @param snapshot Снимок состояния игры.
+     * @return true, если пиксели изменились и изображение нужно обновить.
+     */
+    public boolean draw(GameSnapshot snapshot) {
+        long tick = snapshot.getTick();
+        if (tick == renderedTick) return false;
+        fullUpdate = false;
+        minY = Integer.MAX_VALUE;
+        maxY = -1;
+        if (scrolling) {
+            drawViewport(snapshot);
+        } else if (renderedTick >= 0 && tick == renderedTick + 1) {
+            drawDelta(snapshot);
+        } else {
+            redraw(snapshot);
+        }
+        renderedTick = tick;
+        return fullUpdate || maxY >= 0;
+    }
+
+    @Override
+    public void invalidate() {
+        renderedTick = -1;
+    }
+
+    /**
+     * Полная перерисовка: фон, стены, змейка и еда.
+     *
+     * @param snapshot Снимок состояния игры.
+     */
+    private void redraw(GameSnapshot snapshot) {
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            pixels.put(cell, BACKGROUND);
+        }
+        for (int cell = wall.nextWall(0); cell >= 0; cell = wall.nextWall(cell + 1)) {
+            pixels.put(cell, WALL);
+        }
+        for (int i = 0; i < snapshot.getBodyLength(); i++) {
+            pixels.put(snapshot.getBodyCell(i), SNAKE);
+        }
+        int food = snapshot.getFoodCell();
+        if (food >= 0) {
+            pixels.put(food, FOOD);
+        }
+        renderedFoodCell = food;
+        fullUpdate = true;
+    }
+
+    /**
+     * Перерисовка только изменившихся за последний такт клеток.
+     *
+     * @param snapshot Снимок состояния игры.
+     */
+    private void drawDelta(GameSnapshot snapshot) {
+        int removed = snapshot.getRemovedCell();
+        if (removed >= 0) {
+            put(removed, BACKGROUND);
+        }
+        int added = snapshot.getAddedCell();
+        if (added >= 0) {
+            put(added, SNAKE);
+        }
+        // Съеденная еда закрашена головой, поэтому рисуется только новая
+        int food = snapshot.getFoodCell();
+        if (food != renderedFoodCell && food >= 0) {
+            put(food, FOOD);
+        }
+        renderedFoodCell = food;
+    }
+
+    /**
+     * Перерисовка видимой области в режиме прокрутки по снимку окна.
+     * Камера центрируется на голове змейки; поле замкнуто, поэтому видимая область тоже переходит через край.
+     *
+     * @param snapshot Снимок окна.
+     */
+    private void drawViewport(GameSnapshot snapshot) {
+        int width = board.getWidth();
+        int height = board.getHeight();
+        int cameraX = snapshot.getCameraX();
+        int cameraY = snapshot.getCameraY();
+
+        // Фон, стены и сегменты змейки в видимых клетках
+        for (int vy = 0; vy < viewportHeight; vy++) {
+            int y = (cameraY + vy) % height;
+            for (int vx = 0; vx < viewportWidth; vx++) {
+                int color = wall.isWall(board.cell((cameraX + vx) % width, y)) ? WALL
+                        : snapshot.isSnakeVisible(vx, vy) ? SNAKE : BACKGROUND;
+                pixels.put(vy * viewportWidth + vx, color);
+            }
+        }
+
+        // Еда, если она попала в видимую область
+        int food = snapshot.getFoodCell();
+        if (food >= 0) {
+            putVisible(food, cameraX, cameraY, FOOD);
+        }
+        renderedFoodCell = food;
+        fullUpdate = true;
+    }
+
+    /**
+     * Закрашивает клетку в режиме прокрутки, если она попала в видимую область.
+     *
+     * @param cell    Номер клетки поля.
+     * @param cameraX Левый край видимой области.
+     * @param cameraY Верхний край видимой области.
+     * @param color   Цвет.
+     */
+    private void putVisible(int cell, int cameraX, int cameraY, int color) {
+        int vx = Math.floorMod(board.x(cell) - cameraX, board.getWidth());
+        int vy = Math.floorMod(board.y(cell) - cameraY, board.getHeight());
+        if (vx < viewportWidth && vy < viewportHeight) {
+            pixels.put(vy * viewportWidth + vx, color);
+        }
+    }
+
+    /**
+     * Закрашивает клетку и расширяет полосу изменившихся строк.
+     *
+     * @param cell  Номер клетки.
+     * @param color Цвет.
+     */
+    private void put(int cell, int color) {
+        pixels.put(cell, color);
+        int y = board.y(cell);
+        minY = Math.min(minY, y);
+        maxY = Math.max(maxY, y);
+    }
+
+    /**
+     * Прямоугольник изменившихся пикселей для {@link PixelBuffer#updateBuffer(Callback)}.
+     * {@link Rectangle2D} неизменяем, поэтому границы копятся в полях, а прямоугольник берётся из кэша
+     * полос во всю ширину изображения: строка — это {@code viewportWidth} пикселей, и передать её целиком
+     * дешевле, чем создавать объект на каждый кадр.
+     *
+     * @return Прямоугольник или null, если изменилось всё изображение.
+     */
+    private Rectangle2D dirty() {
+        if (fullUpdate) return null;
+        int index = minY * viewportHeight + maxY;
+        Rectangle2D band = rowBands[index];
+        if (band == null) {
+            band = new Rectangle2D(0, minY, viewportWidth, maxY - minY + 1);
+            rowBands[index] = band;
+        }
+        return band;
+    }
+}
@@ -36,4 +36,15 @@ public class Point {
         return x == point.x && y == point.y;  // Сравниваем координаты
     }
 
+    /**
+     * Переопределение метода hashCode в согласии с {@link #equals(Object)}.
+     * Позволяет использовать точки в хеш-коллекциях.
+     *
+     * @return хеш-код точки
+     */
+    @Override
+    public int hashCode() {
+        return 31 * x + y;
+    }
+
 }
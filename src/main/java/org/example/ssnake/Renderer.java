@@ -0,0 +1,37 @@
+package org.example.ssnake;
+
+/**
+ * Способ отрисовки снимков состояния игры ({@link GameSnapshot}).
+ * <p>
+ * Реализация выбирается при запуске свойством {@code -Dsnake.renderer}: {@link GameRenderer} рисует
+ * командами холста {@link javafx.scene.canvas.Canvas} (по умолчанию), а {@link PixelRenderer}
+ * ({@code -Dsnake.renderer=pixel}) пишет цвета клеток прямо в буфер пикселей изображения.
+ * </p>
+ */
+public interface Renderer {
+
+    /**
+     * Отрисовка снимка состояния игры. Вызывается из потока JavaFX.
+     * Повторный вызов с тем же снимком ничего не рисует. Если кадр нужно перерисовать целиком,
+     * а снимок содержит только изменения ({@link GameSnapshot#hasBody()} ложно), ничего не рисуется,
+     * и вызывающий должен запросить полный снимок. В режиме прокрутки рисуются только снимки окна
+     * ({@link GameSnapshot#hasViewport()}).
+     *
+     * @param snapshot Снимок состояния игры.
+     * @return false, если для кадра нужен полный снимок.
+     */
+    boolean render(GameSnapshot snapshot);
+
+    /**
+     * Проверка режима прокрутки: поле больше окна, и каждый снимок должен содержать видимую область
+     * размером {@link GameRenderer#viewportWidth(Board)}x{@link GameRenderer#viewportHeight(Board)} клеток.
+     *
+     * @return true в режиме прокрутки.
+     */
+    boolean isScrolling();
+
+    /**
+     * Сбрасывает кэш рендерера, чтобы следующий кадр был перерисован полностью.
+     */
+    void invalidate();
+}
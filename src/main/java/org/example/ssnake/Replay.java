@@ -0,0 +1,50 @@
+package org.example.ssnake;
+
+/**
+ * Общие константы двоичного формата записи партии.
+ * <p>
+ * Файл начинается с заголовка:
+ * </p>
+ * <pre>
+ * int   MAGIC ("SNKR")
+ * byte  VERSION
+ * long  зерно генератора случайных чисел
+ * int   начальная длина змейки
+ * int   уровень скорости из меню
+ * int   ширина поля
+ * int   высота поля
+ * int   номер уровня в {@link LevelPack} или -1 для стен по периметру
+ * </pre>
+ * <p>
+ * Далее идут записи переменной длины (varint): {@code (delta << 3) | code}, где {@code delta} —
+ * количество тактов с предыдущей записи, а {@code code} — номер направления ({@link Direction#ordinal()})
+ * или {@link #END}. Направление применяется перед тактом с соответствующим номером.
+ * Запись {@link #END} содержит номер последнего такта и завершает файл.
+ * </p>
+ */
+final class Replay {
+
+    /** Сигнатура файла записи партии. */
+    static final int MAGIC = 0x534E4B52; // "SNKR"
+
+    /** Версия формата. */
+    static final byte VERSION = 4;
+
+    /** Размер заголовка в байтах. */
+    static final int HEADER_SIZE = 33;
+
+    /** Номер уровня для стен по периметру поля. */
+    static final int BORDER_LEVEL = -1;
+
+    /** Код записи, завершающей партию. */
+    static final int END = 4;
+
+    /** Количество бит под код записи. */
+    static final int CODE_BITS = 3;
+
+    /** Маска кода записи. */
+    static final int CODE_MASK = (1 << CODE_BITS) - 1;
+
+    private Replay() {
+    }
+}
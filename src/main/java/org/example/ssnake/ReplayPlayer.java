@@ -0,0 +1,106 @@
+package org.example.ssnake;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Класс для воспроизведения записанной партии без графики с максимальной скоростью.
+ * <p>
+ * Движок создаётся с теми же зерном, начальной длиной и уровнем, что и в записи, и ходы применяются
+ * перед теми же тактами, поэтому партия проходит в точности так же, как была сыграна.
+ * Это позволяет воспроизводить ошибки и измерять скорость движка на реальных партиях.
+ * </p>
+ */
+public class ReplayPlayer {
+
+    private static final Logger logger = LogManager.getLogger(ReplayPlayer.class);
+
+    /**
+     * Воспроизводит запись на новом движке.
+     * Если партия сыграна на уровне из пакета, пакет открывается по пути {@link LevelPack#DEFAULT_PATH}.
+     *
+     * @param reader Открытая запись партии.
+     * @return Движок в состоянии на момент окончания записи.
+     * @throws IOException Если в записи указаны недопустимые параметры партии.
+     */
+    public static GameEngine play(ReplayReader reader) throws IOException {
+        return play(reader, reader.getLevel() == Replay.BORDER_LEVEL ? null : new LevelPack(LevelPack.DEFAULT_PATH));
+    }
+
+    /**
+     * Воспроизводит запись на новом движке с уровнями из заданного пакета.
+     *
+     * @param reader Открытая запись партии.
+     * @param pack   Пакет уровней или null, если партия сыграна со стенами по периметру.
+     * @return Движок в состоянии на момент окончания записи.
+     * @throws IOException Если в записи указаны недопустимые параметры партии.
+     */
+    public static GameEngine play(ReplayReader reader, LevelPack pack) throws IOException {
+        return play(reader, pack, null);
+    }
+
+    /**
+     * Воспроизводит запись на новом движке, сообщая о каждом такте (например, для вывода кадров).
+     *
+     * @param reader Открытая запись партии.
+     * @param pack   Пакет уровней или null, если партия сыграна со стенами по периметру.
+     * @param onTick Получает движок в начальном состоянии и после каждого такта или null.
+     * @return Движок в состоянии на момент окончания записи.
+     * @throws IOException Если в записи указаны недопустимые параметры партии.
+     */
+    public static GameEngine play(ReplayReader reader, LevelPack pack, Consumer<GameEngine> onTick) throws IOException {
+        if (reader.getLevel() != Replay.BORDER_LEVEL && pack == null) {
+            throw new IOException("Партия сыграна на уровне " + reader.getLevel() + ", но пакет уровней не задан");
+        }
+        GameEngine engine;
+        try {
+            Board board = new Board(reader.getBoardWidth(), reader.getBoardHeight());
+            Wall wall = reader.getLevel() == Replay.BORDER_LEVEL
+                    ? new Wall(board.getWidth(), board.getHeight())
+                    : pack.getLevel(reader.getLevel());
+            engine = new GameEngine(board, wall, reader.getInitialLength(), reader.getSeed());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Неверные параметры партии в записи", e);
+        }
+        if (onTick != null) {
+            onTick.accept(engine);
+        }
+        while (reader.next()) {
+            // Доигрываем такты до следующей записи
+            while (engine.getTick() < reader.getTick() && !engine.isGameOver()) {
+                engine.step();
+                if (onTick != null) {
+                    onTick.accept(engine);
+                }
+            }
+            if (reader.isEnd()) {
+                break;
+            }
+            engine.setDirection(reader.getDirection());
+        }
+        return engine;
+    }
+
+    /**
+     * Точка входа для воспроизведения записи из командной строки.
+     *
+     * @param args Путь к файлу записи и, если партия сыграна на уровне из пакета, путь к пакету уровней.
+     * @throws IOException Если запись не удалось прочитать.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Использование: ReplayPlayer <файл записи> [пакет уровней]");
+            return;
+        }
+        ReplayReader reader = new ReplayReader(Path.of(args[0]));
+        long start = System.nanoTime();
+        GameEngine engine = args.length == 2 ? play(reader, new LevelPack(Path.of(args[1]))) : play(reader);
+        long elapsed = Math.max(1, System.nanoTime() - start);
+        logger.info("Запись воспроизведена: тактов {}, игра завершена: {}, скорость {} тактов/с",
+                engine.getTick(), engine.isGameOver(), engine.getTick() * 1_000_000_000L / elapsed);
+    }
+}
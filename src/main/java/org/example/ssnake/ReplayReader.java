@@ -0,0 +1,157 @@
+package org.example.ssnake;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Класс для чтения записи партии (формат описан в {@link Replay}).
+ * <p>
+ * Файл отображается в память целиком, поэтому чтение записей не выполняет системных вызовов
+ * и не создаёт объектов. Записи читаются последовательно методом {@link #next()}.
+ * </p>
+ */
+public class ReplayReader {
+
+    private static final Direction[] DIRECTIONS = Direction.values(); // Направления по номеру
+
+    private final MappedByteBuffer buffer; // Отображённый в память файл
+    private final long seed; // Зерно генератора случайных чисел
+    private final int initialLength; // Начальная длина змейки
+    private final int speedLevel; // Уровень скорости
+    private final int boardWidth; // Ширина поля
+    private final int boardHeight; // Высота поля
+    private final int level; // Номер уровня
+    private long tick = 0; // Такт текущей записи
+    private int code = -1; // Код текущей записи
+
+    /**
+     * Открывает файл записи и читает заголовок.
+     *
+     * @param path Путь к файлу записи.
+     * @throws IOException Если файл не удалось прочитать или он имеет неверный формат.
+     */
+    public ReplayReader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < Replay.HEADER_SIZE || buffer.getInt() != Replay.MAGIC) {
+            throw new IOException("Файл не является записью партии: " + path);
+        }
+        byte version = buffer.get();
+        if (version != Replay.VERSION) {
+            throw new IOException("Неподдерживаемая версия записи партии: " + version);
+        }
+        seed = buffer.getLong();
+        initialLength = buffer.getInt();
+        speedLevel = buffer.getInt();
+        boardWidth = buffer.getInt();
+        boardHeight = buffer.getInt();
+        level = buffer.getInt();
+    }
+
+    /**
+     * Переходит к следующей записи.
+     *
+     * @return true, если запись прочитана, false, если файл закончился.
+     */
+    public boolean next() {
+        if (!buffer.hasRemaining() || code == Replay.END) {
+            return false;
+        }
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0 && buffer.hasRemaining());
+        tick += value >>> Replay.CODE_BITS;
+        code = (int) (value & Replay.CODE_MASK);
+        return true;
+    }
+
+    /**
+     * Получение номера такта текущей записи.
+     *
+     * @return Номер такта.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Проверка, является ли текущая запись завершением партии.
+     *
+     * @return true для завершающей записи.
+     */
+    public boolean isEnd() {
+        return code == Replay.END;
+    }
+
+    /**
+     * Получение направления текущей записи.
+     *
+     * @return Направление или null для завершающей записи.
+     */
+    public Direction getDirection() {
+        return code >= 0 && code < Replay.END ? DIRECTIONS[code] : null;
+    }
+
+    /**
+     * Получение зерна генератора случайных чисел партии.
+     *
+     * @return Зерно.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Получение начальной длины змейки.
+     *
+     * @return Начальная длина.
+     */
+    public int getInitialLength() {
+        return initialLength;
+    }
+
+    /**
+     * Получение уровня скорости, выбранного в меню.
+     *
+     * @return Уровень скорости.
+     */
+    public int getSpeedLevel() {
+        return speedLevel;
+    }
+
+    /**
+     * Получение ширины поля.
+     *
+     * @return Ширина поля в клетках.
+     */
+    public int getBoardWidth() {
+        return boardWidth;
+    }
+
+    /**
+     * Получение высоты поля.
+     *
+     * @return Высота поля в клетках.
+     */
+    public int getBoardHeight() {
+        return boardHeight;
+    }
+
+    /**
+     * Получение номера уровня.
+     *
+     * @return Номер уровня в пакете или -1 для стен по периметру.
+     */
+    public int getLevel() {
+        return level;
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.ssnake;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Класс для записи партии в компактный двоичный файл (формат описан в {@link Replay}).
+ * <p>
+ * Записи накапливаются в буфере и сбрасываются в {@link FileChannel} только при его заполнении
+ * и при закрытии, поэтому запись хода в игровом такте не обращается к диску и не создаёт объектов.
+ * </p>
+ */
+public class ReplayWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024; // Размер буфера записи
+
+    private final FileChannel channel; // Канал файла записи
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE); // Буфер записей
+    private long lastTick = 0; // Такт предыдущей записи
+    private boolean finished = false; // Записана ли завершающая запись
+
+    /**
+     * Создаёт файл записи и пишет заголовок.
+     *
+     * @param path       Путь к файлу записи.
+     * @param engine     Движок в начальном состоянии.
+     * @param speedLevel Уровень скорости из меню.
+     * @throws IOException Если файл не удалось создать.
+     */
+    public ReplayWriter(Path path, GameEngine engine, int speedLevel) throws IOException {
+        this(path, engine, speedLevel, Replay.BORDER_LEVEL);
+    }
+
+    /**
+     * Создаёт файл записи партии на уровне из пакета и пишет заголовок.
+     *
+     * @param path       Путь к файлу записи.
+     * @param engine     Движок в начальном состоянии.
+     * @param speedLevel Уровень скорости из меню.
+     * @param level      Номер уровня в {@link LevelPack} или -1 для стен по периметру.
+     * @throws IOException Если файл не удалось создать.
+     */
+    public ReplayWriter(Path path, GameEngine engine, int speedLevel, int level) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.putInt(Replay.MAGIC);
+        buffer.put(Replay.VERSION);
+        buffer.putLong(engine.getSeed());
+        buffer.putInt(engine.getInitialLength());
+        buffer.putInt(speedLevel);
+        buffer.putInt(engine.getBoard().getWidth());
+        buffer.putInt(engine.getBoard().getHeight());
+        buffer.putInt(level);
+    }
+
+    /**
+     * Записывает применённую смену направления.
+     *
+     * @param tick      Номер такта, перед которым применено направление.
+     * @param direction Новое направление.
+     * @throws IOException Если не удалось сбросить буфер в файл.
+     */
+    public void recordInput(long tick, Direction direction) throws IOException {
+        writeRecord(tick, direction.ordinal());
+    }
+
+    /**
+     * Записывает завершение партии. Повторные вызовы игнорируются.
+     *
+     * @param tick Номер последнего такта.
+     * @throws IOException Если не удалось сбросить буфер в файл.
+     */
+    public void finish(long tick) throws IOException {
+        if (!finished) {
+            writeRecord(tick, Replay.END);
+            finished = true;
+        }
+    }
+
+    /**
+     * Сбрасывает буфер и закрывает файл.
+     *
+     * @throws IOException Если не удалось записать данные.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Записывает одну запись в формате varint.
+     *
+     * @param tick Номер такта.
+     * @param code Код записи.
+     * @throws IOException Если не удалось сбросить буфер в файл.
+     */
+    private void writeRecord(long tick, int code) throws IOException {
+        if (buffer.remaining() < 10) {
+            flush();
+        }
+        long value = ((tick - lastTick) << Replay.CODE_BITS) | code;
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+        lastTick = tick;
+    }
+
+    /**
+     * Сбрасывает накопленные записи в файл.
+     *
+     * @throws IOException Если не удалось записать данные.
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.ssnake;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Кольцевой буфер последних снимков состояния движка для перемотки партии назад.
+ * <p>
+ * Буфер хранит не больше заданного количества снимков ({@link GameEngine#saveState(ByteBuffer, boolean)}),
+ * записанных после каждого такта; самый старый снимок вытесняется новым. Каждая ячейка — свой
+ * {@link ByteBuffer}, который выделяется один раз и переиспользуется, а заменяется на больший лишь тогда,
+ * когда выросшая змейка в него не помещается. Поэтому запись снимка на каждом такте не нагружает сборщик мусора.
+ * </p>
+ * <p>
+ * Стены в пределах уровня не меняются, поэтому в снимки не входят: перемотка выполняется на текущих
+ * стенах движка. Если движок находится в состоянии самого нового снимка, перемотка отменяет изменения
+ * индекса свободных клеток такт за тактом и восстанавливает партию точно, включая будущую еду.
+ * Буфер не потокобезопасен и используется потоком, владеющим движком.
+ * </p>
+ */
+public class RewindBuffer {
+
+    private final ByteBuffer[] slots; // Ячейки снимков
+    private int newest = -1; // Индекс самого нового снимка
+    private int size = 0; // Количество снимков в буфере
+
+    /**
+     * Конструктор буфера.
+     *
+     * @param capacity Наибольшее количество хранимых снимков.
+     */
+    public RewindBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Ёмкость буфера перемотки должна быть положительной: " + capacity);
+        }
+        slots = new ByteBuffer[capacity];
+    }
+
+    /**
+     * Записывает снимок текущего состояния движка, вытесняя самый старый снимок при заполнении буфера.
+     *
+     * @param engine Игровой движок.
+     */
+    public void record(GameEngine engine) {
+        int index = (newest + 1) % slots.length;
+        int required = engine.getStateSize(false);
+        ByteBuffer slot = slots[index];
+        if (slot == null || slot.capacity() < required) {
+            // С запасом, чтобы растущая змейка не требовала новой ячейки на каждом такте
+            slot = ByteBuffer.allocate(Math.max(required * 2, 64));
+            slots[index] = slot;
+        }
+        slot.clear();
+        engine.saveState(slot, false);
+        slot.flip();
+        newest = index;
+        size = Math.min(size + 1, slots.length);
+    }
+
+    /**
+     * Перематывает партию назад: восстанавливает в движке снимок, записанный за заданное количество
+     * снимков до самого нового. Более новые снимки отбрасываются, восстановленный становится самым новым.
+     * Если столько снимков нет, движок возвращается к самому старому из них.
+     *
+     * @param engine Игровой движок того же поля.
+     * @param ticks  На сколько снимков назад перемотать.
+     * @return На сколько снимков фактически выполнена перемотка (0, если буфер пуст).
+     */
+    public int rewind(GameEngine engine, int ticks) {
+        if (ticks < 0) {
+            throw new IllegalArgumentException("Количество тактов перемотки не может быть отрицательным: " + ticks);
+        }
+        if (size == 0) return 0;
+        int back = Math.min(ticks, size - 1);
+        int index = Math.floorMod(newest - back, slots.length);
+        // Изменения индекса свободных клеток отменяются от самого нового снимка к нужному, чтобы вернуть
+        // и порядок клеток в индексе: тогда продолжение партии выбирает ту же еду, что и исходная
+        boolean undo = engine.isAt(slots[newest]);
+        if (undo) {
+            for (int i = 0; i < back; i++) {
+                engine.undoFreeCells(slots[Math.floorMod(newest - i, slots.length)]);
+            }
+        }
+        ByteBuffer slot = slots[index];
+        slot.rewind();
+        engine.restoreState(slot, undo);
+        newest = index;
+        size -= back;
+        return back;
+    }
+
+    /**
+     * Получение количества снимков в буфере.
+     *
+     * @return Количество снимков.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Получение наибольшего количества хранимых снимков.
+     *
+     * @return Ёмкость буфера.
+     */
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Удаляет все снимки. Выделенные ячейки сохраняются для повторного использования.
+     */
+    public void clear() {
+        newest = -1;
+        size = 0;
+    }
+}
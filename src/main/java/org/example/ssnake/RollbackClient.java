@@ -0,0 +1,306 @@
+package org.example.ssnake;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Сетевой клиент с локальным предсказанием тактов и откатом при расхождении с сервером.
+ * <p>
+ * Клиент не ждёт сервера: каждый такт он выполняет на своём {@link GameEngine} с тем же зерном, что и сервер,
+ * поэтому движение, рост и еда предсказываются точно по правилам {@link Snake#move(boolean)}, а поворот
+ * игрока виден сразу. Поворот получает номер такта, на котором применяется, и уходит на сервер. Сервер
+ * применяет не больше одного поворота за такт, в порядке отправки, но не раньше его такта; опоздавший
+ * поворот применяется на первом свободном такте сервера. Клиент предсказывает его поведение по тому же правилу.
+ * </p>
+ * <p>
+ * После каждого такта снимок состояния записывается в {@link RewindBuffer}. Если подтверждение сервера
+ * для уже предсказанного такта расходится с тем, что применил клиент (обычно поворот дошёл с опозданием),
+ * клиент восстанавливает снимок перед этим тактом и заново выполняет такты до текущего: подтверждённые —
+ * с вводом сервера, остальные — с ещё не подтверждёнными поворотами. Снимок и такт занимают единицы
+ * микросекунд и не создают объектов, поэтому откат на десятки тактов укладывается в один кадр.
+ * </p>
+ * <p>
+ * Предсказание не уходит от последнего подтверждённого такта дальше чем на {@code window} тактов:
+ * дальше клиент ждёт сервер, потому что откатиться так далеко было бы нельзя. Если клиент отстал от сервера
+ * (например, кадры не рисовались из-за паузы сборщика мусора), подтверждённые такты выполняются сразу,
+ * а не по одному за кадр. Ввод сервера хранится для {@code window + 1} последних тактов, поэтому
+ * подтверждение, которое затёрло бы ещё не выполненный такт, сначала заставляет клиента догнать сервер.
+ * Клиент не потокобезопасен и используется потоком игрового цикла.
+ * </p>
+ */
+public class RollbackClient {
+
+    private static final Logger logger = LogManager.getLogger(RollbackClient.class);
+
+    private static final Direction[] DIRECTIONS = Direction.values(); // Направления по номеру
+    private static final int NONE = -1; // Нет ввода
+
+    private final GameEngine engine; // Предсказанное состояние
+    private final RollbackTransport transport; // Связь с сервером
+    private final RollbackTransport.Receiver receiver = this::confirm; // Получатель подтверждений (создаётся один раз)
+    private final RewindBuffer history; // Снимки после каждого из последних тактов
+    private final int window; // Наибольшее опережение сервера в тактах
+    private final long[] appliedInput; // Такт ввода, применённого клиентом на такте (NONE — без ввода)
+    private final long[] confirmedInput; // Такт ввода, применённого сервером на такте
+    private final byte[] confirmedDirection; // Направление, применённое сервером на такте
+    private final long[] pendingTick; // Неподтверждённые повороты: такт отправки (по порядку отправки)
+    private final byte[] pendingDirection; // Неподтверждённые повороты: направление
+    private long pendingHead = 0; // Номер первого неподтверждённого поворота
+    private long pendingTail = 0; // Номер следующего поворота
+    private long predictCursor = 0; // Номер следующего поворота, ещё не применённого в предсказании
+    private long lastInputTick; // Такт последнего отправленного поворота
+    private long confirmedTick; // Последний подтверждённый такт
+    private long mismatchTick = Long.MAX_VALUE; // Самый ранний такт, на котором предсказание разошлось с сервером
+    private long rollbacks = 0; // Количество откатов
+    private long resimulatedTicks = 0; // Количество повторно выполненных тактов
+    private long maxRollbackNanos = 0; // Наибольшая длительность одного отката
+
+    /**
+     * Конструктор клиента.
+     *
+     * @param engine    Движок в том же начальном состоянии, что и у сервера.
+     * @param transport Связь с сервером.
+     * @param window    Наибольшее опережение сервера в тактах (и глубина отката).
+     */
+    public RollbackClient(GameEngine engine, RollbackTransport transport, int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Глубина отката должна быть положительной: " + window);
+        }
+        this.engine = engine;
+        this.transport = transport;
+        this.window = window;
+        this.history = new RewindBuffer(window + 1);
+        this.appliedInput = new long[window + 1];
+        this.confirmedInput = new long[window + 1];
+        this.confirmedDirection = new byte[window + 1];
+        this.pendingTick = new long[window];
+        this.pendingDirection = new byte[window];
+        this.confirmedTick = engine.getTick();
+        this.lastInputTick = engine.getTick();
+        history.record(engine);
+    }
+
+    /**
+     * Поворот игрока: применяется на следующем свободном такте предсказания и отправляется на сервер.
+     * За такт применяется не больше одного поворота, следующие переносятся на последующие такты.
+     *
+     * @param direction Новое направление.
+     * @return true, если поворот принят, false, если неподтверждённых поворотов слишком много.
+     */
+    public boolean input(Direction direction) {
+        if (pendingTail - pendingHead == pendingTick.length) {
+            return false;
+        }
+        long tick = Math.max(engine.getTick() + 1, lastInputTick + 1);
+        int index = (int) (pendingTail % pendingTick.length);
+        pendingTick[index] = tick;
+        pendingDirection[index] = (byte) direction.ordinal();
+        pendingTail++;
+        lastInputTick = tick;
+        transport.send(tick, direction);
+        return true;
+    }
+
+    /**
+     * Один кадр клиента: принимает подтверждения, при расхождении откатывается и выполняет очередной такт
+     * предсказания. Метод не создаёт объектов.
+     *
+     * @return true, если такт выполнен, false, если игра завершена или клиент ждёт сервер.
+     */
+    public boolean tick() {
+        transport.poll(receiver);
+        catchUp(confirmedTick);
+        if (engine.isGameOver() || engine.getTick() - confirmedTick >= window) {
+            return false;
+        }
+        step();
+        return true;
+    }
+
+    /**
+     * Обработка подтверждения такта сервера.
+     *
+     * @param tick      Номер такта.
+     * @param direction Номер применённого направления или -1.
+     * @param inputTick Такт применённого ввода или -1.
+     */
+    private void confirm(long tick, int direction, long inputTick) {
+        if (tick - appliedInput.length >= Math.min(mismatchTick, engine.getTick() + 1)) {
+            // Ячейка такта ещё нужна для отката или повторного выполнения: сначала догоняем сервер
+            catchUp(tick - appliedInput.length);
+        }
+        int slot = (int) (tick % appliedInput.length);
+        confirmedInput[slot] = inputTick;
+        confirmedDirection[slot] = (byte) direction;
+        confirmedTick = tick;
+        if (inputTick != NONE) {
+            // Сервер применяет повороты в порядке отправки, поэтому подтверждён первый из неподтверждённых
+            pendingHead++;
+            predictCursor = Math.max(predictCursor, pendingHead);
+        }
+        if (tick <= engine.getTick() && appliedInput[slot] != inputTick) {
+            mismatchTick = Math.min(mismatchTick, tick);
+        }
+    }
+
+    /**
+     * Откат к первому расхождению с сервером, если оно есть, и выполнение подтверждённых тактов до заданного.
+     *
+     * @param targetTick Такт, до которого выполняются подтверждённые такты (не дальше {@code confirmedTick}).
+     */
+    private void catchUp(long targetTick) {
+        if (mismatchTick <= engine.getTick()) {
+            rollback(mismatchTick);
+        }
+        mismatchTick = Long.MAX_VALUE;
+        while (engine.getTick() < targetTick && !engine.isGameOver()) {
+            step();
+        }
+    }
+
+    /**
+     * Откат к состоянию перед тактом и повторное выполнение тактов до текущего.
+     *
+     * @param fromTick Первый такт, выполненный клиентом не так, как сервером.
+     */
+    private void rollback(long fromTick) {
+        long start = System.nanoTime();
+        long target = engine.getTick();
+        long back = target - (fromTick - 1);
+        if (history.rewind(engine, (int) back) != back) {
+            throw new IllegalStateException("Откат на " + back + " тактов глубже буфера снимков");
+        }
+        predictCursor = pendingHead;
+        while (engine.getTick() < target && !engine.isGameOver()) {
+            step();
+            resimulatedTicks++;
+        }
+        rollbacks++;
+        maxRollbackNanos = Math.max(maxRollbackNanos, System.nanoTime() - start);
+    }
+
+    /**
+     * Выполняет очередной такт: с вводом сервера, если такт подтверждён, иначе с неподтверждённым поворотом.
+     */
+    private void step() {
+        long tick = engine.getTick() + 1;
+        int slot = (int) (tick % appliedInput.length);
+        long input = NONE;
+        if (tick <= confirmedTick) {
+            input = confirmedInput[slot];
+            if (input != NONE) {
+                engine.setDirection(DIRECTIONS[confirmedDirection[slot]]);
+            }
+        } else if (predictCursor < pendingTail) {
+            int index = (int) (predictCursor % pendingTick.length);
+            if (pendingTick[index] <= tick) {
+                input = pendingTick[index];
+                engine.setDirection(DIRECTIONS[pendingDirection[index]]);
+                predictCursor++;
+            }
+        }
+        appliedInput[slot] = input;
+        engine.step();
+        history.record(engine);
+    }
+
+    /**
+     * Получение движка с предсказанным состоянием (для отрисовки).
+     *
+     * @return Движок клиента.
+     */
+    public GameEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Получение последнего подтверждённого сервером такта.
+     *
+     * @return Номер такта.
+     */
+    public long getConfirmedTick() {
+        return confirmedTick;
+    }
+
+    /**
+     * Получение количества откатов.
+     *
+     * @return Количество откатов.
+     */
+    public long getRollbacks() {
+        return rollbacks;
+    }
+
+    /**
+     * Получение количества тактов, выполненных повторно при откатах.
+     *
+     * @return Количество тактов.
+     */
+    public long getResimulatedTicks() {
+        return resimulatedTicks;
+    }
+
+    /**
+     * Получение наибольшей длительности одного отката.
+     *
+     * @return Длительность в наносекундах.
+     */
+    public long getMaxRollbackNanos() {
+        return maxRollbackNanos;
+    }
+
+    /**
+     * Проверка через {@link LoopbackTransport}: автопилот играет на клиенте с предсказанием на поле без стен,
+     * а в конце состояние клиента сравнивается с состоянием сервера на том же такте.
+     *
+     * @param args Задержка в одну сторону в тактах (по умолчанию 5), разброс задержки (3),
+     *             опережение клиента (7) и количество тактов (5000).
+     */
+    public static void main(String[] args) {
+        int latency = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int jitter = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int lead = args.length > 2 ? Integer.parseInt(args[2]) : 7;
+        int ticks = args.length > 3 ? Integer.parseInt(args[3]) : 5000;
+        Board board = new Board(GameEngine.BOARD_WIDTH, GameEngine.BOARD_HEIGHT);
+        Wall wall = Wall.empty(board.getWidth(), board.getHeight());
+        int window = 2 * (latency + jitter) + lead + 2;
+        LoopbackTransport transport = new LoopbackTransport(new GameEngine(board, wall, 3, 1), latency, jitter, lead, 1);
+        RollbackClient client = new RollbackClient(new GameEngine(board, wall, 3, 1), transport, window);
+        Autopilot autopilot = new Autopilot(board);
+        GameEngine server = transport.getServer();
+        GameEngine predicted = client.getEngine();
+        for (int t = 0; t < ticks && !server.isGameOver(); t++) {
+            transport.advance();
+            if (!predicted.isGameOver()) {
+                Direction direction = autopilot.decide(predicted, predicted.getFoodCell());
+                if (direction != predicted.getSnake().getDirection()) {
+                    client.input(direction);
+                }
+            }
+            client.tick();
+        }
+        // Без нового ввода все повороты подтверждаются за время меньше трёх окон; после этого предсказание
+        // клиента не меняется, и отстающая сторона доводится до такта другой
+        for (int i = 0; i < 3 * window; i++) {
+            transport.advance();
+            client.tick();
+        }
+        for (int i = 0; i < 3 * window && predicted.getTick() < server.getTick() && client.tick(); i++) {
+            // Клиент отстаёт от сервера на время доставки подтверждений
+        }
+        for (int i = 0; i < 3 * window && server.getTick() < predicted.getTick(); i++) {
+            transport.advance(); // Сервер отстаёт от часов клиента
+        }
+        ByteBuffer serverState = ByteBuffer.allocate(server.getStateSize(true));
+        ByteBuffer clientState = ByteBuffer.allocate(predicted.getStateSize(true));
+        server.saveState(serverState, true);
+        predicted.saveState(clientState, true);
+        boolean same = serverState.flip().equals(clientState.flip());
+        logger.info("Тактов сервера {}, откатов {}, повторных тактов {}, самый долгий откат {} мкс; состояние клиента {}",
+                Unbox.box(server.getTick()), Unbox.box(client.getRollbacks()), Unbox.box(client.getResimulatedTicks()),
+                Unbox.box(client.getMaxRollbackNanos() / 1000), same ? "совпадает с сервером" : "РАСХОДИТСЯ с сервером");
+    }
+}
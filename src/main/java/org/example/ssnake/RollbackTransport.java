@@ -0,0 +1,43 @@
+package org.example.ssnake;
+
+/**
+ * Связь клиента с предсказанием ({@link RollbackClient}) с авторитетным сервером.
+ * <p>
+ * Клиент отправляет свои повороты с номером такта, к которому они относятся, а сервер подтверждает
+ * каждый выполненный такт: какое направление и с каким номером ввода он применил на этом такте.
+ * Подтверждения доставляются по порядку тактов. Реализация для проверок без сети — {@link LoopbackTransport}.
+ * </p>
+ */
+public interface RollbackTransport {
+
+    /**
+     * Получатель подтверждений сервера.
+     */
+    @FunctionalInterface
+    interface Receiver {
+
+        /**
+         * Подтверждение такта сервера.
+         *
+         * @param tick      Номер выполненного такта.
+         * @param direction Номер применённого направления ({@link Direction#ordinal()}) или -1, если ввода не было.
+         * @param inputTick Такт, с которым клиент отправил применённый ввод, или -1, если ввода не было.
+         */
+        void confirm(long tick, int direction, long inputTick);
+    }
+
+    /**
+     * Отправляет поворот на сервер.
+     *
+     * @param tick      Такт, на котором клиент применил поворот в своём предсказании.
+     * @param direction Новое направление.
+     */
+    void send(long tick, Direction direction);
+
+    /**
+     * Передаёт получателю все пришедшие подтверждения.
+     *
+     * @param receiver Получатель.
+     */
+    void poll(Receiver receiver);
+}
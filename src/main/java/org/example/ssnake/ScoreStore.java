@@ -0,0 +1,567 @@
+package org.example.ssnake;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Хранилище результатов партий: журнал только на дозапись и индекс лучших результатов.
+ * <p>
+ * Каждый результат (длина змейки, прожитые такты, уровень скорости, начальная длина, время) дописывается
+ * в журнал {@code scores.log} записью фиксированного размера с контрольной суммой. Записи копятся
+ * в буфере и сбрасываются на диск пачкой с одним {@link FileChannel#force(boolean)}: при заполнении буфера
+ * или раз в {@link #SYNC_INTERVAL_MS} мс фоновым потоком, поэтому частые результаты не упираются в fsync.
+ * </p>
+ * <p>
+ * В памяти для каждой пары (уровень скорости, начальная длина) хранятся {@link #TOP_N} лучших результатов.
+ * Индекс с ними и позицией журнала, до которой он построен, периодически записывается в {@code scores.idx}
+ * (через временный файл и атомарное переименование). При запуске читается только индекс, а из журнала —
+ * лишь записи после его позиции; недописанный после сбоя хвост журнала отбрасывается. Поэтому ни запуск,
+ * ни запрос таблицы рекордов не зависят от количества записей в журнале.
+ * </p>
+ * <p>
+ * Формат журнала (порядок байт little-endian): заголовок {@code int MAGIC ("SNKS"), int VERSION, long 0},
+ * затем записи по {@link #RECORD_SIZE} байт: {@code long такты, long время (мс), int длина,
+ * int уровень скорости, int начальная длина, int CRC32 предыдущих 28 байт}.
+ * </p>
+ */
+public class ScoreStore implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(ScoreStore.class);
+
+    /** Каталог хранилища по умолчанию. */
+    public static final Path DEFAULT_DIR = Path.of("scores");
+
+    /** Количество лучших результатов в каждой группе. */
+    public static final int TOP_N = 10;
+
+    /** Наибольший интервал между записью результата и его сбросом на диск. */
+    public static final long SYNC_INTERVAL_MS = 200;
+
+    /** Количество записей журнала, после которого индекс записывается на диск заново. */
+    public static final int INDEX_INTERVAL = 1 << 16;
+
+    /** Размер записи журнала в байтах. */
+    static final int RECORD_SIZE = 32;
+
+    static final int LOG_MAGIC = 0x534B4E53; // "SNKS" в порядке little-endian
+    static final int INDEX_MAGIC = 0x494B4E53; // "SNKI" в порядке little-endian
+    static final int VERSION = 1;
+
+    private static final int LOG_HEADER_SIZE = 16; // Размер заголовка журнала
+    private static final int INDEX_HEADER_SIZE = 24; // Размер заголовка индекса
+    private static final int INDEX_ENTRY_SIZE = 20; // Размер результата в индексе
+    private static final int BATCH_RECORDS = 256; // Количество записей в буфере до принудительного сброса
+
+    /**
+     * Неизменяемый результат партии.
+     */
+    public static final class Score {
+        private final int length; // Длина змейки в конце партии
+        private final long ticks; // Количество прожитых тактов
+        private final int speedLevel; // Уровень скорости
+        private final int initialLength; // Начальная длина змейки
+        private final long time; // Время партии (мс с начала эпохи)
+
+        /**
+         * Конструктор результата.
+         *
+         * @param length        Длина змейки в конце партии.
+         * @param ticks         Количество прожитых тактов.
+         * @param speedLevel    Уровень скорости.
+         * @param initialLength Начальная длина змейки.
+         * @param time          Время партии (мс с начала эпохи).
+         */
+        public Score(int length, long ticks, int speedLevel, int initialLength, long time) {
+            this.length = length;
+            this.ticks = ticks;
+            this.speedLevel = speedLevel;
+            this.initialLength = initialLength;
+            this.time = time;
+        }
+
+        /**
+         * Получение длины змейки в конце партии.
+         *
+         * @return Длина змейки в конце партии.
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * Получение количества прожитых тактов.
+         *
+         * @return Количество прожитых тактов.
+         */
+        public long getTicks() {
+            return ticks;
+        }
+
+        /**
+         * Получение уровня скорости.
+         *
+         * @return Уровень скорости.
+         */
+        public int getSpeedLevel() {
+            return speedLevel;
+        }
+
+        /**
+         * Получение начальной длины змейки.
+         *
+         * @return Начальная длина змейки.
+         */
+        public int getInitialLength() {
+            return initialLength;
+        }
+
+        /**
+         * Получение времени партии.
+         *
+         * @return Время партии (мс с начала эпохи).
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * Проверка, лучше ли результат другого: длиннее змейка, затем дольше партия, затем раньше время.
+         *
+         * @param other Другой результат.
+         * @return true, если этот результат выше в таблице.
+         */
+        boolean beats(Score other) {
+            if (length != other.length) return length > other.length;
+            if (ticks != other.ticks) return ticks > other.ticks;
+            return time < other.time;
+        }
+
+        @Override
+        public String toString() {
+            return "длина " + length + ", тактов " + ticks;
+        }
+    }
+
+    private final Path logPath; // Журнал результатов
+    private final Path indexPath; // Индекс лучших результатов
+    private final FileChannel log; // Канал журнала
+    private final ByteBuffer pending = ByteBuffer.allocateDirect(BATCH_RECORDS * RECORD_SIZE)
+            .order(ByteOrder.LITTLE_ENDIAN); // Записи, ещё не сброшенные на диск
+    private final CRC32 crc = new CRC32(); // Контрольная сумма записи
+    private final Map<Long, List<Score>> top = new HashMap<>(); // Лучшие результаты по группам
+    private final ScheduledExecutorService syncer; // Фоновый сброс буфера
+    private long logPosition; // Конец записанной части журнала
+    private boolean unsynced = false; // Есть ли записанные, но ещё не сброшенные fsync данные
+    private long indexedPosition; // Позиция журнала, до которой построен индекс на диске
+    private boolean closed = false; // Закрыто ли хранилище
+
+    /**
+     * Открывает хранилище: читает индекс и дочитывает журнал после позиции индекса.
+     *
+     * @param dir Каталог хранилища (создаётся, если его нет).
+     * @throws IOException Если файлы не удалось открыть или журнал имеет неверный формат.
+     */
+    public ScoreStore(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        logPath = dir.resolve("scores.log");
+        indexPath = dir.resolve("scores.idx");
+        log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            openLog();
+            long start = readIndex();
+            long replayed = replay(start);
+            if (start != logPosition || indexedPosition != logPosition) {
+                writeIndex();
+            }
+            logger.info("Хранилище результатов открыто: записей в журнале {}, дочитано после индекса {}",
+                    (logPosition - LOG_HEADER_SIZE) / RECORD_SIZE, replayed);
+        } catch (IOException e) {
+            log.close();
+            throw e;
+        }
+        syncer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "score-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncer.scheduleWithFixedDelay(this::syncQuietly, SYNC_INTERVAL_MS, SYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Добавляет результат партии. Результат сразу виден в таблице рекордов, а на диск попадает
+     * вместе с пачкой записей не позже чем через {@link #SYNC_INTERVAL_MS} мс.
+     *
+     * @param length        Длина змейки в конце партии.
+     * @param ticks         Количество прожитых тактов.
+     * @param speedLevel    Уровень скорости.
+     * @param initialLength Начальная длина змейки.
+     * @return Место результата в своей группе (с 1) или 0, если он не попал в таблицу.
+     * @throws IOException Если не удалось сбросить заполненный буфер на диск.
+     */
+    public synchronized int add(int length, long ticks, int speedLevel, int initialLength) throws IOException {
+        if (closed) {
+            throw new IOException("Хранилище результатов закрыто");
+        }
+        if (!pending.hasRemaining()) {
+            flush(); // Буфер остался полным после неудачного сброса
+        }
+        Score score = new Score(length, ticks, speedLevel, initialLength, System.currentTimeMillis());
+        putRecord(pending, score);
+        int place = insert(score);
+        if (!pending.hasRemaining()) {
+            flush();
+        }
+        return place;
+    }
+
+    /**
+     * Лучшие результаты группы, от лучшего к худшему.
+     *
+     * @param speedLevel    Уровень скорости.
+     * @param initialLength Начальная длина змейки.
+     * @return Неизменяемый список не более чем из {@link #TOP_N} результатов.
+     */
+    public synchronized List<Score> top(int speedLevel, int initialLength) {
+        List<Score> scores = top.get(key(speedLevel, initialLength));
+        return scores == null ? List.of() : List.copyOf(scores);
+    }
+
+    /**
+     * Сбрасывает накопленные записи в журнал одним вызовом fsync и при необходимости обновляет индекс на диске.
+     *
+     * @throws IOException Если запись не удалась.
+     */
+    public synchronized void flush() throws IOException {
+        if (pending.position() == 0 && !unsynced) return;
+        pending.flip();
+        try {
+            while (pending.hasRemaining()) {
+                logPosition += log.write(pending, logPosition);
+                unsynced = true;
+            }
+        } finally {
+            // При ошибке незаписанный остаток переносится в начало буфера и допишется со следующей попыткой
+            pending.compact();
+        }
+        log.force(false);
+        unsynced = false;
+        if (logPosition - indexedPosition >= (long) INDEX_INTERVAL * RECORD_SIZE) {
+            writeIndex();
+        }
+    }
+
+    /**
+     * Сбрасывает записи, записывает индекс и закрывает журнал. Повторные вызовы ничего не делают.
+     *
+     * @throws IOException Если запись не удалась.
+     */
+    @Override
+    public void close() throws IOException {
+        syncer.shutdown();
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            try {
+                flush();
+                if (indexedPosition != logPosition) {
+                    writeIndex();
+                }
+            } finally {
+                log.close();
+            }
+        }
+    }
+
+    /**
+     * Фоновый сброс буфера. Ошибка записывается в журнал приложения, а попытка повторяется на следующем интервале.
+     */
+    private synchronized void syncQuietly() {
+        if (closed) return;
+        try {
+            flush();
+        } catch (IOException e) {
+            logger.error("Не удалось сбросить результаты на диск", e);
+        }
+    }
+
+    /**
+     * Проверяет заголовок журнала или пишет его в новый файл.
+     *
+     * @throws IOException Если файл не является журналом результатов.
+     */
+    private void openLog() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        if (log.size() < LOG_HEADER_SIZE) {
+            header.putInt(LOG_MAGIC).putInt(VERSION).putLong(0).flip();
+            log.truncate(0);
+            log.write(header, 0);
+            log.force(false);
+        } else {
+            log.read(header, 0);
+            header.flip();
+            if (header.getInt() != LOG_MAGIC) {
+                throw new IOException("Файл не является журналом результатов: " + logPath);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Неподдерживаемая версия журнала результатов: " + version);
+            }
+        }
+        logPosition = LOG_HEADER_SIZE;
+    }
+
+    /**
+     * Читает индекс лучших результатов. Если индекса нет или он повреждён, журнал будет прочитан целиком.
+     *
+     * @return Позиция журнала, с которой нужно дочитать записи.
+     * @throws IOException Если файл индекса не удалось прочитать.
+     */
+    private long readIndex() throws IOException {
+        indexedPosition = -1;
+        if (!Files.exists(indexPath)) {
+            return LOG_HEADER_SIZE;
+        }
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(indexPath)).order(ByteOrder.LITTLE_ENDIAN);
+        long size = log.size();
+        if (data.remaining() < INDEX_HEADER_SIZE + Integer.BYTES || !checksumValid(data)) {
+            logger.warn("Индекс результатов повреждён, журнал будет прочитан целиком");
+            return LOG_HEADER_SIZE;
+        }
+        int magic = data.getInt();
+        int version = data.getInt();
+        long position = data.getLong();
+        int buckets = data.getInt();
+        int topN = data.getInt();
+        if (magic != INDEX_MAGIC || version != VERSION || topN != TOP_N || position < LOG_HEADER_SIZE
+                || position > size || (position - LOG_HEADER_SIZE) % RECORD_SIZE != 0) {
+            logger.warn("Индекс результатов не подходит к журналу, журнал будет прочитан целиком");
+            return LOG_HEADER_SIZE;
+        }
+        for (int b = 0; b < buckets; b++) {
+            int speedLevel = data.getInt();
+            int initialLength = data.getInt();
+            int count = data.getInt();
+            List<Score> scores = new ArrayList<>(TOP_N);
+            for (int i = 0; i < count; i++) {
+                long ticks = data.getLong();
+                long time = data.getLong();
+                int length = data.getInt();
+                scores.add(new Score(length, ticks, speedLevel, initialLength, time));
+            }
+            top.put(key(speedLevel, initialLength), scores);
+        }
+        indexedPosition = position;
+        return position;
+    }
+
+    /**
+     * Дочитывает журнал с заданной позиции и добавляет записи в таблицу рекордов.
+     * Первая неполная или повреждённая запись считается недописанным хвостом: журнал обрезается перед ней.
+     *
+     * @param start Позиция первой записи.
+     * @return Количество прочитанных записей.
+     * @throws IOException Если журнал не удалось прочитать.
+     */
+    private long replay(long start) throws IOException {
+        long size = log.size();
+        long position = start;
+        long records = 0;
+        ByteBuffer chunk = ByteBuffer.allocateDirect(BATCH_RECORDS * RECORD_SIZE * 16).order(ByteOrder.LITTLE_ENDIAN);
+        replay:
+        while (position + RECORD_SIZE <= size) {
+            chunk.clear();
+            chunk.limit((int) Math.min(chunk.capacity(), (size - position) / RECORD_SIZE * RECORD_SIZE));
+            while (chunk.hasRemaining()) {
+                if (log.read(chunk, position + chunk.position()) < 0) break;
+            }
+            chunk.flip();
+            while (chunk.remaining() >= RECORD_SIZE) {
+                Score score = readRecord(chunk);
+                if (score == null) break replay;
+                insert(score);
+                position += RECORD_SIZE;
+                records++;
+            }
+        }
+        if (position < size) {
+            logger.warn("Отброшен недописанный хвост журнала результатов: {} байт", size - position);
+            log.truncate(position);
+            log.force(false);
+        }
+        logPosition = position;
+        return records;
+    }
+
+    /**
+     * Записывает индекс во временный файл и атомарно заменяет им прежний.
+     * Вызывается только когда все записи сброшены в журнал, поэтому индекс не опережает журнал на диске.
+     *
+     * @throws IOException Если индекс не удалось записать.
+     */
+    private void writeIndex() throws IOException {
+        Map<Long, List<Score>> sorted = new TreeMap<>(top);
+        int size = INDEX_HEADER_SIZE + Integer.BYTES;
+        for (List<Score> scores : sorted.values()) {
+            size += 3 * Integer.BYTES + scores.size() * INDEX_ENTRY_SIZE;
+        }
+        ByteBuffer data = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        data.putInt(INDEX_MAGIC).putInt(VERSION).putLong(logPosition).putInt(sorted.size()).putInt(TOP_N);
+        for (List<Score> scores : sorted.values()) {
+            Score first = scores.get(0);
+            data.putInt(first.speedLevel).putInt(first.initialLength).putInt(scores.size());
+            for (Score score : scores) {
+                data.putLong(score.ticks).putLong(score.time).putInt(score.length);
+            }
+        }
+        crc.reset();
+        crc.update(data.array(), 0, data.position());
+        data.putInt((int) crc.getValue());
+        data.flip();
+
+        Path temp = indexPath.resolveSibling("scores.idx.tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        indexedPosition = logPosition;
+    }
+
+    /**
+     * Вставляет результат в таблицу своей группы, если он в неё попадает.
+     *
+     * @param score Результат.
+     * @return Место в группе (с 1) или 0.
+     */
+    private int insert(Score score) {
+        List<Score> scores = top.computeIfAbsent(key(score.speedLevel, score.initialLength),
+                k -> new ArrayList<>(TOP_N + 1));
+        int place = scores.size();
+        while (place > 0 && score.beats(scores.get(place - 1))) {
+            place--;
+        }
+        if (place >= TOP_N) return 0;
+        scores.add(place, score);
+        if (scores.size() > TOP_N) {
+            scores.remove(TOP_N);
+        }
+        return place + 1;
+    }
+
+    /**
+     * Дописывает запись журнала в буфер.
+     *
+     * @param buffer Буфер с местом для записи.
+     * @param score  Результат.
+     */
+    private void putRecord(ByteBuffer buffer, Score score) {
+        int start = buffer.position();
+        buffer.putLong(score.ticks).putLong(score.time).putInt(score.length)
+                .putInt(score.speedLevel).putInt(score.initialLength);
+        crc.reset();
+        crc.update(buffer.duplicate().position(start).limit(start + RECORD_SIZE - Integer.BYTES));
+        buffer.putInt((int) crc.getValue());
+    }
+
+    /**
+     * Читает запись журнала и проверяет её контрольную сумму.
+     *
+     * @param buffer Буфер, установленный на начало записи.
+     * @return Результат или null, если запись повреждена.
+     */
+    private Score readRecord(ByteBuffer buffer) {
+        int start = buffer.position();
+        crc.reset();
+        crc.update(buffer.duplicate().limit(start + RECORD_SIZE - Integer.BYTES));
+        long ticks = buffer.getLong();
+        long time = buffer.getLong();
+        int length = buffer.getInt();
+        int speedLevel = buffer.getInt();
+        int initialLength = buffer.getInt();
+        int checksum = buffer.getInt();
+        return checksum == (int) crc.getValue() ? new Score(length, ticks, speedLevel, initialLength, time) : null;
+    }
+
+    /**
+     * Проверка контрольной суммы индекса (последние 4 байта).
+     *
+     * @param data Содержимое файла индекса.
+     * @return true, если сумма совпадает.
+     */
+    private boolean checksumValid(ByteBuffer data) {
+        crc.reset();
+        crc.update(data.array(), 0, data.limit() - Integer.BYTES);
+        return data.getInt(data.limit() - Integer.BYTES) == (int) crc.getValue();
+    }
+
+    /**
+     * Ключ группы результатов.
+     *
+     * @param speedLevel    Уровень скорости.
+     * @param initialLength Начальная длина змейки.
+     * @return Ключ.
+     */
+    private static long key(int speedLevel, int initialLength) {
+        return ((long) speedLevel << 32) | (initialLength & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Форматирует таблицу рекордов для показа игроку.
+     *
+     * @param scores Результаты от лучшего к худшему.
+     * @return Строки вида "1. длина 25, тактов 340".
+     */
+    public static String format(List<Score> scores) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < scores.size(); i++) {
+            if (i > 0) text.append('\n');
+            text.append(i + 1).append(". ").append(scores.get(i));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Выводит таблицы рекордов всех групп.
+     *
+     * @param args Каталог хранилища (по умолчанию {@link #DEFAULT_DIR}).
+     * @throws IOException Если хранилище не удалось открыть.
+     */
+    public static void main(String[] args) throws IOException {
+        try (ScoreStore store = new ScoreStore(args.length > 0 ? Path.of(args[0]) : DEFAULT_DIR)) {
+            List<Long> keys;
+            synchronized (store) {
+                keys = new ArrayList<>(store.top.keySet());
+            }
+            Collections.sort(keys);
+            for (long key : keys) {
+                int speedLevel = (int) (key >>> 32);
+                int initialLength = (int) key;
+                logger.info("Скорость {}, начальная длина {}:\n{}", speedLevel, initialLength,
+                        format(store.top(speedLevel, initialLength)));
+            }
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package org.example.ssnake;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Класс, выполняющий симуляцию игры в отдельном потоке с фиксированным шагом времени.
+ * <p>
+ * Прошедшее время накапливается в аккумуляторе, и на каждый полный интервал выполняется
+ * ровно один такт {@link GameEngine#step()}. Если поток отстал (например, из-за паузы GC),
+ * он догоняет пропущенные такты, но не более {@link #MAX_CATCH_UP_STEPS} за итерацию;
+ * остаток времени отбрасывается и учитывается как пропущенные такты.
+ * </p>
+ * <p>
+ * После каждого такта публикуется неизменяемый {@link GameSnapshot} через {@link AtomicReference},
+ * который рендерер читает с частотой дисплея. Поэтому задержки отрисовки не замедляют игру.
+ * На каждом такте публикуется снимок изменений без копии тела змейки; полный снимок публикуется
+ * при запуске, перезапуске, перемотке и завершении потока, а также пока рендерер, пропустивший такты,
+ * ждёт полной перерисовки ({@link #requestFullSnapshots(boolean)}).
+ * </p>
+ * <p>
+ * Нажатия клавиш складываются в {@link InputQueue}; перед каждым тактом применяется не более одной
+ * команды, реально меняющей направление. Поэтому два быстрых поворота подряд выполняются
+ * на двух соседних тактах, а не затирают друг друга, и проверка разворота выполняется
+ * относительно уже применённого направления.
+ * </p>
+ * <p>
+ * После каждого такта состояние движка записывается в {@link RewindBuffer}, поэтому партию можно
+ * перемотать назад на {@link #REWIND_CAPACITY} тактов методом {@link #rewind(int)}.
+ * </p>
+ */
+public class SimulationLoop implements Runnable {
+
+    /** Максимальное количество тактов, которое поток догоняет за одну итерацию. */
+    public static final int MAX_CATCH_UP_STEPS = 5;
+
+    /** Ёмкость очереди команд ввода. */
+    public static final int INPUT_CAPACITY = 8;
+
+    /** Количество последних тактов, на которое можно перемотать партию. */
+    public static final int REWIND_CAPACITY = 1000;
+
+    private static final long NO_COMMAND = Long.MIN_VALUE; // Признак отсутствия применённой команды
+
+    private static final Logger logger = LogManager.getLogger(SimulationLoop.class);
+
+    private final GameEngine engine; // Игровой движок, принадлежащий потоку симуляции
+    private final long tickNanos; // Длительность такта в наносекундах
+    private final AtomicReference<GameSnapshot> latest; // Последний опубликованный снимок
+    private final InputQueue input = new InputQueue(INPUT_CAPACITY); // Команды, ожидающие применения
+    private final LatencyHistogram inputLatency = new LatencyHistogram(); // Задержка от нажатия до хода
+    private final LatencyHistogram tickDuration = new LatencyHistogram(); // Длительность такта (при включённых замерах)
+    private final RewindBuffer history = new RewindBuffer(REWIND_CAPACITY); // Снимки последних тактов
+    private volatile boolean running = false; // Флаг работы потока
+    private volatile long missedTicks = 0; // Количество отброшенных тактов
+    private Thread thread; // Поток симуляции
+    private ReplayWriter replay; // Запись партии или null, если запись отключена
+    private final Autopilot autopilot; // Автопилот, используется только потоком симуляции
+    private volatile boolean autopilotEnabled = false; // Управляет ли змейкой автопилот
+    private volatile boolean fullRequested = false; // Ждёт ли рендерер полный снимок
+    private volatile int viewportWidth = 0; // Ширина окна режима прокрутки в клетках или 0
+    private volatile int viewportHeight = 0; // Высота окна режима прокрутки в клетках
+
+    /**
+     * Конструктор цикла симуляции.
+     *
+     * @param engine    Игровой движок. После запуска потока изменяется только им.
+     * @param tickNanos Длительность такта в наносекундах.
+     */
+    public SimulationLoop(GameEngine engine, long tickNanos) {
+        this.engine = engine;
+        this.tickNanos = tickNanos;
+        this.latest = new AtomicReference<>(GameSnapshot.full(engine));
+        this.autopilot = new Autopilot(engine.getBoard());
+        history.record(engine);
+    }
+
+    /**
+     * Запускает поток симуляции.
+     */
+    public void start() {
+        running = true;
+        thread = new Thread(this, "snake-simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Останавливает поток симуляции.
+     */
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Начинает партию заново на том же движке: останавливает поток, дожидается его завершения
+     * и возвращает движок в начальное состояние. Затем поток можно снова запустить методом {@link #start()}.
+     *
+     * @param seed Зерно генератора случайных чисел новой партии.
+     */
+    public void restart(long seed) {
+        join();
+        engine.reset(seed);
+        input.clear(); // Поток симуляции завершён, поэтому очередь можно очистить из вызывающего потока
+        missedTicks = 0;
+        history.clear();
+        history.record(engine);
+        latest.set(snapshot(true));
+    }
+
+    /**
+     * Перематывает партию назад на заданное количество тактов (в том числе после гибели змейки):
+     * останавливает поток, дожидается его завершения и восстанавливает снимок из буфера перемотки.
+     * Запись партии при остановке потока завершается, продолжение после перемотки не записывается.
+     * Затем поток можно снова запустить методом {@link #start()}.
+     *
+     * @param ticks На сколько тактов перемотать.
+     * @return На сколько тактов фактически выполнена перемотка.
+     */
+    public int rewind(int ticks) {
+        join();
+        int rewound = history.rewind(engine, ticks);
+        input.clear();
+        latest.set(snapshot(true));
+        return rewound;
+    }
+
+    /**
+     * Останавливает поток симуляции и дожидается его завершения.
+     */
+    private void join() {
+        stop();
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Передаёт потоку симуляции новое направление. Вызывается только из потока ввода.
+     * Команда будет применена перед одним из следующих тактов в порядке нажатия.
+     *
+     * @param direction Новое направление.
+     * @param timestamp Момент нажатия клавиши ({@link System#nanoTime()}).
+     * @return true, если команда принята, false, если очередь переполнена.
+     */
+    public boolean setDirection(Direction direction, long timestamp) {
+        return input.offer(direction, timestamp);
+    }
+
+    /**
+     * Включает запись партии. Должен вызываться до {@link #start()}.
+     * Запись завершается и закрывается потоком симуляции при его остановке.
+     *
+     * @param replay Запись партии.
+     */
+    public void setReplayWriter(ReplayWriter replay) {
+        this.replay = replay;
+    }
+
+    /**
+     * Включает или выключает автопилот. Пока автопилот включён, нажатия клавиш игнорируются.
+     *
+     * @param enabled true, чтобы змейкой управлял автопилот.
+     */
+    public void setAutopilot(boolean enabled) {
+        autopilotEnabled = enabled;
+    }
+
+    /**
+     * Проверка, включён ли автопилот.
+     *
+     * @return true, если змейкой управляет автопилот.
+     */
+    public boolean isAutopilot() {
+        return autopilotEnabled;
+    }
+
+    /**
+     * Запрос полных снимков с клетками тела змейки. Вызывается из потока JavaFX после каждого кадра:
+     * пока рендерер не может перерисовать кадр целиком по снимку изменений, каждый такт публикует полный снимок.
+     *
+     * @param requested true, если последний кадр не отрисован из-за отсутствия тела змейки.
+     */
+    public void requestFullSnapshots(boolean requested) {
+        fullRequested = requested;
+    }
+
+    /**
+     * Включает режим прокрутки: каждый снимок содержит видимую область вокруг головы змейки
+     * ({@link GameSnapshot#viewport(GameEngine, int, int)}) вместо клеток всего тела.
+     * Вызывается до запуска потока симуляции.
+     *
+     * @param width  Ширина видимой области в клетках.
+     * @param height Высота видимой области в клетках.
+     */
+    public void setViewport(int width, int height) {
+        viewportWidth = width;
+        viewportHeight = height;
+        latest.set(snapshot(true));
+    }
+
+    /**
+     * Снимок текущего состояния: в режиме прокрутки — снимок окна, иначе полный снимок или снимок изменений.
+     *
+     * @param full Нужна ли полная перерисовка.
+     * @return Новый снимок.
+     */
+    private GameSnapshot snapshot(boolean full) {
+        if (viewportWidth > 0) {
+            return GameSnapshot.viewport(engine, viewportWidth, viewportHeight);
+        }
+        return full ? GameSnapshot.full(engine) : GameSnapshot.of(engine);
+    }
+
+    /**
+     * Получение гистограммы задержки от нажатия клавиши до хода змейки в новом направлении.
+     *
+     * @return Гистограмма задержек ввода.
+     */
+    public LatencyHistogram getInputLatency() {
+        return inputLatency;
+    }
+
+    /**
+     * Получение гистограммы длительности такта (ввод, шаг движка и публикация снимка).
+     * Заполняется, только если включены замеры {@link PerfStats#ENABLED}.
+     *
+     * @return Гистограмма длительности такта.
+     */
+    public LatencyHistogram getTickDuration() {
+        return tickDuration;
+    }
+
+    /**
+     * Получение потока симуляции.
+     *
+     * @return Поток или null, если симуляция не запущена.
+     */
+    public Thread getThread() {
+        return thread;
+    }
+
+    /**
+     * Получение последнего опубликованного снимка. Метод не блокирует.
+     *
+     * @return Последний снимок состояния игры.
+     */
+    public GameSnapshot getLatestSnapshot() {
+        return latest.get();
+    }
+
+    /**
+     * Получение количества тактов, отброшенных из-за превышения лимита догоняющих шагов.
+     *
+     * @return Количество пропущенных тактов.
+     */
+    public long getMissedTicks() {
+        return missedTicks;
+    }
+
+    /**
+     * Основной цикл потока симуляции.
+     */
+    @Override
+    public void run() {
+        long previous = System.nanoTime();
+        long accumulator = 0;
+        while (running && !engine.isGameOver()) {
+            long now = System.nanoTime();
+            accumulator += now - previous;
+            previous = now;
+
+            int steps = 0;
+            while (accumulator >= tickNanos && steps < MAX_CATCH_UP_STEPS && !engine.isGameOver()) {
+                long started = PerfStats.ENABLED ? System.nanoTime() : 0;
+                long pressedAt = NO_COMMAND;
+                if (autopilotEnabled) {
+                    input.clear();
+                    applyAutopilot();
+                } else {
+                    pressedAt = applyNextCommand();
+                }
+                engine.step();
+                history.record(engine);
+                if (pressedAt != NO_COMMAND) {
+                    inputLatency.record(System.nanoTime() - pressedAt);
+                }
+                accumulator -= tickNanos;
+                steps++;
+                // Публикуем каждый такт, чтобы рендерер мог обновить только изменившиеся клетки
+                latest.set(snapshot(fullRequested));
+                if (PerfStats.ENABLED) {
+                    tickDuration.record(System.nanoTime() - started);
+                }
+            }
+
+            if (accumulator >= tickNanos) {
+                // Слишком сильно отстали: отбрасываем остаток, чтобы не уйти в бесконечную погоню
+                long dropped = accumulator / tickNanos;
+                missedTicks += dropped;
+                accumulator -= dropped * tickNanos;
+                logger.warn("Симуляция отстала, пропущено тактов: {}", Unbox.box(dropped)); // Без упаковки long в объект
+            }
+
+            LockSupport.parkNanos(tickNanos - accumulator);
+        }
+        running = false;
+        latest.set(snapshot(true)); // Последний кадр можно перерисовать целиком и после остановки
+        closeReplay();
+        logger.info("Задержка ввода: {}", inputLatency);
+    }
+
+    /**
+     * Применяет первую команду из очереди, которая меняет направление змейки.
+     * Команды, не меняющие направление (повтор или разворот), отбрасываются.
+     *
+     * @return Момент нажатия применённой команды или {@link #NO_COMMAND}, если команды не было.
+     */
+    private long applyNextCommand() {
+        Direction direction;
+        while ((direction = input.peekDirection()) != null) {
+            long pressedAt = input.peekTimestamp();
+            input.remove();
+            if (engine.setDirection(direction)) {
+                recordInput(direction);
+                return pressedAt;
+            }
+        }
+        return NO_COMMAND;
+    }
+
+    /**
+     * Применяет направление, выбранное автопилотом.
+     * Целью автопилота служит текущая клетка с едой.
+     */
+    private void applyAutopilot() {
+        Direction direction = autopilot.decide(engine, engine.getFoodCell());
+        if (engine.setDirection(direction)) {
+            recordInput(direction);
+        }
+    }
+
+    /**
+     * Добавляет применённое направление в запись партии, если она включена.
+     *
+     * @param direction Применённое направление.
+     */
+    private void recordInput(Direction direction) {
+        if (replay == null) return;
+        try {
+            replay.recordInput(engine.getTick(), direction);
+        } catch (IOException e) {
+            logger.error("Ошибка записи партии, запись отключена", e);
+            closeReplay();
+        }
+    }
+
+    /**
+     * Завершает и закрывает запись партии.
+     */
+    private void closeReplay() {
+        if (replay == null) return;
+        try (ReplayWriter writer = replay) {
+            replay = null;
+            writer.finish(engine.getTick());
+        } catch (IOException e) {
+            logger.error("Ошибка при завершении записи партии", e);
+        }
+    }
+}
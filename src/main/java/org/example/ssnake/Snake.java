@@ -1,35 +1,85 @@
 package org.example.ssnake;
 
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.paint.Color;
-
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Класс, представляющий змейку в игре.
  * Управляет состоянием змейки, её движением, направлением и проверкой столкновений.
+ * <p>
+ * Тело змейки хранится в кольцевом буфере номеров клеток {@link Board}, а занятые клетки дополнительно отмечаются в битовой карте размером с игровое поле.
+ * Благодаря этому добавление головы, удаление хвоста и проверка столкновения выполняются
+ * за постоянное время независимо от длины змейки.
+ * </p>
  */
 public class Snake {
 
-    private List<Point> body; // Список сегментов змейки
+    /** Номер клетки для сегмента, который ещё не вошёл на игровое поле. */
+    private static final int OFF_BOARD = -1;
+
+    private static final Direction[] DIRECTIONS = Direction.values(); // Направления по номеру
+
+    private final Board board; // Игровое поле
+    private final Wall wall; // Стены игрового поля (статическая карта препятствий)
+    private int[] cells; // Кольцевой буфер номеров клеток сегментов
+    private int headIndex; // Индекс головы в кольцевом буфере
+    private int length; // Текущая длина змейки
+    private final long[] occupied; // Битовая карта занятых клеток поля
     private Direction direction; // Текущее направление движения
+    private int lastAddedCell = OFF_BOARD; // Клетка, занятая головой на последнем шаге
+    private int lastRemovedCell = OFF_BOARD; // Клетка, освобождённая хвостом на последнем шаге
 
-    private static final int BOARD_WIDTH = 30; // Ширина игрового поля (например, 30 клеток по горизонтали)
-    private static final int BOARD_HEIGHT = 20; // Высота игрового поля (например, 20 клеток по вертикали)
+    /**
+     * Конструктор класса Snake на поле стандартного размера.
+     *
+     * @param initialLength Начальная длина змейки.
+     */
+    public Snake(int initialLength) {
+        this(new Board(GameEngine.BOARD_WIDTH, GameEngine.BOARD_HEIGHT), initialLength);
+    }
 
     /**
      * Конструктор класса Snake.
      * Инициализирует змейку с заданной начальной длиной.
      * Начальная позиция змейки — на координатах (10, 10) и далее по направлению вправо.
      *
+     * @param board         Игровое поле.
      * @param initialLength Начальная длина змейки.
      */
-    public Snake(int initialLength) {
-        body = new ArrayList<>();
+    public Snake(Board board, int initialLength) {
+        this(board, Wall.empty(board.getWidth(), board.getHeight()), initialLength);
+    }
+
+    /**
+     * Конструктор змейки на поле со стенами. Вход головы в клетку стены завершает игру.
+     *
+     * @param board         Игровое поле.
+     * @param wall          Стены игрового поля того же размера.
+     * @param initialLength Начальная длина змейки.
+     */
+    public Snake(Board board, Wall wall, int initialLength) {
+        if (wall.getWidth() != board.getWidth() || wall.getHeight() != board.getHeight()) {
+            throw new IllegalArgumentException("Размер стен " + wall.getWidth() + "x" + wall.getHeight()
+                    + " не совпадает с полем " + board.getWidth() + "x" + board.getHeight());
+        }
+        this.board = board;
+        this.wall = wall;
+        // Буфер рассчитан на начальную длину и удваивается по мере роста змейки, а не занимает сразу всё поле
+        cells = new int[initialLength];
+        occupied = new long[(board.getCellCount() + 63) >>> 6];
+        headIndex = 0;
+        length = initialLength;
         // Добавляем начальные сегменты змейки
         for (int i = 0; i < initialLength; i++) {
-            body.add(new Point(10 - i, 10)); // Начальная позиция змейки
+            int x = 10 - i; // Начальная позиция змейки
+            // Сегменты левее поля ещё не вошли на него: они не занимают клеток и уйдут вместе с хвостом
+            int cell = x >= 0 ? board.cell(x, 10) : OFF_BOARD;
+            cells[i] = cell;
+            if (cell != OFF_BOARD) {
+                occupy(cell);
+            }
         }
         direction = Direction.RIGHT; // Начальное направление движения
     }
@@ -41,19 +91,95 @@ public class Snake {
      * @return Текущая позиция головы змейки.
      */
     public Point getHead() {
-        return body.get(0); // Возвращаем первый сегмент тела змейки (голову)
+        int head = cells[headIndex]; // Первый сегмент тела змейки (голова)
+        return new Point(board.x(head), board.y(head));
+    }
+
+    /**
+     * Получение номера клетки головы змейки.
+     *
+     * @return Номер клетки головы.
+     */
+    public int getHeadCell() {
+        return cells[headIndex];
+    }
+
+    /**
+     * Получение номера клетки хвоста змейки.
+     *
+     * @return Номер клетки хвоста или -1, если хвост ещё не вошёл на поле.
+     */
+    public int getTailCell() {
+        return cells[(headIndex + length - 1) % cells.length];
+    }
+
+    /**
+     * Получение длины змейки.
+     *
+     * @return Количество сегментов змейки.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Проверка, занята ли клетка сегментом змейки.
+     *
+     * @param x Координата клетки по оси X.
+     * @param y Координата клетки по оси Y.
+     * @return true, если клетка занята змейкой.
+     */
+    public boolean occupies(int x, int y) {
+        return isOccupied(board.cell(x, y));
     }
 
     /**
-     * Отрисовка змейки на холсте.
+     * Получение сегментов тела змейки (от головы к хвосту) только для чтения.
+     * Используется рендерером для отрисовки змейки.
      *
-     * @param gc Графический контекст для рисования.
+     * @return Неизменяемый список сегментов змейки.
      */
-    public void draw(GraphicsContext gc) {
-        gc.setFill(Color.GREEN);
-        for (Point segment : body) {
-            gc.fillRect(segment.x * 20, segment.y * 20, 20, 20); // 20x20 — размер ячейки
+    public List<Point> getBody() {
+        List<Point> body = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            int cell = cells[(headIndex + i) % cells.length];
+            if (cell != OFF_BOARD) {
+                body.add(new Point(board.x(cell), board.y(cell)));
+            }
         }
+        return Collections.unmodifiableList(body);
+    }
+
+    /**
+     * Копирование клеток тела змейки, находящихся на поле, от головы к хвосту.
+     *
+     * @return Новый массив номеров клеток.
+     */
+    public int[] copyCells() {
+        int onBoard = 0;
+        for (int i = 0; i < length; i++) {
+            if (cells[(headIndex + i) % cells.length] != OFF_BOARD) {
+                onBoard++;
+            }
+        }
+        int[] copy = new int[onBoard];
+        int next = 0;
+        for (int i = 0; i < length; i++) {
+            int cell = cells[(headIndex + i) % cells.length];
+            if (cell != OFF_BOARD) {
+                copy[next++] = cell;
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Получение текущего направления движения змейки.
+     *
+     * @return Текущее направление.
+     */
+    public Direction getDirection() {
+        return direction;
     }
 
     private boolean gameOver = false;  // Флаг для отслеживания завершения игры
@@ -68,49 +194,251 @@ public class Snake {
     }
 
     /**
-     * Метод для перемещения змейки.
-     * Перемещает голову змейки в соответствии с её направлением.
-     * Если змейка выходит за пределы поля, она "перемещается" с другой стороны (зеркальный эффект).
-     * Проверяет столкновение с телом змейки.
+     * Метод для перемещения змейки на одну клетку без роста.
+     */
+    public void move() {
+        move(false);
+    }
+
+    /**
+     * Метод для перемещения змейки на одну клетку.
+     * Если змейка растёт (съела еду), хвост остаётся на месте и длина увеличивается на один сегмент.
      *
-     * @param gc Графический контекст для рисования.
+     * @param grow true, если змейка должна вырасти на этом шаге.
      */
-    public void move(GraphicsContext gc) {
+    public void move(boolean grow) {
         if (gameOver) return;  // Если игра завершена, не двигаем змейку
 
-        Point head = body.get(0); // Получаем текущую голову
-        Point newHead = switch (direction) {
-            case UP -> new Point(head.x, head.y - 1);
-            case DOWN -> new Point(head.x, head.y + 1);
-            case LEFT -> new Point(head.x - 1, head.y);
-            case RIGHT -> new Point(head.x + 1, head.y);
-        };
+        // Соседняя клетка берётся из таблицы поля с учётом перехода через край
+        int newHeadCell = nextHeadCell();
 
-        // Проверка выхода за пределы и зеркальное движение
-        if (newHead.x < 0) {
-            newHead.x = BOARD_WIDTH - 1;
-        } else if (newHead.x >= BOARD_WIDTH) {
-            newHead.x = 0;
+        // Проверка на столкновение головы с телом (хвост ещё на месте, как и раньше) или со стеной
+        if (isOccupied(newHeadCell) || wall.isWall(newHeadCell)) {
+            // Если голова сталкивается с телом или стеной, игра завершена
+            gameOver = true;  // Обновляем флаг завершения игры
+            return;  // Останавливаем движение змейки
         }
 
-        if (newHead.y < 0) {
-            newHead.y = BOARD_HEIGHT - 1;
-        } else if (newHead.y >= BOARD_HEIGHT) {
-            newHead.y = 0;
+        if (grow) {
+            // Хвост остаётся на месте; при заполненном буфере он удваивается (не чаще log(N) раз за партию)
+            if (length == cells.length) {
+                grow();
+            }
+            length++;
+            lastRemovedCell = OFF_BOARD;
+        } else {
+            // Убираем хвост
+            int tailIndex = (headIndex + length - 1) % cells.length;
+            int tailCell = cells[tailIndex];
+            if (tailCell != OFF_BOARD) {
+                release(tailCell);
+            }
+            lastRemovedCell = tailCell;
         }
 
-        // Проверка на столкновение головы с телом
-        if (body.stream().skip(1).anyMatch(segment -> segment.equals(newHead))) {
-            // Если голова сталкивается с телом, игра завершена
-            gameOver = true;  // Обновляем флаг завершения игры
-            return;  // Останавливаем движение змейки
+        // Добавляем новый сегмент головы на место, освободившееся перед старой головой
+        headIndex = headIndex == 0 ? cells.length - 1 : headIndex - 1;
+        cells[headIndex] = newHeadCell;
+        occupy(newHeadCell);
+        lastAddedCell = newHeadCell;
+    }
+
+    /**
+     * Получение клетки, в которую голова войдёт на следующем шаге при текущем направлении.
+     *
+     * @return Номер клетки.
+     */
+    public int nextHeadCell() {
+        return board.neighbor(cells[headIndex], direction);
+    }
+
+    /**
+     * Получение клетки, которую заняла голова на последнем шаге.
+     * Используется рендерером для перерисовки только изменившихся клеток.
+     *
+     * @return Номер клетки или -1, если змейка ещё не двигалась.
+     */
+    public int getLastAddedCell() {
+        return lastAddedCell;
+    }
+
+    /**
+     * Получение клетки, которую освободил хвост на последнем шаге.
+     *
+     * @return Номер клетки или -1, если освобождённой клетки на поле нет.
+     */
+    public int getLastRemovedCell() {
+        return lastRemovedCell;
+    }
+
+    /**
+     * Проверка бита занятости клетки.
+     *
+     * @param cell Номер клетки.
+     * @return true, если клетка занята.
+     */
+    public boolean isOccupied(int cell) {
+        return (occupied[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Получение клетки сегмента по порядку от головы.
+     *
+     * @param index Индекс сегмента (0 — голова).
+     * @return Номер клетки или -1 для сегмента вне поля.
+     */
+    int cellAt(int index) {
+        return cells[(headIndex + index) % cells.length];
+    }
+
+    /**
+     * Наибольший размер состояния змейки в байтах для {@link #save(ByteBuffer)}.
+     *
+     * @return Размер в байтах.
+     */
+    int stateSize() {
+        return 2 + 4 + 4 + 4 + 4 + 4 + (length + 3) / 4;
+    }
+
+    /**
+     * Запись состояния змейки в буфер.
+     * Тело кодируется клеткой головы и направлениями между соседними сегментами по два бита на сегмент,
+     * поэтому состояние змейки длиной N занимает около N / 4 байт.
+     *
+     * @param buffer Буфер с достаточным свободным местом ({@link #stateSize()}).
+     */
+    void save(ByteBuffer buffer) {
+        buffer.put((byte) direction.ordinal()).put((byte) (gameOver ? 1 : 0));
+        buffer.putInt(lastAddedCell).putInt(lastRemovedCell);
+        // Сегменты вне поля бывают только в конце тела (начальные сегменты, ещё не вошедшие на поле)
+        int onBoard = 0;
+        while (onBoard < length && cellAt(onBoard) != OFF_BOARD) {
+            onBoard++;
+        }
+        buffer.putInt(length).putInt(onBoard);
+        if (onBoard == 0) return;
+        int previous = cellAt(0);
+        buffer.putInt(previous);
+        int packed = 0;
+        int bits = 0;
+        for (int i = 1; i < onBoard; i++) {
+            int cell = cellAt(i);
+            packed |= directionBetween(previous, cell) << bits;
+            bits += 2;
+            if (bits == 8) {
+                buffer.put((byte) packed);
+                packed = 0;
+                bits = 0;
+            }
+            previous = cell;
+        }
+        if (bits > 0) {
+            buffer.put((byte) packed);
         }
+    }
+
+    /**
+     * Восстановление состояния змейки из буфера, записанного методом {@link #save(ByteBuffer)}.
+     * Битовая карта занятых клеток обновляется только в клетках старого и нового тела,
+     * поэтому время восстановления зависит от длины змейки, а не от размера поля.
+     *
+     * @param buffer Буфер, установленный на начало состояния змейки.
+     */
+    void restore(ByteBuffer buffer) {
+        Direction newDirection = DIRECTIONS[buffer.get() & 3];
+        boolean newGameOver = buffer.get() != 0;
+        int newLastAdded = buffer.getInt();
+        int newLastRemoved = buffer.getInt();
+        int newLength = buffer.getInt();
+        int onBoard = buffer.getInt();
+        if (newLength <= 0 || onBoard < 0 || onBoard > newLength || onBoard > board.getCellCount()) {
+            throw new IllegalArgumentException("Неверная длина змейки в состоянии: " + newLength);
+        }
+        int head = onBoard > 0 ? buffer.getInt() : OFF_BOARD;
+        if (onBoard > 0 && (head < 0 || head >= board.getCellCount())) {
+            throw new IllegalArgumentException("Неверная клетка головы в состоянии: " + head);
+        }
+
+        // Освобождаем клетки текущего тела
+        for (int i = 0; i < length; i++) {
+            int cell = cellAt(i);
+            if (cell != OFF_BOARD) {
+                release(cell);
+            }
+        }
+        if (cells.length < newLength) {
+            cells = new int[newLength];
+        }
+        headIndex = 0;
+        length = newLength;
+        if (onBoard > 0) {
+            int cell = head;
+            cells[0] = cell;
+            occupy(cell);
+            int packed = 0;
+            for (int i = 1; i < onBoard; i++) {
+                int bit = (i - 1) & 3;
+                if (bit == 0) {
+                    packed = buffer.get();
+                }
+                cell = board.neighbor(cell, DIRECTIONS[(packed >>> (bit * 2)) & 3]);
+                cells[i] = cell;
+                occupy(cell);
+            }
+        }
+        for (int i = onBoard; i < newLength; i++) {
+            cells[i] = OFF_BOARD;
+        }
+        direction = newDirection;
+        gameOver = newGameOver;
+        lastAddedCell = newLastAdded;
+        lastRemovedCell = newLastRemoved;
+    }
+
+    /**
+     * Номер направления от клетки к соседней.
+     *
+     * @param from Клетка.
+     * @param to   Соседняя клетка.
+     * @return Номер направления ({@link Direction#ordinal()}).
+     */
+    private int directionBetween(int from, int to) {
+        for (Direction d : DIRECTIONS) {
+            if (board.neighbor(from, d) == to) {
+                return d.ordinal();
+            }
+        }
+        throw new IllegalStateException("Сегменты змейки не соседние: " + from + " и " + to);
+    }
 
-        // Добавляем новый сегмент головы
-        body.add(0, newHead);
+    /**
+     * Удваивает кольцевой буфер, раскладывая сегменты от головы к хвосту с начала нового массива.
+     */
+    private void grow() {
+        int[] grown = new int[Math.max(length + 1, Math.min(cells.length * 2, board.getCellCount()))];
+        for (int i = 0; i < length; i++) {
+            grown[i] = cells[(headIndex + i) % cells.length];
+        }
+        cells = grown;
+        headIndex = 0;
+    }
 
-        // Убираем хвост
-        body.remove(body.size() - 1);
+    /**
+     * Отмечает клетку как занятую.
+     *
+     * @param cell Номер клетки.
+     */
+    private void occupy(int cell) {
+        occupied[cell >>> 6] |= 1L << cell;
+    }
+
+    /**
+     * Отмечает клетку как свободную.
+     *
+     * @param cell Номер клетки.
+     */
+    private void release(int cell) {
+        occupied[cell >>> 6] &= ~(1L << cell);
     }
 
     /**
@@ -118,10 +446,12 @@ public class Snake {
      * Направление нельзя менять на противоположное (например, нельзя сразу двигаться влево, если змейка движется вправо).
      *
      * @param newDirection Новое направление для змейки.
+     * @return true, если направление действительно изменилось.
      */
-    public void setDirection(Direction newDirection) {
+    public boolean setDirection(Direction newDirection) {
+        Direction previous = direction;
         // Запрещаем смену направления на противоположное (180 градусов)
-        if (body.size() > 1) {  // Проверяем, что змейка больше одного сегмента
+        if (length > 1) {  // Проверяем, что змейка больше одного сегмента
             if (newDirection == Direction.UP && direction != Direction.DOWN) {
                 direction = newDirection;
             } else if (newDirection == Direction.DOWN && direction != Direction.UP) {
@@ -134,5 +464,6 @@ public class Snake {
         } else {
             direction = newDirection; // Если длина змейки 1, можем менять направление
         }
+        return direction != previous;
     }
 }
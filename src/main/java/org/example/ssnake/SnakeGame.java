@@ -4,34 +4,55 @@ import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.input.KeyCode;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.Pane;
-import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
 
 /**
  * Класс, представляющий игровую логику для игры "Змейка".
  * <p>
- * Этот класс отвечает за создание и управление игровым процессом, включая движение змейки,
- * обработку ввода с клавиатуры, обновление состояния игры и отображение графики.
+ * Этот класс отвечает за создание окна, обработку ввода с клавиатуры и отображение графики.
+ * Само состояние игры хранится в {@link GameEngine}, а этот класс лишь продвигает его
+ * по таймеру и отрисовывает результат.
  * </p>
  */
 public class SnakeGame extends Application {
 
-    private Snake snake; // Ссылка на объект змейки
-    private Wall wall; // Ссылка на объект стены
-    private long lastUpdate = 0; // Для отслеживания времени
+    /** Количество тактов, на которое клавиша Backspace перематывает партию назад. */
+    public static final int REWIND_TICKS = 50;
+
+    private GameEngine engine; // Игровой движок без привязки к графике
+    private SimulationLoop simulation; // Поток симуляции с фиксированным шагом
     private long updateInterval; // Интервал обновления для выбранной скорости
+    private final int speedLevel; // Уровень скорости из меню
     private final int snakeLength; // Начальная длина змейки
+    private final int boardWidth; // Ширина поля в клетках
+    private final int boardHeight; // Высота поля в клетках
+    private final Wall level; // Стены уровня из пакета или null для стен по периметру
+    private final int levelIndex; // Номер уровня в пакете или -1
     private static final Logger logger = LogManager.getLogger(SnakeGame.class);
-    private Canvas canvas; // Добавляем поле canvas
+    private Canvas canvas; // Холст со змейкой
+    private Canvas backgroundCanvas; // Холст с фоном и стенами под змейкой
+    private Renderer renderer; // Рендерер, перерисовывающий только изменившиеся клетки
+    private PerfStats perfStats; // Замеры производительности или null, если они выключены
+    private PerfOverlay perfOverlay; // Отладочный слой с замерами или null
+    private Canvas overlayCanvas; // Холст отладочного слоя или null
+    private Scene scene; // Заранее построенная сцена игры
+    private AnimationTimer timer; // Таймер отрисовки
+    private GameOverWindow gameOverWindow; // Заранее построенное окно завершения игры
     private Stage gameStage;
     private boolean gameOverShown = false; // Флаг для отслеживания, было ли показано окно завершения игры
+    private ScoreStore scoreStore; // Хранилище результатов или null
+    private boolean rewound = false; // Перематывалась ли текущая партия (такие результаты не записываются)
 
 
     /**
@@ -41,122 +62,314 @@ public class SnakeGame extends Application {
      * @param initialSnakeLength Начальная длина змейки.
      */
     public SnakeGame(int speedLevel, int initialSnakeLength) {
+        this(speedLevel, initialSnakeLength, GameEngine.BOARD_WIDTH, GameEngine.BOARD_HEIGHT);
+    }
+
+    /**
+     * Конструктор игры на поле заданного размера.
+     * Если поле больше окна, камера следует за головой змейки.
+     *
+     * @param speedLevel         Уровень скорости игры (влияет на частоту обновления).
+     * @param initialSnakeLength Начальная длина змейки.
+     * @param boardWidth         Ширина поля в клетках.
+     * @param boardHeight        Высота поля в клетках.
+     */
+    public SnakeGame(int speedLevel, int initialSnakeLength, int boardWidth, int boardHeight) {
+        this(speedLevel, initialSnakeLength, boardWidth, boardHeight, null, -1);
+    }
+
+    /**
+     * Конструктор игры на уровне из пакета уровней. Размер поля задаётся уровнем.
+     *
+     * @param speedLevel         Уровень скорости игры (влияет на частоту обновления).
+     * @param initialSnakeLength Начальная длина змейки.
+     * @param level              Стены уровня.
+     * @param levelIndex         Номер уровня в пакете (записывается в запись партии).
+     */
+    public SnakeGame(int speedLevel, int initialSnakeLength, Wall level, int levelIndex) {
+        this(speedLevel, initialSnakeLength, level.getWidth(), level.getHeight(), level, levelIndex);
+    }
+
+    private SnakeGame(int speedLevel, int initialSnakeLength, int boardWidth, int boardHeight, Wall level, int levelIndex) {
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.level = level;
+        this.levelIndex = levelIndex;
         this.snakeLength = initialSnakeLength;
+        this.speedLevel = speedLevel;
         this.updateInterval = 100_000_000 / speedLevel; // Разные скорости (чем выше уровень, тем быстрее)
     }
 
     /**
-     * Запускает игровой процесс, создавая необходимые элементы интерфейса и логики.
-     *
-     * @param stage Основная сцена игры.
+     * Заранее создаёт игровой движок: поле, стены, змейку и индекс свободных клеток.
+     * Не использует узлы JavaFX, поэтому меню вызывает его в фоновом потоке — на больших полях
+     * это самая долгая часть подготовки. Повторный вызов ничего не делает.
      */
-    @Override
-    public void start(Stage stage) {
-        this.gameStage = stage;
+    public void prepareEngine() {
+        if (engine != null) return;
+        long started = System.nanoTime();
+        Board board = new Board(boardWidth, boardHeight);
+        Wall wall = level != null ? level : new Wall(boardWidth, boardHeight);
+        engine = new GameEngine(board, wall, snakeLength, System.nanoTime()); // Передаем начальную длину змейки
+        logger.info("Движок игры {}x{} создан за {} мс", boardWidth, boardHeight, (System.nanoTime() - started) / 1_000_000);
+    }
 
-        // Создаем контейнер и холст
-        Pane root = new AnchorPane(); // Используем AnchorPane для центровки
-        canvas = new Canvas(600, 400); // Создаем холст
-        root.getChildren().add(canvas);
+    /**
+     * Заранее создаёт сцену игры, холсты, рендерер и окно завершения игры и рисует первый кадр
+     * (движок создаётся методом {@link #prepareEngine()}, если он ещё не создан). Вызывается из потока JavaFX
+     * в свободное время, чтобы нажатие "Начать игру" не тратило время на построение сцены.
+     * Повторный вызов ничего не делает.
+     */
+    public void prepare() {
+        if (scene != null) return;
+        prepareEngine();
+        long started = System.nanoTime();
+        Board board = engine.getBoard();
 
-        // Получаем графический контекст
-        GraphicsContext gc = canvas.getGraphicsContext2D();
+        Pane root = new AnchorPane(); // Используем AnchorPane для центровки
+        double width = GameRenderer.viewportWidth(board) * GameRenderer.CELL_SIZE;
+        double height = GameRenderer.viewportHeight(board) * GameRenderer.CELL_SIZE;
+        List<Canvas> layers = new ArrayList<>();
+        if (PixelRenderer.ENABLED) {
+            // Изображение с пикселем на клетку, растянутое до размера видимой области на GPU
+            PixelRenderer pixelRenderer = new PixelRenderer(engine.getBoard(), engine.getWall());
+            root.getChildren().add(pixelRenderer.getView());
+            renderer = pixelRenderer;
+        } else {
+            // Холсты размером с видимую область: фон со стенами снизу, змейка сверху
+            backgroundCanvas = new Canvas(width, height);
+            canvas = new Canvas(width, height); // Создаем холст
+            root.getChildren().addAll(backgroundCanvas, canvas);
+            layers.add(backgroundCanvas);
+            layers.add(canvas);
+            renderer = new GameRenderer(backgroundCanvas, canvas, engine.getBoard(), engine.getWall());
+        }
+        if (PerfStats.ENABLED) {
+            // Отладочный слой с замерами поверх змейки (клавиша F3)
+            overlayCanvas = new Canvas(width, height);
+            root.getChildren().add(overlayCanvas);
+            layers.add(overlayCanvas);
+        }
 
-        // Создаем змейку и стены
-        snake = new Snake(snakeLength); // Передаем начальную длину змейки
-        wall = new Wall();
+        simulation = new SimulationLoop(engine, updateInterval);
+        if (renderer.isScrolling()) {
+            // Снимки содержат только клетки окна вокруг головы, а не всё тело змейки
+            simulation.setViewport(GameRenderer.viewportWidth(board), GameRenderer.viewportHeight(board));
+        }
 
         // Настроим сцену
-        Scene scene = new Scene(root);
-        stage.setScene(scene);
-        stage.setTitle("Snake Game");
-        stage.show();
-
-        logger.info("Игра началась с уровнем скорости: {} и начальной длиной змейки: {}", updateInterval, snakeLength);
+        scene = new Scene(root);
 
         // Обработка нажатия клавиш
         scene.setOnKeyPressed(event -> {
+            long now = System.nanoTime(); // Момент нажатия для замера задержки ввода
             if (event.getCode() == KeyCode.UP) {
-                snake.setDirection(Direction.UP);
+                simulation.setDirection(Direction.UP, now);
                 logger.info("Направление змейки изменено на ВВЕРХ");
             } else if (event.getCode() == KeyCode.DOWN) {
-                snake.setDirection(Direction.DOWN);
+                simulation.setDirection(Direction.DOWN, now);
                 logger.info("Направление змейки изменено на ВНИЗ");
             } else if (event.getCode() == KeyCode.LEFT) {
-                snake.setDirection(Direction.LEFT);
+                simulation.setDirection(Direction.LEFT, now);
                 logger.info("Направление змейки изменено на ВЛЕВО");
             } else if (event.getCode() == KeyCode.RIGHT) {
-                snake.setDirection(Direction.RIGHT);
+                simulation.setDirection(Direction.RIGHT, now);
                 logger.info("Направление змейки изменено на ВПРАВО");
+            } else if (event.getCode() == KeyCode.A) {
+                simulation.setAutopilot(!simulation.isAutopilot());
+                logger.info("Автопилот {}", simulation.isAutopilot() ? "включён" : "выключен");
+            } else if (event.getCode() == KeyCode.F3 && perfOverlay != null) {
+                perfOverlay.toggle();
+            } else if (event.getCode() == KeyCode.R && gameOverShown) {
+                restart(); // Новая партия с клавиатуры, не дожидаясь окна завершения
+            } else if (event.getCode() == KeyCode.BACK_SPACE) {
+                rewind();
             }
         });
 
         // Центрируем холст
-        canvas.widthProperty().bind(root.widthProperty());
-        canvas.heightProperty().bind(root.heightProperty());
-        AnchorPane.setTopAnchor(canvas, (root.getHeight() - canvas.getHeight()) / 2);
-        AnchorPane.setLeftAnchor(canvas, (root.getWidth() - canvas.getWidth()) / 2);
+        for (Canvas layer : layers) {
+            layer.widthProperty().bind(root.widthProperty());
+            layer.heightProperty().bind(root.heightProperty());
+            AnchorPane.setTopAnchor(layer, (root.getHeight() - layer.getHeight()) / 2);
+            AnchorPane.setLeftAnchor(layer, (root.getWidth() - layer.getWidth()) / 2);
+        }
+
+        // Применяем стили и раскладку заранее, а не при первом показе
+        root.applyCss();
+        root.layout();
 
-        // Отрисовка на старте
-        draw(gc);
+        // Окно завершения игры тоже строится заранее и при гибели только показывается
+        gameOverWindow = new GameOverWindow(this::restart);
 
-        // Создаем таймер, который будет обновлять игру каждый кадр
-        AnimationTimer timer = new AnimationTimer() {
+        // Отрисовка на старте: первый кадр готов ещё до показа сцены
+        renderer.render(simulation.getLatestSnapshot());
+
+        // Симуляция идёт в собственном потоке с фиксированным шагом,
+        // а таймер лишь отрисовывает последний опубликованный снимок с частотой дисплея
+        timer = new AnimationTimer() {
             @Override
             public void handle(long now) {
-                if (now - lastUpdate >= updateInterval) { // Проверяем, прошло ли нужное время
-                    update(); // Обновляем состояние игры
-                    draw(gc); // Отрисовываем изменения
-                    lastUpdate = now; // Обновляем время последнего обновления
+                if (PerfStats.ENABLED) {
+                    perfStats.recordFrame(now);
+                }
+                update(); // Проверяем состояние игры и отрисовываем изменения
+                if (PerfStats.ENABLED) {
+                    perfOverlay.update(now);
                 }
             }
         };
+        logger.info("Сцена игры подготовлена за {} мс", (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Запускает игровой процесс на заранее подготовленной сцене (или готовит её, если это не сделано).
+     *
+     * @param stage Основная сцена игры.
+     */
+    @Override
+    public void start(Stage stage) {
+        this.gameStage = stage;
+        prepare();
+
+        startReplay();
+        if (PerfStats.ENABLED) {
+            perfStats = new PerfStats(simulation);
+            perfStats.register();
+            perfOverlay = new PerfOverlay(overlayCanvas, perfStats);
+            logger.info("Замеры производительности включены, JMX: {}", PerfStats.OBJECT_NAME);
+        }
+
+        stage.setScene(scene);
+        stage.setTitle("Snake Game");
+        stage.setOnHidden(event -> stop()); // Закрытие окна завершает игру
+        stage.show();
+
+        logger.info("Игра началась с уровнем скорости: {} и начальной длиной змейки: {}", updateInterval, snakeLength);
+
+        simulation.start();
         timer.start(); // Запускаем таймер
     }
 
     /**
-     * Метод для обновления состояния игры. Перемещает змейку и проверяет завершение игры.
+     * Начинает новую партию без перезапуска приложения: сцена, холсты, рендерер и движок
+     * переиспользуются, движок лишь возвращается в начальное состояние с новым зерном.
      */
-    private void update() {
-        GraphicsContext gc = canvas.getGraphicsContext2D();
+    public void restart() {
+        gameOverWindow.hide();
+        simulation.restart(System.nanoTime());
+        renderer.invalidate();
+        renderer.render(simulation.getLatestSnapshot());
+        gameOverShown = false;
+        rewound = false;
+        startReplay();
+        simulation.start();
+        logger.info("Новая партия начата без перезапуска приложения");
+    }
 
-        // Перемещение змейки
-        snake.move(gc);  // Передаем gc в move() для отрисовки сообщения
+    /**
+     * Завершает игру: останавливает таймер отрисовки и поток симуляции и снимает замеры с регистрации в JMX.
+     * Новая партия через {@link #restart()} использует тот же цикл симуляции, поэтому замеры при ней не снимаются.
+     */
+    @Override
+    public void stop() {
+        timer.stop();
+        simulation.stop();
+        if (perfStats != null) {
+            perfStats.unregister();
+        }
+        logger.info("Игра завершена, окно закрыто");
+    }
+
+    /**
+     * Перематывает партию назад на {@link #REWIND_TICKS} тактов, в том числе после гибели змейки.
+     */
+    private void rewind() {
+        gameOverWindow.hide();
+        int ticks = simulation.rewind(REWIND_TICKS);
+        renderer.render(simulation.getLatestSnapshot()); // Такт уменьшился, поэтому кадр перерисуется целиком
+        gameOverShown = false;
+        rewound = true;
+        simulation.start();
+        logger.info("Партия перемотана назад на {} тактов", ticks);
+    }
+
+    /**
+     * Метод для обновления экрана. Отрисовывает последний снимок симуляции и проверяет завершение игры.
+     */
+    private void update() {
+        long started = PerfStats.ENABLED ? System.nanoTime() : 0;
+        GameSnapshot snapshot = simulation.getLatestSnapshot();
+        // Если кадр нужно перерисовать целиком, симуляция публикует полные снимки, пока он не будет отрисован
+        simulation.requestFullSnapshots(!renderer.render(snapshot));
+        if (PerfStats.ENABLED) {
+            perfStats.recordRender(System.nanoTime() - started);
+        }
 
         // Проверка, если игра завершена, не обновляем состояние
-        if (snake.isGameOver() && !gameOverShown) {
-            gameOver(); // Показать окно завершения игры
+        if (snapshot.isGameOver() && !gameOverShown) {
+            gameOver(snapshot); // Показать окно завершения игры
+        }
+    }
+
+    /**
+     * Включает запись партии в каталог {@code replays}.
+     * Если файл не удалось создать, игра продолжается без записи.
+     */
+    private void startReplay() {
+        Path path = Path.of("replays", "replay-" + System.currentTimeMillis() + ".snkr");
+        try {
+            simulation.setReplayWriter(new ReplayWriter(path, engine, speedLevel, levelIndex));
+            logger.info("Партия записывается в файл {}", path);
+        } catch (IOException e) {
+            logger.error("Не удалось создать файл записи партии", e);
         }
     }
 
     /**
      * Метод для обработки завершения игры.
-     * Показывает окно завершения игры и отображает соответствующие сообщения.
+     * Записывает результат партии и показывает окно завершения игры с таблицей рекордов.
+     *
+     * @param snapshot Последний снимок партии.
      */
-    private void gameOver() {
+    private void gameOver(GameSnapshot snapshot) {
         logger.info("Игра завершена. Показываем окно завершения игры.");
-        // Создаем окно завершения игры
-        GameOverWindow gameOverWindow = new GameOverWindow(gameStage);
-        gameOverWindow.showGameOverWindow();
+        recordScore(snapshot);
+        // Окно уже построено, поэтому показ не вызывает задержки кадра
+        gameOverWindow.showGameOverWindow(gameStage);
 
         // Устанавливаем флаг, что окно завершения игры было показано
         gameOverShown = true;
     }
 
     /**
-     * Метод для отрисовки игры на экране.
-     * Очистка экрана и рисование змейки и стен.
+     * Задаёт хранилище результатов. Без него результаты партий не записываются.
+     *
+     * @param scoreStore Хранилище результатов или null.
+     */
+    public void setScoreStore(ScoreStore scoreStore) {
+        this.scoreStore = scoreStore;
+    }
+
+    /**
+     * Записывает результат партии и обновляет таблицу рекордов в окне завершения игры.
+     * Перемотанные партии не записываются.
      *
-     * @param gc Графический контекст, используемый для рисования.
+     * @param snapshot Последний снимок партии.
      */
-    private void draw(GraphicsContext gc) {
-        // Очистка фона
-        gc.setFill(Color.BLACK);
-        gc.fillRect(0, 0, 600, 400);
-
-        // Рисуем змейку и стены
-        snake.draw(gc);
-        wall.draw(gc);
+    private void recordScore(GameSnapshot snapshot) {
+        if (scoreStore == null) return;
+        try {
+            if (!rewound) {
+                int place = scoreStore.add(snapshot.getSnakeLength(), snapshot.getTick(), speedLevel, snakeLength);
+                if (place > 0) {
+                    logger.info("Результат занял {} место в таблице рекордов", place);
+                }
+            }
+            gameOverWindow.setScores(ScoreStore.format(scoreStore.top(speedLevel, snakeLength)));
+        } catch (IOException e) {
+            logger.error("Не удалось записать результат партии", e);
+        }
     }
 
     /**
@@ -0,0 +1,54 @@
+package org.example.ssnake;
+
+/**
+ * Генератор псевдослучайных чисел SplitMix64: состояние увеличивается на постоянный шаг,
+ * а значение получается перемешиванием состояния.
+ * <p>
+ * Состояние — одно число {@code long}, которое хранит вызывающий код (в том числе в снимках движка),
+ * поэтому методы статические и не создают объектов. Очередное число получается так:
+ * {@code random = SplitMix64.next(random)}, затем {@link #mix(long)} или {@link #nextInt(long, int)}
+ * от нового состояния.
+ * </p>
+ */
+final class SplitMix64 {
+
+    /** Шаг состояния (дробная часть золотого сечения). */
+    static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+    private SplitMix64() {
+    }
+
+    /**
+     * Следующее состояние генератора.
+     *
+     * @param state Текущее состояние.
+     * @return Новое состояние.
+     */
+    static long next(long state) {
+        return state + GAMMA;
+    }
+
+    /**
+     * Случайное 64-битное значение для состояния.
+     *
+     * @param state Состояние генератора.
+     * @return Перемешанное значение.
+     */
+    static long mix(long state) {
+        long z = state;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Случайное число от 0 до bound - 1 для состояния.
+     *
+     * @param state Состояние генератора.
+     * @param bound Верхняя граница (не включается).
+     * @return Случайное число.
+     */
+    static int nextInt(long state, int bound) {
+        return (int) ((mix(state) >>> 1) % bound);
+    }
+}
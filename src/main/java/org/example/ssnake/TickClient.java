@@ -0,0 +1,411 @@
+package org.example.ssnake;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Клиент сервера тактов ({@link TickServer}) с зеркалом состояния комнаты.
+ * <p>
+ * Клиент получает полное состояние змеек только при входе в комнату, а дальше применяет изменения
+ * тактов к своему зеркалу: тело каждой змейки хранится в кольцевом буфере, как в {@link Snake}.
+ * Каждое событие хода сверяется с зеркалом (освобождённая клетка должна быть хвостом),
+ * поэтому расхождение с сервером обнаруживается сразу.
+ * </p>
+ * <p>
+ * Сокет неблокирующий: {@link #poll()} читает всё, что уже пришло, и не ждёт данных.
+ * Метод {@link #main(String[])} запускает множество таких клиентов в одном потоке для нагрузочной проверки сервера.
+ * </p>
+ */
+public class TickClient implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(TickClient.class);
+
+    private static final int INPUT_BUFFER = 64 * 1024 + TickProtocol.LENGTH_BYTES; // Вмещает любое сообщение
+
+    private final SocketChannel channel; // Сокет клиента
+    private final ByteBuffer in = ByteBuffer.allocate(INPUT_BUFFER); // Входящие данные
+    private final ByteBuffer out = ByteBuffer.allocate(16); // Исходящее сообщение
+    private Selector writeSelector; // Селектор ожидания места в буфере сокета, создаётся при первой нужде
+    private int slot = -1; // Слот игрока в комнате
+    private int cellCount = 0; // Количество клеток поля
+    private long tickNanos = 0; // Длительность такта сервера
+    private long tick = 0; // Номер последнего полученного такта
+    private int[][] bodies = new int[0][]; // Кольцевые буферы тел змеек по слотам
+    private final int[] heads = new int[TickServer.ROOM_CAPACITY]; // Индекс головы в буфере
+    private final int[] lengths = new int[TickServer.ROOM_CAPACITY]; // Длина змейки
+    private final int[] foods = new int[TickServer.ROOM_CAPACITY]; // Клетка еды
+    private final boolean[] alive = new boolean[TickServer.ROOM_CAPACITY]; // Жива ли змейка
+    private final boolean[] present = new boolean[TickServer.ROOM_CAPACITY]; // Занят ли слот
+    private long messages = 0; // Количество полученных сообщений
+    private long errors = 0; // Количество расхождений зеркала с сервером
+
+    /**
+     * Подключается к серверу.
+     *
+     * @param address Адрес сервера.
+     * @throws IOException Если подключение не удалось.
+     */
+    public TickClient(InetSocketAddress address) throws IOException {
+        channel = SocketChannel.open(address);
+        channel.socket().setTcpNoDelay(true);
+        channel.configureBlocking(false);
+    }
+
+    /**
+     * Получение сокета клиента (например, для регистрации в селекторе).
+     *
+     * @return Сокет.
+     */
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Вход в комнату.
+     *
+     * @param room Номер комнаты.
+     * @throws IOException Если отправка не удалась.
+     */
+    public void join(int room) throws IOException {
+        out.clear();
+        out.putShort((short) TickProtocol.JOIN_LENGTH).put(TickProtocol.JOIN).putInt(room);
+        send();
+    }
+
+    /**
+     * Смена направления своей змейки.
+     *
+     * @param direction Новое направление.
+     * @throws IOException Если отправка не удалась.
+     */
+    public void sendInput(Direction direction) throws IOException {
+        out.clear();
+        out.putShort((short) TickProtocol.INPUT_LENGTH).put(TickProtocol.INPUT).put((byte) direction.ordinal());
+        send();
+    }
+
+    /**
+     * Перезапуск своей змейки после гибели.
+     *
+     * @throws IOException Если отправка не удалась.
+     */
+    public void restart() throws IOException {
+        out.clear();
+        out.putShort((short) TickProtocol.RESTART_LENGTH).put(TickProtocol.RESTART);
+        send();
+    }
+
+    /**
+     * Отправка собранного сообщения. Сообщения клиента малы и отправляются целиком:
+     * если буфер сокета заполнен, поток ждёт в селекторе готовности к записи, а не крутится в цикле.
+     *
+     * @throws IOException Если отправка не удалась.
+     */
+    private void send() throws IOException {
+        out.flip();
+        channel.write(out);
+        if (!out.hasRemaining()) return;
+        if (writeSelector == null) {
+            writeSelector = Selector.open();
+            channel.register(writeSelector, SelectionKey.OP_WRITE);
+        }
+        while (out.hasRemaining()) {
+            writeSelector.select();
+            writeSelector.selectedKeys().clear();
+            channel.write(out);
+        }
+    }
+
+    /**
+     * Читает все пришедшие данные и применяет полученные сообщения к зеркалу.
+     *
+     * @return Количество обработанных сообщений.
+     * @throws IOException Если соединение закрыто сервером или нарушен протокол.
+     */
+    public int poll() throws IOException {
+        if (channel.read(in) < 0) {
+            throw new IOException("Сервер закрыл соединение");
+        }
+        in.flip();
+        int handled = 0;
+        while (in.remaining() >= TickProtocol.LENGTH_BYTES) {
+            int length = in.getShort(in.position()) & 0xFFFF;
+            if (in.remaining() < TickProtocol.LENGTH_BYTES + length) break;
+            int end = in.position() + TickProtocol.LENGTH_BYTES + length;
+            in.position(in.position() + TickProtocol.LENGTH_BYTES);
+            handleMessage();
+            in.position(end);
+            handled++;
+        }
+        in.compact();
+        messages += handled;
+        return handled;
+    }
+
+    /**
+     * Обработка одного сообщения сервера.
+     *
+     * @throws IOException Если тип сообщения неизвестен.
+     */
+    private void handleMessage() throws IOException {
+        byte type = in.get();
+        switch (type) {
+            case TickProtocol.WELCOME -> {
+                slot = in.get();
+                cellCount = in.getInt() * in.getInt();
+                tickNanos = in.getLong();
+                bodies = new int[TickServer.ROOM_CAPACITY][];
+                Arrays.fill(present, false);
+            }
+            case TickProtocol.SNAKE -> {
+                tick = in.getLong();
+                int s = in.get();
+                alive[s] = in.get() != 0;
+                foods[s] = in.getInt();
+                int length = in.getShort() & 0xFFFF;
+                if (bodies[s] == null) {
+                    bodies[s] = new int[cellCount];
+                }
+                for (int i = 0; i < length; i++) {
+                    bodies[s][i] = in.getInt();
+                }
+                heads[s] = 0;
+                lengths[s] = length;
+                present[s] = true;
+            }
+            case TickProtocol.TICK -> {
+                tick = in.getLong();
+                int events = in.getShort() & 0xFFFF;
+                for (int i = 0; i < events; i++) {
+                    applyEvent(in.get(), in.get());
+                }
+            }
+            default -> throw new IOException("Неизвестный тип сообщения сервера: " + type);
+        }
+    }
+
+    /**
+     * Применение события такта к зеркалу.
+     *
+     * @param kind Вид события.
+     * @param s    Слот змейки.
+     */
+    private void applyEvent(byte kind, int s) {
+        switch (kind) {
+            case TickProtocol.MOVE -> {
+                int head = in.getInt();
+                int removed = in.getInt();
+                int[] body = bodies[s];
+                if (body == null) {
+                    errors++;
+                    return;
+                }
+                if (removed >= 0) {
+                    // Освобождённая клетка обязана быть хвостом зеркала
+                    int tail = (heads[s] + lengths[s] - 1) % body.length;
+                    if (lengths[s] == 0 || body[tail] != removed) errors++;
+                    lengths[s]--;
+                } else if (removed != -1 || lengths[s] == body.length) {
+                    errors++;
+                }
+                heads[s] = heads[s] == 0 ? body.length - 1 : heads[s] - 1;
+                body[heads[s]] = head;
+                lengths[s]++;
+            }
+            case TickProtocol.FOOD -> foods[s] = in.getInt();
+            case TickProtocol.DEATH -> alive[s] = false;
+            case TickProtocol.LEFT -> {
+                present[s] = false;
+                lengths[s] = 0;
+            }
+            default -> errors++;
+        }
+    }
+
+    /**
+     * Получение слота своей змейки.
+     *
+     * @return Номер слота или -1, если клиент не в комнате.
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Получение номера последнего полученного такта.
+     *
+     * @return Номер такта.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Получение длительности такта сервера.
+     *
+     * @return Длительность такта в наносекундах.
+     */
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Проверка, есть ли в слоте игрок.
+     *
+     * @param s Слот.
+     * @return true, если слот занят.
+     */
+    public boolean isPresent(int s) {
+        return present[s];
+    }
+
+    /**
+     * Проверка, жива ли змейка слота.
+     *
+     * @param s Слот.
+     * @return true, если змейка жива.
+     */
+    public boolean isAlive(int s) {
+        return alive[s];
+    }
+
+    /**
+     * Получение длины змейки слота по зеркалу (сегменты на поле).
+     *
+     * @param s Слот.
+     * @return Длина.
+     */
+    public int getLength(int s) {
+        return lengths[s];
+    }
+
+    /**
+     * Получение клетки головы змейки слота.
+     *
+     * @param s Слот.
+     * @return Номер клетки или -1, если змейки нет.
+     */
+    public int getHeadCell(int s) {
+        return lengths[s] > 0 ? bodies[s][heads[s]] : -1;
+    }
+
+    /**
+     * Получение клетки еды змейки слота.
+     *
+     * @param s Слот.
+     * @return Номер клетки.
+     */
+    public int getFoodCell(int s) {
+        return foods[s];
+    }
+
+    /**
+     * Получение количества полученных сообщений.
+     *
+     * @return Количество сообщений.
+     */
+    public long getMessages() {
+        return messages;
+    }
+
+    /**
+     * Получение количества расхождений зеркала с сервером.
+     *
+     * @return Количество ошибок (0 при корректной работе).
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Закрывает соединение.
+     *
+     * @throws IOException Если закрытие не удалось.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        if (writeSelector != null) {
+            writeSelector.close();
+        }
+    }
+
+    /**
+     * Нагрузочная проверка: множество клиентов в одном потоке поворачивают змеек случайным образом.
+     *
+     * @param args Хост (по умолчанию localhost), порт (7777), количество клиентов (1000), комнат (200) и секунд (30).
+     * @throws IOException Если подключение не удалось.
+     */
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 7777;
+        int clientCount = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int roomCount = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+        long seconds = args.length > 4 ? Long.parseLong(args[4]) : 30;
+
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        List<TickClient> clients = new ArrayList<>(clientCount);
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < clientCount; i++) {
+                TickClient client = new TickClient(address);
+                client.getChannel().register(selector, SelectionKey.OP_READ, client);
+                client.join(i % roomCount);
+                clients.add(client);
+            }
+            logger.info("Подключено клиентов: {}", clientCount);
+
+            Direction[] directions = Direction.values();
+            long random = 1; // Состояние генератора SplitMix64
+            long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+            long nextInput = System.nanoTime();
+            while (System.nanoTime() < deadline) {
+                selector.select(10);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    ((TickClient) key.attachment()).poll();
+                }
+                if (System.nanoTime() - nextInput >= 0) {
+                    // Примерно раз в такт каждый восьмой клиент поворачивает, погибшие перезапускаются
+                    for (TickClient client : clients) {
+                        int own = client.getSlot();
+                        if (own < 0 || !client.isPresent(own)) continue;
+                        if (!client.isAlive(own)) {
+                            client.restart();
+                            continue;
+                        }
+                        random = SplitMix64.next(random);
+                        long z = SplitMix64.mix(random);
+                        if ((z & 7) == 0) {
+                            client.sendInput(directions[(int) ((z >>> 3) & 3)]);
+                        }
+                    }
+                    nextInput = System.nanoTime() + Math.max(clients.get(0).getTickNanos(), 10_000_000L);
+                }
+            }
+        }
+
+        long messages = 0;
+        long errors = 0;
+        for (TickClient client : clients) {
+            messages += client.getMessages();
+            errors += client.getErrors();
+            client.close();
+        }
+        logger.info("Клиентов {}, получено сообщений {} ({} в секунду), расхождений с сервером {}",
+                clientCount, messages, messages / Math.max(1, seconds), errors);
+    }
+}
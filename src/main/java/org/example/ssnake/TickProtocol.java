@@ -0,0 +1,82 @@
+package org.example.ssnake;
+
+/**
+ * Общие константы двоичного протокола сервера тактов ({@link TickServer}) и клиента ({@link TickClient}).
+ * <p>
+ * Каждое сообщение предваряется длиной тела {@code short} (без знака), тело начинается с байта типа.
+ * Порядок байт — big-endian. Сообщения клиента:
+ * </p>
+ * <pre>
+ * JOIN    (1): int номер комнаты
+ * INPUT   (2): byte направление ({@link Direction#ordinal()})
+ * RESTART (3): —
+ * </pre>
+ * <p>
+ * Сообщения сервера:
+ * </p>
+ * <pre>
+ * WELCOME (1): byte слот игрока, int ширина поля, int высота поля, long длительность такта в наносекундах
+ * SNAKE   (2): long такт, byte слот, byte жива ли змейка, int клетка еды, short длина,
+ *              int[длина] клетки тела от головы к хвосту — полное состояние одной змейки
+ * TICK    (3): long такт, short количество событий, далее события:
+ *              byte MOVE, byte слот, int новая голова, int освобождённый хвост (-1, если змейка выросла)
+ *              byte FOOD, byte слот, int новая клетка еды
+ *              byte DEATH, byte слот
+ *              byte LEFT, byte слот
+ * </pre>
+ * <p>
+ * Полное состояние (SNAKE) отправляется только при входе в комнату и после перезапуска змейки,
+ * а на каждом такте рассылаются лишь изменения, поэтому размер сообщения такта зависит от числа
+ * игроков в комнате, но не от размера поля и длины змеек.
+ * </p>
+ */
+final class TickProtocol {
+
+    /** Размер длины сообщения в байтах. */
+    static final int LENGTH_BYTES = 2;
+
+    /** Наибольшая длина тела сообщения. */
+    static final int MAX_MESSAGE = 0xFFFF;
+
+    /** Клиент: вход в комнату. */
+    static final byte JOIN = 1;
+
+    /** Клиент: смена направления. */
+    static final byte INPUT = 2;
+
+    /** Клиент: перезапуск змейки после гибели. */
+    static final byte RESTART = 3;
+
+    /** Длина тела JOIN: тип и номер комнаты. */
+    static final int JOIN_LENGTH = 5;
+
+    /** Длина тела INPUT: тип и направление. */
+    static final int INPUT_LENGTH = 2;
+
+    /** Длина тела RESTART: только тип. */
+    static final int RESTART_LENGTH = 1;
+
+    /** Сервер: подтверждение входа в комнату. */
+    static final byte WELCOME = 1;
+
+    /** Сервер: полное состояние одной змейки. */
+    static final byte SNAKE = 2;
+
+    /** Сервер: изменения за такт. */
+    static final byte TICK = 3;
+
+    /** Событие такта: змейка сделала шаг. */
+    static final byte MOVE = 0;
+
+    /** Событие такта: появилась новая еда. */
+    static final byte FOOD = 1;
+
+    /** Событие такта: змейка погибла. */
+    static final byte DEATH = 2;
+
+    /** Событие такта: игрок покинул комнату. */
+    static final byte LEFT = 3;
+
+    private TickProtocol() {
+    }
+}
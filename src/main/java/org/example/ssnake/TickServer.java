@@ -0,0 +1,609 @@
+package org.example.ssnake;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Авторитетный сервер тактов для сетевой игры: множество комнат в одной JVM.
+ * <p>
+ * Сервер работает в одном потоке на неблокирующих сокетах NIO: один {@link Selector} принимает
+ * подключения, читает ввод клиентов и отправляет им сообщения, а между событиями ввода-вывода
+ * с фиксированным шагом выполняет такты всех комнат. Потока на клиента нет, поэтому число
+ * подключений ограничено только памятью под буферы.
+ * </p>
+ * <p>
+ * Каждый игрок комнаты управляет своей змейкой; змейки комнаты играют на одинаковых полях
+ * с одним зерном (одинаковой последовательностью еды), но друг с другом пока не сталкиваются.
+ * На каждом такте клиентам рассылаются только изменения (формат описан в {@link TickProtocol}):
+ * новая голова, освобождённый хвост, новая еда и гибель змейки.
+ * </p>
+ * <p>
+ * Буферы каждого подключения ограничены. Если клиент не успевает читать и исходящий буфер
+ * переполняется, подключение закрывается, чтобы медленный клиент не задерживал комнату
+ * и не расходовал память сервера.
+ * </p>
+ */
+public class TickServer implements Runnable, Closeable {
+
+    private static final Logger logger = LogManager.getLogger(TickServer.class);
+
+    /** Наибольшее количество игроков в комнате. */
+    public static final int ROOM_CAPACITY = 8;
+
+    /** Начальная длина змейки игрока. */
+    public static final int INITIAL_LENGTH = 3;
+
+    /** Минимальный размер исходящего буфера подключения в байтах. */
+    public static final int OUTPUT_BUFFER = 16 * 1024;
+
+    /** Размер входящего буфера подключения в байтах. */
+    public static final int INPUT_BUFFER = 256;
+
+    /** Ёмкость очереди команд игрока. */
+    public static final int INPUT_CAPACITY = 4;
+
+    private static final long STATS_INTERVAL = 10_000_000_000L; // Интервал вывода статистики, нс
+    private static final Direction[] DIRECTIONS = Direction.values(); // Направления по номеру
+
+    private final Board board; // Поле всех комнат
+    private final long tickNanos; // Длительность такта в наносекундах
+    private final int outputBuffer; // Размер исходящего буфера подключения
+    private final Selector selector; // Селектор всех сокетов сервера
+    private final ServerSocketChannel server; // Слушающий сокет
+    private final Map<Integer, Room> rooms = new HashMap<>(); // Комнаты по номеру
+    private final List<Connection> dirty = new ArrayList<>(); // Подключения с неотправленными данными
+    private final ByteBuffer message; // Буфер для сборки одного сообщения
+    private volatile boolean running = true; // Флаг работы сервера
+    private long tick = 0; // Номер такта сервера
+    private int connections = 0; // Количество открытых подключений
+    private long bytesSent = 0; // Отправлено байт с последней статистики
+    private long slowClients = 0; // Отключено медленных клиентов
+
+    /**
+     * Создаёт сервер и открывает слушающий сокет.
+     *
+     * @param address   Адрес для приёма подключений (порт 0 — любой свободный).
+     * @param board     Поле всех комнат. Полное состояние змейки должно помещаться в одно сообщение.
+     * @param tickNanos Длительность такта в наносекундах.
+     * @throws IOException Если сокет не удалось открыть.
+     */
+    public TickServer(InetSocketAddress address, Board board, long tickNanos) throws IOException {
+        int snakeMessage = snakeMessageSize(board.getCellCount());
+        if (snakeMessage - TickProtocol.LENGTH_BYTES > TickProtocol.MAX_MESSAGE) {
+            throw new IllegalArgumentException("Поле " + board.getWidth() + "x" + board.getHeight()
+                    + " слишком велико для сетевой игры");
+        }
+        this.board = board;
+        this.tickNanos = tickNanos;
+        // При входе в комнату клиент получает состояние всех змеек сразу, и оно должно поместиться в буфер
+        this.outputBuffer = Math.max(OUTPUT_BUFFER, 2 * ROOM_CAPACITY * snakeMessage);
+        this.message = ByteBuffer.allocate(snakeMessage);
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.configureBlocking(false);
+        server.bind(address, 1024);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Получение порта, на котором сервер принимает подключения.
+     *
+     * @return Номер порта.
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Цикл сервера: ожидание событий сокетов до следующего такта и выполнение тактов.
+     */
+    @Override
+    public void run() {
+        long nextTick = System.nanoTime() + tickNanos;
+        long nextStats = System.nanoTime() + STATS_INTERVAL;
+        try {
+            while (running) {
+                long wait = nextTick - System.nanoTime();
+                if (wait > 0) {
+                    selector.select(Math.max(1, wait / 1_000_000));
+                } else {
+                    selector.selectNow();
+                }
+                handleKeys();
+
+                long now = System.nanoTime();
+                int steps = 0;
+                while (now - nextTick >= 0 && steps < SimulationLoop.MAX_CATCH_UP_STEPS) {
+                    tick++;
+                    for (Room room : rooms.values()) {
+                        room.step();
+                    }
+                    nextTick += tickNanos;
+                    steps++;
+                }
+                if (now - nextTick >= 0) {
+                    // Сервер не успевает: отбрасываем пропущенные такты, как и одиночная симуляция
+                    long dropped = (now - nextTick) / tickNanos + 1;
+                    nextTick += dropped * tickNanos;
+                    logger.warn("Сервер отстал, пропущено тактов: {}", Unbox.box(dropped));
+                }
+                flush();
+
+                if (now - nextStats >= 0) {
+                    logger.info("Комнат {}, подключений {}, отправлено {} КБ/с, отключено медленных клиентов {}",
+                            Unbox.box(rooms.size()), Unbox.box(connections),
+                            Unbox.box(bytesSent * 1_000_000_000L / STATS_INTERVAL / 1024), Unbox.box(slowClients));
+                    bytesSent = 0;
+                    nextStats = now + STATS_INTERVAL;
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Ошибка сервера тактов", e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key.channel());
+            }
+            closeQuietly(selector);
+        }
+    }
+
+    /**
+     * Останавливает сервер. Сокеты закрываются потоком сервера.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Обработка готовых сокетов: приём подключений, чтение и дозапись.
+     *
+     * @throws IOException Если слушающий сокет перестал работать.
+     */
+    private void handleKeys() throws IOException {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (!key.isValid()) continue;
+            if (key.isAcceptable()) {
+                accept();
+                continue;
+            }
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isReadable()) {
+                    read(connection);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    write(connection);
+                }
+            } catch (IOException e) {
+                // Обрыв соединения клиента не влияет на остальных игроков
+                disconnect(connection);
+            } catch (RuntimeException e) {
+                // Ошибка в обработке одного клиента не должна останавливать сервер
+                logger.error("Ошибка обработки клиента, соединение закрыто", e);
+                disconnect(connection);
+            }
+        }
+    }
+
+    /**
+     * Приём всех ожидающих подключений.
+     *
+     * @throws IOException Если слушающий сокет перестал работать.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel, outputBuffer);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connections++;
+        }
+    }
+
+    /**
+     * Чтение данных клиента и разбор всех полностью полученных сообщений.
+     *
+     * @param connection Подключение.
+     * @throws IOException Если соединение закрыто или нарушен протокол.
+     */
+    private void read(Connection connection) throws IOException {
+        ByteBuffer in = connection.in;
+        if (connection.channel.read(in) < 0) {
+            throw new IOException("Клиент закрыл соединение");
+        }
+        in.flip();
+        while (in.remaining() >= TickProtocol.LENGTH_BYTES) {
+            int length = in.getShort(in.position()) & 0xFFFF;
+            if (length == 0 || length > in.capacity() - TickProtocol.LENGTH_BYTES) {
+                throw new IOException("Неверная длина сообщения клиента: " + length);
+            }
+            if (in.remaining() < TickProtocol.LENGTH_BYTES + length) break;
+            int end = in.position() + TickProtocol.LENGTH_BYTES + length;
+            in.position(in.position() + TickProtocol.LENGTH_BYTES);
+            handleMessage(connection, in, length);
+            in.position(end);
+            if (connection.closed) return;
+        }
+        in.compact();
+    }
+
+    /**
+     * Обработка одного сообщения клиента.
+     *
+     * @param connection Подключение.
+     * @param in         Буфер, установленный на начало тела сообщения.
+     * @param length     Длина тела сообщения.
+     * @throws IOException Если сообщение нарушает протокол.
+     */
+    private void handleMessage(Connection connection, ByteBuffer in, int length) throws IOException {
+        byte type = in.get();
+        int expected = switch (type) {
+            case TickProtocol.JOIN -> TickProtocol.JOIN_LENGTH;
+            case TickProtocol.INPUT -> TickProtocol.INPUT_LENGTH;
+            case TickProtocol.RESTART -> TickProtocol.RESTART_LENGTH;
+            default -> throw new IOException("Неизвестный тип сообщения: " + type);
+        };
+        if (length != expected) {
+            throw new IOException("Неверная длина сообщения типа " + type + ": " + length + " вместо " + expected);
+        }
+        switch (type) {
+            case TickProtocol.JOIN -> join(connection, in.getInt());
+            case TickProtocol.INPUT -> {
+                int direction = in.get();
+                if (direction < 0 || direction >= DIRECTIONS.length) {
+                    throw new IOException("Неверное направление: " + direction);
+                }
+                // Команды сверх ёмкости очереди отбрасываются, как и при вводе с клавиатуры
+                connection.input.offer(DIRECTIONS[direction], 0);
+            }
+            case TickProtocol.RESTART -> {
+                if (connection.room != null) {
+                    connection.room.restart(connection.slot);
+                }
+            }
+        }
+    }
+
+    /**
+     * Вход в комнату (с выходом из текущей). Если комната заполнена, клиент получает слот -1.
+     *
+     * @param connection Подключение.
+     * @param roomId     Номер комнаты.
+     */
+    private void join(Connection connection, int roomId) {
+        if (connection.room != null) {
+            connection.room.leave(connection);
+        }
+        Room room = rooms.computeIfAbsent(roomId, Room::new);
+        int slot = room.enter(connection);
+        message.clear();
+        begin(TickProtocol.WELCOME);
+        message.put((byte) slot).putInt(board.getWidth()).putInt(board.getHeight()).putLong(tickNanos);
+        enqueue(connection);
+        if (slot < 0) {
+            if (room.count == 0) {
+                rooms.remove(roomId);
+            }
+            return;
+        }
+        // Новичок получает полное состояние комнаты, остальные — только его змейку
+        for (int i = 0; i < ROOM_CAPACITY; i++) {
+            if (room.players[i] != null && i != slot) {
+                room.writeSnake(i);
+                enqueue(connection);
+            }
+        }
+        room.writeSnake(slot);
+        room.broadcast();
+    }
+
+    /**
+     * Закрытие подключения и выход игрока из комнаты.
+     *
+     * @param connection Подключение.
+     */
+    private void disconnect(Connection connection) {
+        if (connection.closed) return;
+        connection.closed = true;
+        connections--;
+        if (connection.room != null) {
+            connection.room.leave(connection);
+        }
+        connection.key.cancel();
+        closeQuietly(connection.channel);
+    }
+
+    /**
+     * Начало сообщения в буфере сборки: место под длину и тип.
+     *
+     * @param type Тип сообщения.
+     */
+    private void begin(byte type) {
+        message.putShort((short) 0).put(type);
+    }
+
+    /**
+     * Копирование собранного сообщения в исходящий буфер подключения.
+     * Если буфер переполнен, клиент считается медленным и отключается при ближайшей отправке
+     * (не сразу, чтобы не прерывать рассылку текущего сообщения).
+     *
+     * @param connection Подключение.
+     */
+    private void enqueue(Connection connection) {
+        if (connection.closed || connection.slow) return;
+        int length = message.position();
+        message.putShort(0, (short) (length - TickProtocol.LENGTH_BYTES));
+        ByteBuffer out = connection.out;
+        if (out.remaining() < length) {
+            connection.slow = true;
+        } else {
+            out.put(message.array(), 0, length);
+        }
+        if (!connection.dirty) {
+            connection.dirty = true;
+            dirty.add(connection);
+        }
+    }
+
+    /**
+     * Отправка накопленных данных всем подключениям, получившим сообщения.
+     */
+    private void flush() {
+        for (int i = 0; i < dirty.size(); i++) {
+            Connection connection = dirty.get(i);
+            connection.dirty = false;
+            if (connection.closed) continue;
+            if (connection.slow) {
+                // Отключение рассылает событие выхода и может добавить подключения в конец списка
+                slowClients++;
+                disconnect(connection);
+                continue;
+            }
+            try {
+                write(connection);
+            } catch (IOException e) {
+                disconnect(connection);
+            }
+        }
+        dirty.clear();
+    }
+
+    /**
+     * Запись исходящего буфера в сокет. Неотправленный остаток дописывается, когда сокет станет готов.
+     *
+     * @param connection Подключение.
+     * @throws IOException Если запись не удалась.
+     */
+    private void write(Connection connection) throws IOException {
+        ByteBuffer out = connection.out;
+        out.flip();
+        bytesSent += connection.channel.write(out);
+        out.compact();
+        int ops = out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        if (connection.key.interestOps() != ops) {
+            connection.key.interestOps(ops);
+        }
+    }
+
+    /**
+     * Размер сообщения с полным состоянием змейки наибольшей длины.
+     *
+     * @param cellCount Количество клеток поля.
+     * @return Размер в байтах вместе с длиной сообщения.
+     */
+    private static int snakeMessageSize(int cellCount) {
+        return TickProtocol.LENGTH_BYTES + 1 + 8 + 1 + 1 + 4 + 2 + 4 * cellCount;
+    }
+
+    /**
+     * Закрытие ресурса без исключений.
+     *
+     * @param closeable Ресурс.
+     */
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            logger.debug("Не удалось закрыть ресурс", e);
+        }
+    }
+
+    /**
+     * Комната: до {@link #ROOM_CAPACITY} игроков, у каждого свой движок.
+     */
+    private final class Room {
+        private final int id; // Номер комнаты
+        private final Connection[] players = new Connection[ROOM_CAPACITY]; // Игроки по слотам
+        private final GameEngine[] engines = new GameEngine[ROOM_CAPACITY]; // Движки игроков по слотам
+        private final int[] foodCells = new int[ROOM_CAPACITY]; // Последняя разосланная клетка еды
+        private int count = 0; // Количество игроков
+
+        Room(int id) {
+            this.id = id;
+        }
+
+        /**
+         * Занимает свободный слот.
+         *
+         * @param connection Подключение игрока.
+         * @return Номер слота или -1, если комната заполнена.
+         */
+        int enter(Connection connection) {
+            for (int slot = 0; slot < ROOM_CAPACITY; slot++) {
+                if (players[slot] == null) {
+                    players[slot] = connection;
+                    // Одинаковое зерно даёт всем игрокам комнаты одинаковую последовательность еды
+                    engines[slot] = new GameEngine(board, INITIAL_LENGTH, id);
+                    foodCells[slot] = engines[slot].getFoodCell();
+                    connection.room = this;
+                    connection.slot = slot;
+                    connection.input.clear();
+                    count++;
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Освобождает слот игрока и сразу сообщает об этом остальным,
+         * чтобы новый игрок в том же слоте не был удалён запоздавшим событием.
+         *
+         * @param connection Подключение игрока.
+         */
+        void leave(Connection connection) {
+            int slot = connection.slot;
+            players[slot] = null;
+            engines[slot] = null;
+            connection.room = null;
+            connection.slot = -1;
+            if (--count == 0) {
+                rooms.remove(id);
+                return;
+            }
+            message.clear();
+            begin(TickProtocol.TICK);
+            message.putLong(tick).putShort((short) 1);
+            message.put(TickProtocol.LEFT).put((byte) slot);
+            broadcast();
+        }
+
+        /**
+         * Перезапуск погибшей змейки игрока.
+         *
+         * @param slot Слот игрока.
+         */
+        void restart(int slot) {
+            if (!engines[slot].isGameOver()) return;
+            engines[slot].reset();
+            foodCells[slot] = engines[slot].getFoodCell();
+            writeSnake(slot);
+            broadcast();
+        }
+
+        /**
+         * Такт комнаты: применение ввода, шаг всех змеек и рассылка изменений.
+         */
+        void step() {
+            message.clear();
+            begin(TickProtocol.TICK);
+            message.putLong(tick);
+            int countPosition = message.position();
+            message.putShort((short) 0);
+            int events = 0;
+            for (int slot = 0; slot < ROOM_CAPACITY; slot++) {
+                GameEngine engine = engines[slot];
+                if (engine == null || engine.isGameOver()) continue;
+                InputQueue input = players[slot].input;
+                Direction direction;
+                while ((direction = input.peekDirection()) != null) {
+                    input.remove();
+                    if (engine.setDirection(direction)) break; // Не больше одного поворота за такт
+                }
+                engine.step();
+                Snake snake = engine.getSnake();
+                if (engine.isGameOver()) {
+                    message.put(TickProtocol.DEATH).put((byte) slot);
+                    events++;
+                    continue;
+                }
+                message.put(TickProtocol.MOVE).put((byte) slot)
+                        .putInt(snake.getLastAddedCell()).putInt(snake.getLastRemovedCell());
+                events++;
+                if (engine.getFoodCell() != foodCells[slot]) {
+                    foodCells[slot] = engine.getFoodCell();
+                    message.put(TickProtocol.FOOD).put((byte) slot).putInt(foodCells[slot]);
+                    events++;
+                }
+            }
+            message.putShort(countPosition, (short) events);
+            broadcast();
+        }
+
+        /**
+         * Сборка сообщения с полным состоянием змейки.
+         *
+         * @param slot Слот игрока.
+         */
+        void writeSnake(int slot) {
+            GameEngine engine = engines[slot];
+            int[] cells = engine.getSnake().copyCells();
+            message.clear();
+            begin(TickProtocol.SNAKE);
+            message.putLong(tick).put((byte) slot).put((byte) (engine.isGameOver() ? 0 : 1))
+                    .putInt(engine.getFoodCell()).putShort((short) cells.length);
+            for (int cell : cells) {
+                message.putInt(cell);
+            }
+        }
+
+        /**
+         * Рассылка собранного сообщения всем игрокам комнаты.
+         */
+        void broadcast() {
+            for (int slot = 0; slot < ROOM_CAPACITY; slot++) {
+                Connection player = players[slot];
+                if (player != null) {
+                    enqueue(player);
+                }
+            }
+        }
+    }
+
+    /**
+     * Подключение клиента с ограниченными буферами.
+     */
+    private static final class Connection {
+        private final SocketChannel channel; // Сокет клиента
+        private final ByteBuffer in = ByteBuffer.allocate(INPUT_BUFFER); // Входящие данные
+        private final ByteBuffer out; // Исходящие данные (в режиме записи)
+        private final InputQueue input = new InputQueue(INPUT_CAPACITY); // Команды, ожидающие такта
+        private SelectionKey key; // Ключ сокета в селекторе
+        private Room room; // Комната игрока или null
+        private int slot = -1; // Слот игрока в комнате
+        private boolean dirty = false; // Есть ли неотправленные данные
+        private boolean slow = false; // Переполнен ли исходящий буфер
+        private boolean closed = false; // Закрыто ли подключение
+
+        Connection(SocketChannel channel, int outputBuffer) {
+            this.channel = channel;
+            this.out = ByteBuffer.allocate(outputBuffer);
+        }
+    }
+
+    /**
+     * Точка входа для запуска сервера.
+     *
+     * @param args Порт (по умолчанию 7777) и уровень скорости от 1 до 10 (по умолчанию 5).
+     * @throws IOException Если сокет не удалось открыть.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+        int speedLevel = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        TickServer server = new TickServer(new InetSocketAddress(port),
+                new Board(GameEngine.BOARD_WIDTH, GameEngine.BOARD_HEIGHT), 100_000_000L / speedLevel);
+        logger.info("Сервер тактов слушает порт {}", Unbox.box(server.getPort()));
+        server.run();
+    }
+}
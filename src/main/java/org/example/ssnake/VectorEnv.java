@@ -0,0 +1,356 @@
+package org.example.ssnake;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Пакет из N партий для обучения ботов в стиле gym: {@link #reset()} и {@link #step(int[])} продвигают
+ * все партии одновременно на один такт.
+ * <p>
+ * Каждая партия — обычный {@link GameEngine}, а действие применяется через {@link GameEngine#setDirection(Direction)},
+ * как и нажатие клавиши в игре. Поэтому правила движения, разворота, роста и гибели те же, что в настоящей игре.
+ * </p>
+ * <p>
+ * Наблюдения всех партий лежат в одном прямом (вне кучи) буфере {@link #getObservations()} с порядком байт
+ * платформы, который можно передать в обучающий код без копирования. Партия с номером {@code i} занимает
+ * {@link #getStride()} байт с {@code i * stride}:
+ * </p>
+ * <pre>
+ * float награда за последний шаг ({@link #OFFSET_REWARD})
+ * int   клетка головы ({@link #OFFSET_HEAD})
+ * int   длина змейки ({@link #OFFSET_LENGTH})
+ * byte  направление ({@link Direction#ordinal()}, {@link #OFFSET_DIRECTION})
+ * byte  1, если партия на этом шаге закончилась гибелью змейки ({@link #OFFSET_DONE})
+ * byte  1, если партия на этом шаге прервана по {@code maxTicks} тактов ({@link #OFFSET_TRUNCATED})
+ * далее по байту на клетку поля ({@link #OFFSET_GRID}): {@link #EMPTY}, {@link #WALL}, {@link #BODY}, {@link #HEAD}, {@link #FOOD}
+ * </pre>
+ * <p>
+ * Карта клеток обновляется только в изменившихся клетках (голова, хвост, еда), поэтому шаг занимает постоянное
+ * время и не создаёт объектов. Закончившаяся партия (гибель или {@code maxTicks} тактов) сразу начинается заново:
+ * награда и флаги завершения относятся к последнему шагу, а остальное наблюдение — уже к новой партии.
+ * Прерванная партия не проиграна, поэтому обучающий код может оценить её продолжение, а не считать его нулевым.
+ * Партии шагают независимо, поэтому при заданном пуле потоков они распределяются по ядрам группами.
+ * </p>
+ */
+public class VectorEnv {
+
+    private static final Logger logger = LogManager.getLogger(VectorEnv.class);
+
+    /** Смещение награды в наблюдении. */
+    public static final int OFFSET_REWARD = 0;
+
+    /** Смещение клетки головы в наблюдении. */
+    public static final int OFFSET_HEAD = 4;
+
+    /** Смещение длины змейки в наблюдении. */
+    public static final int OFFSET_LENGTH = 8;
+
+    /** Смещение направления в наблюдении. */
+    public static final int OFFSET_DIRECTION = 12;
+
+    /** Смещение флага завершения партии гибелью в наблюдении. */
+    public static final int OFFSET_DONE = 13;
+
+    /** Смещение флага прерывания партии по длине в наблюдении. */
+    public static final int OFFSET_TRUNCATED = 14;
+
+    /** Смещение карты клеток в наблюдении. */
+    public static final int OFFSET_GRID = 16;
+
+    /** Пустая клетка. */
+    public static final byte EMPTY = 0;
+
+    /** Стена. */
+    public static final byte WALL = 1;
+
+    /** Сегмент тела змейки. */
+    public static final byte BODY = 2;
+
+    /** Голова змейки. */
+    public static final byte HEAD = 3;
+
+    /** Еда. */
+    public static final byte FOOD = 4;
+
+    /** Действие, сохраняющее текущее направление. */
+    public static final int NO_ACTION = -1;
+
+    /** Награда за съеденную еду. */
+    public static final float FOOD_REWARD = 1f;
+
+    /** Награда за гибель. */
+    public static final float DEATH_REWARD = -1f;
+
+    /** Количество партий в одной задаче параллельного шага. */
+    public static final int CHUNK = 16;
+
+    private static final Direction[] DIRECTIONS = Direction.values(); // Направления по номеру
+
+    private final Board board; // Игровое поле (общее для всех партий)
+    private final Wall wall; // Стены (общие для всех партий)
+    private final GameEngine[] engines; // Партии
+    private final long[] episodes; // Количество начатых партий в каждой ячейке
+    private final long seed; // Зерно пакета
+    private final long maxTicks; // Наибольшая длина партии в тактах
+    private final int stride; // Размер наблюдения одной партии в байтах
+    private final ByteBuffer observations; // Наблюдения всех партий
+    private final IntConsumer stepTask = this::stepChunk; // Задача параллельного шага (создаётся один раз)
+    private int[] actions; // Действия текущего шага
+    private ForkJoinPool pool; // Пул для параллельного шага или null
+
+    /**
+     * Конструктор пакета партий.
+     *
+     * @param board         Игровое поле.
+     * @param wall          Стены того же размера, что и поле.
+     * @param initialLength Начальная длина змейки.
+     * @param count         Количество партий.
+     * @param maxTicks      Наибольшая длина партии в тактах, после которой она начинается заново.
+     * @param seed          Зерно пакета: от него зависят зёрна всех партий.
+     */
+    public VectorEnv(Board board, Wall wall, int initialLength, int count, long maxTicks, long seed) {
+        if (count <= 0 || maxTicks <= 0) {
+            throw new IllegalArgumentException("Неверные параметры пакета: партий " + count + ", тактов " + maxTicks);
+        }
+        this.board = board;
+        this.wall = wall;
+        this.seed = seed;
+        this.maxTicks = maxTicks;
+        this.stride = (OFFSET_GRID + board.getCellCount() + 7) & ~7; // Наблюдения выровнены по 8 байт
+        if ((long) stride * count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Наблюдения не помещаются в один буфер: партий " + count);
+        }
+        this.observations = ByteBuffer.allocateDirect(stride * count).order(ByteOrder.nativeOrder());
+        this.engines = new GameEngine[count];
+        this.episodes = new long[count];
+        for (int i = 0; i < count; i++) {
+            engines[i] = new GameEngine(board, wall, initialLength, episodeSeed(i));
+        }
+    }
+
+    /**
+     * Задаёт пул потоков для параллельного шага. Результат шага от пула не зависит.
+     *
+     * @param pool Пул или null для выполнения в вызывающем потоке.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Начинает все партии заново и записывает начальные наблюдения.
+     *
+     * @return Буфер наблюдений.
+     */
+    public ByteBuffer reset() {
+        for (int i = 0; i < engines.length; i++) {
+            episodes[i]++;
+            engines[i].reset(episodeSeed(i));
+            writeFull(i, 0f, false, false);
+        }
+        return observations;
+    }
+
+    /**
+     * Выполняет один такт всех партий.
+     * При последовательном выполнении объекты создаются только при перезапуске закончившихся партий.
+     *
+     * @param actions Номер направления ({@link Direction#ordinal()}) или {@link #NO_ACTION} для каждой партии.
+     * @return Буфер наблюдений.
+     */
+    public ByteBuffer step(int[] actions) {
+        if (actions.length != engines.length) {
+            throw new IllegalArgumentException("Ожидается " + engines.length + " действий, получено " + actions.length);
+        }
+        this.actions = actions;
+        int chunks = (engines.length + CHUNK - 1) / CHUNK;
+        if (pool == null || chunks <= 1) {
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                stepChunk(chunk);
+            }
+        } else {
+            pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(stepTask)).join();
+        }
+        return observations;
+    }
+
+    /**
+     * Шаг группы партий.
+     *
+     * @param chunk Номер группы.
+     */
+    private void stepChunk(int chunk) {
+        int end = Math.min(engines.length, (chunk + 1) * CHUNK);
+        for (int i = chunk * CHUNK; i < end; i++) {
+            stepOne(i, actions[i]);
+        }
+    }
+
+    /**
+     * Шаг одной партии с обновлением изменившихся клеток наблюдения.
+     *
+     * @param index  Номер партии.
+     * @param action Номер направления или {@link #NO_ACTION}.
+     */
+    private void stepOne(int index, int action) {
+        GameEngine engine = engines[index];
+        if (action >= 0) {
+            engine.setDirection(DIRECTIONS[action & 3]);
+        }
+        Snake snake = engine.getSnake();
+        int previousHead = snake.getHeadCell();
+        int previousLength = snake.getLength();
+        engine.step();
+        boolean gameOver = engine.isGameOver();
+        float reward = gameOver ? DEATH_REWARD : (snake.getLength() > previousLength ? FOOD_REWARD : 0f);
+
+        if (gameOver || engine.getTick() >= maxTicks) {
+            // Новая партия сразу; награда и флаги завершения относятся к закончившейся
+            episodes[index]++;
+            engine.reset(episodeSeed(index));
+            writeFull(index, reward, gameOver, !gameOver);
+            return;
+        }
+
+        int base = index * stride;
+        int grid = base + OFFSET_GRID;
+        int removed = snake.getLastRemovedCell();
+        if (removed >= 0) {
+            observations.put(grid + removed, EMPTY);
+        }
+        if (snake.getLength() > 1) {
+            observations.put(grid + previousHead, BODY);
+        }
+        int head = snake.getHeadCell();
+        observations.put(grid + head, HEAD);
+        int food = engine.getFoodCell();
+        if (food >= 0) {
+            observations.put(grid + food, FOOD);
+        }
+        observations.putFloat(base + OFFSET_REWARD, reward);
+        observations.putInt(base + OFFSET_HEAD, head);
+        observations.putInt(base + OFFSET_LENGTH, snake.getLength());
+        observations.put(base + OFFSET_DIRECTION, (byte) snake.getDirection().ordinal());
+        observations.put(base + OFFSET_DONE, (byte) 0);
+        observations.put(base + OFFSET_TRUNCATED, (byte) 0);
+    }
+
+    /**
+     * Полная запись наблюдения партии: заголовок и вся карта клеток.
+     *
+     * @param index     Номер партии.
+     * @param reward    Награда за последний шаг.
+     * @param done      Закончилась ли партия гибелью на последнем шаге.
+     * @param truncated Прервана ли партия по длине на последнем шаге.
+     */
+    private void writeFull(int index, float reward, boolean done, boolean truncated) {
+        GameEngine engine = engines[index];
+        Snake snake = engine.getSnake();
+        int base = index * stride;
+        int grid = base + OFFSET_GRID;
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            observations.put(grid + cell, wall.isWall(cell) ? WALL : snake.isOccupied(cell) ? BODY : EMPTY);
+        }
+        int head = snake.getHeadCell();
+        observations.put(grid + head, HEAD);
+        int food = engine.getFoodCell();
+        if (food >= 0) {
+            observations.put(grid + food, FOOD);
+        }
+        observations.putFloat(base + OFFSET_REWARD, reward);
+        observations.putInt(base + OFFSET_HEAD, head);
+        observations.putInt(base + OFFSET_LENGTH, snake.getLength());
+        observations.put(base + OFFSET_DIRECTION, (byte) snake.getDirection().ordinal());
+        observations.put(base + OFFSET_DONE, (byte) (done ? 1 : 0));
+        observations.put(base + OFFSET_TRUNCATED, (byte) (truncated ? 1 : 0));
+    }
+
+    /**
+     * Зерно очередной партии в ячейке: зависит только от зерна пакета, номера ячейки и номера партии.
+     *
+     * @param index Номер ячейки.
+     * @return Зерно партии.
+     */
+    private long episodeSeed(int index) {
+        return SplitMix64.mix(seed + SplitMix64.GAMMA * (((long) index << 32) + episodes[index] + 1));
+    }
+
+    /**
+     * Получение буфера наблюдений всех партий.
+     *
+     * @return Прямой буфер с порядком байт платформы.
+     */
+    public ByteBuffer getObservations() {
+        return observations;
+    }
+
+    /**
+     * Получение размера наблюдения одной партии.
+     *
+     * @return Размер в байтах (кратен 8).
+     */
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * Получение количества партий.
+     *
+     * @return Количество партий.
+     */
+    public int size() {
+        return engines.length;
+    }
+
+    /**
+     * Получение движка партии, например для показа её в игре.
+     *
+     * @param index Номер партии.
+     * @return Движок партии.
+     */
+    public GameEngine getEngine(int index) {
+        return engines[index];
+    }
+
+    /**
+     * Замер скорости: случайные действия для пакетов разного размера.
+     *
+     * @param args Количество тактов на пакет (по умолчанию 2000) и потоков (все ядра).
+     */
+    public static void main(String[] args) {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        Board board = new Board(GameEngine.BOARD_WIDTH, GameEngine.BOARD_HEIGHT);
+        Wall wall = new Wall(board.getWidth(), board.getHeight());
+        for (int count : new int[]{1, 16, 256, 4096}) {
+            VectorEnv env = new VectorEnv(board, wall, 3, count, 10_000, 1);
+            env.setPool(pool);
+            env.reset();
+            int[] actions = new int[count];
+            long random = 3; // Состояние генератора действий (SplitMix64)
+            long start = System.nanoTime();
+            for (int t = 0; t < ticks; t++) {
+                for (int i = 0; i < count; i++) {
+                    random = SplitMix64.next(random);
+                    long z = SplitMix64.mix(random);
+                    actions[i] = (z & 7) < 4 ? (int) (z & 3) : NO_ACTION; // Поворот примерно на каждом втором такте
+                }
+                env.step(actions);
+            }
+            long elapsed = Math.max(1, System.nanoTime() - start);
+            logger.info("Партий {} на {} потоках: {} шагов партий/с",
+                    Unbox.box(count), Unbox.box(threads), Unbox.box(Math.round((double) count * ticks * 1e9 / elapsed)));
+        }
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
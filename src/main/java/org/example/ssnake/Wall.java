@@ -1,51 +1,190 @@
 package org.example.ssnake;
 
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.paint.Color;
-
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Класс, представляющий стены на игровом поле.
  * <p>
- * Этот класс управляет созданием и отрисовкой стен, которые окружают игровое поле,
- * а также проверяет столкновение змейки с этими стенами.
+ * Стены хранятся как статическая битовая карта препятствий размером с игровое поле: бит клетки
+ * {@code y * width + x} установлен, если в ней стоит блок стены. Проверка столкновения на каждом
+ * такте сводится к чтению одного бита, а смена уровня — к замене карты, без создания объектов на каждый блок.
+ * По умолчанию стены создаются по периметру поля; другие уровни загружаются из {@link LevelPack}.
  * </p>
  */
 public class Wall {
 
-    private List<Point> wallBlocks; // Координаты блоков стен
+    private final int width; // Ширина поля в клетках
+    private final int height; // Высота поля в клетках
+    private final long[] bits; // Битовая карта блоков стен
+    private final int blockCount; // Количество блоков стен
+
+    /**
+     * Конструктор класса Wall для поля стандартного размера.
+     */
+    public Wall(){
+        this(GameEngine.BOARD_WIDTH, GameEngine.BOARD_HEIGHT);
+    }
 
     /**
      * Конструктор класса Wall, который инициализирует блоки стен.
      * Стены создаются по периметру игрового поля (по бокам и сверху/снизу).
+     *
+     * @param width  Ширина поля в клетках.
+     * @param height Высота поля в клетках.
      */
-    public Wall(){
-        wallBlocks = new ArrayList<>();
+    public Wall(int width, int height){
+        this(width, height, border(width, height));
+    }
+
+    /**
+     * Конструктор стен из готовой битовой карты. Массив не копируется.
+     *
+     * @param width  Ширина поля в клетках.
+     * @param height Высота поля в клетках.
+     * @param bits   Битовая карта блоков стен длиной {@link #wordCount(int, int)}.
+     */
+    public Wall(int width, int height, long[] bits){
+        if (bits.length != wordCount(width, height)) {
+            throw new IllegalArgumentException("Размер карты стен не соответствует полю " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.bits = bits;
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        this.blockCount = count;
+    }
 
+    /**
+     * Создание поля без стен.
+     *
+     * @param width  Ширина поля в клетках.
+     * @param height Высота поля в клетках.
+     * @return Стены без блоков.
+     */
+    public static Wall empty(int width, int height){
+        return new Wall(width, height, new long[wordCount(width, height)]);
+    }
+
+    /**
+     * Количество 64-битных слов в карте стен для поля заданного размера.
+     *
+     * @param width  Ширина поля в клетках.
+     * @param height Высота поля в клетках.
+     * @return Количество слов.
+     */
+    public static int wordCount(int width, int height){
+        return (int) (((long) width * height + 63) >>> 6);
+    }
+
+    /**
+     * Построение карты стен по периметру поля.
+     *
+     * @param width  Ширина поля в клетках.
+     * @param height Высота поля в клетках.
+     * @return Битовая карта.
+     */
+    private static long[] border(int width, int height){
+        long[] bits = new long[wordCount(width, height)];
         // Добавление верхней и нижней стены
-        for(int i=0; i<30; i++){
-            wallBlocks.add(new Point(i, 0)); // Верхняя стена
-            wallBlocks.add(new Point(i, 19)); // Нижняя стена
+        for(int i=0; i<width; i++){
+            set(bits, i); // Верхняя стена
+            set(bits, (height - 1) * width + i); // Нижняя стена
         }
 
         // Добавление левой и правой стены
-        for(int i=0; i<20; i++){
-            wallBlocks.add(new Point(0,i)); // Левая стена
-            wallBlocks.add(new Point(29,i)); // Правая стена
+        for(int i=0; i<height; i++){
+            set(bits, i * width); // Левая стена
+            set(bits, i * width + width - 1); // Правая стена
         }
+        return bits;
     }
 
     /**
-     * Метод для отрисовки стен на игровом поле.
+     * Установка бита клетки в карте.
      *
-     * @param gc Графический контекст, используемый для рисования стен.
+     * @param bits Битовая карта.
+     * @param cell Номер клетки.
      */
-    public void draw(GraphicsContext gc){
-        gc.setFill(Color.RED); // Цвет стен (красный)
-        for (Point block: wallBlocks) {
-            gc.fillRect(block.x * 20, block.y * 20, 20, 20); // Отрисовка каждого блока стены
+    private static void set(long[] bits, int cell){
+        bits[cell >>> 6] |= 1L << cell;
+    }
+
+    /**
+     * Проверка, находится ли в клетке блок стены.
+     * Выполняется за постоянное время, поэтому подходит для отрисовки видимой области большого поля.
+     *
+     * @param x Координата клетки по оси X.
+     * @param y Координата клетки по оси Y.
+     * @return true, если в клетке стена.
+     */
+    public boolean isWall(int x, int y){
+        return isWall(y * width + x);
+    }
+
+    /**
+     * Проверка, находится ли в клетке блок стены.
+     *
+     * @param cell Номер клетки.
+     * @return true, если в клетке стена.
+     */
+    public boolean isWall(int cell){
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Поиск следующего блока стены. Позволяет обойти все блоки без создания объектов:
+     * {@code for (int c = wall.nextWall(0); c >= 0; c = wall.nextWall(c + 1))}.
+     *
+     * @param fromCell Клетка, с которой начинается поиск (включительно).
+     * @return Номер клетки со стеной или -1, если блоков дальше нет.
+     */
+    public int nextWall(int fromCell){
+        int cellCount = width * height;
+        if (fromCell >= cellCount) return -1;
+        int index = fromCell >>> 6;
+        long word = bits[index] & (-1L << fromCell);
+        while (word == 0) {
+            if (++index == bits.length) return -1;
+            word = bits[index];
         }
+        int cell = (index << 6) + Long.numberOfTrailingZeros(word);
+        return cell < cellCount ? cell : -1;
+    }
+
+    /**
+     * Получение количества блоков стен.
+     *
+     * @return Количество блоков.
+     */
+    public int getBlockCount(){
+        return blockCount;
+    }
+
+    /**
+     * Получение ширины поля, для которого построены стены.
+     *
+     * @return Ширина в клетках.
+     */
+    public int getWidth(){
+        return width;
+    }
+
+    /**
+     * Получение высоты поля, для которого построены стены.
+     *
+     * @return Высота в клетках.
+     */
+    public int getHeight(){
+        return height;
+    }
+
+    /**
+     * Получение битовой карты для записи в пакет уровней. Массив не копируется и не должен изменяться.
+     *
+     * @return Битовая карта.
+     */
+    long[] bits(){
+        return bits;
     }
 }
@@ -0,0 +1,111 @@
+package org.example.ssnake;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка поля для множества змеек: результат тактов не зависит от числа потоков,
+ * а столкновение голова в голову убивает обе змейки.
+ */
+class ArenaTest {
+
+    private static final Direction[] DIRECTIONS = Direction.values(); // Направления по номеру
+
+    /**
+     * Прогон ботов со случайными поворотами, как в {@link Arena#main(String[])}, на тесном поле,
+     * где часты столкновения, рост и повторное появление.
+     *
+     * @param threads Количество потоков (1 — без пула).
+     * @param ticks   Количество тактов.
+     * @param stats   Сюда записываются количество погибших и наибольшая длина змейки.
+     * @return Отпечаток состояния после каждого такта.
+     */
+    private static long[] run(int threads, int ticks, long[] stats) {
+        Board board = new Board(96, 96);
+        int bots = 700;
+        Arena arena = new Arena(board, Wall.empty(96, 96), bots, 64, 300, 11);
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        arena.setPool(pool);
+        long[] fingerprints = new long[ticks];
+        long random = 5;
+        try {
+            for (int t = 0; t < ticks; t++) {
+                for (int i = 0; i < bots; i++) {
+                    random = SplitMix64.next(random);
+                    long z = SplitMix64.mix(random);
+                    if (i >= arena.getSnakeCount() || !arena.isAlive(i)) {
+                        arena.spawn((int) ((z >>> 1) % board.getCellCount()), DIRECTIONS[(int) (z >>> 60) & 3], 4);
+                    } else if ((z & 3) == 0) {
+                        arena.setDirection(i, DIRECTIONS[(int) ((z >>> 3) & 3)]);
+                    }
+                }
+                stats[0] += arena.step();
+                fingerprints[t] = fingerprint(arena, stats);
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+        return fingerprints;
+    }
+
+    /**
+     * Отпечаток состояния поля: тела и направления живых змеек, еда и занятые клетки.
+     *
+     * @param arena Поле.
+     * @param stats Наибольшая длина змейки обновляется в {@code stats[1]}.
+     * @return Хэш состояния.
+     */
+    private static long fingerprint(Arena arena, long[] stats) {
+        long hash = arena.getTick() * 31 + arena.getAliveCount();
+        for (int i = 0; i < arena.getSnakeCount(); i++) {
+            if (!arena.isAlive(i)) continue;
+            hash = SplitMix64.mix(hash + i * 131L + arena.getDirection(i).ordinal());
+            for (int s = 0; s < arena.getLength(i); s++) {
+                hash = hash * 31 + arena.getCell(i, s);
+            }
+            stats[1] = Math.max(stats[1], arena.getLength(i));
+        }
+        for (int cell = 0; cell < arena.getBoard().getCellCount(); cell++) {
+            if (arena.isFood(cell)) hash = hash * 37 + cell;
+            if (arena.isOccupied(cell)) hash = hash * 41 + cell;
+        }
+        return hash;
+    }
+
+    @Test
+    void resultDoesNotDependOnThreadCount() {
+        long[] stats = new long[2];
+        long[] serial = run(1, 300, stats);
+        assertTrue(stats[0] > 100, "Змейки должны гибнуть");
+        assertTrue(stats[1] > 4, "Змейки должны расти");
+        for (int threads : new int[]{2, 8}) {
+            long[] parallel = run(threads, 300, new long[2]);
+            assertArrayEquals(serial, parallel, "Результат на " + threads + " потоках");
+        }
+    }
+
+    @Test
+    void headOnCollisionKillsBoth() {
+        Board board = new Board(20, 20);
+        Arena arena = new Arena(board, Wall.empty(20, 20), 4, 8, 0, 1);
+        // Головы через клетку друг от друга: обе войдут в клетку (10, 5) на одном такте
+        int left = arena.spawn(board.cell(9, 5), Direction.RIGHT, 3);
+        int right = arena.spawn(board.cell(11, 5), Direction.LEFT, 3);
+        int bystander = arena.spawn(board.cell(10, 15), Direction.UP, 3);
+        assertEquals(2, arena.step());
+        assertFalse(arena.isAlive(left));
+        assertFalse(arena.isAlive(right));
+        assertTrue(arena.isAlive(bystander));
+        assertEquals(1, arena.getAliveCount());
+        assertFalse(arena.isOccupied(board.cell(9, 5)), "Клетки погибших змеек освобождаются");
+        assertEquals(board.cell(10, 14), arena.getHeadCell(bystander));
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.ssnake;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка индекса свободных клеток: удаление перестановкой последней клетки и точная отмена изменений.
+ */
+class FreeCellIndexTest {
+
+    /**
+     * Содержимое плотного массива индекса.
+     *
+     * @param index Индекс свободных клеток.
+     * @return Клетки в порядке плотного массива.
+     */
+    private static int[] cells(FreeCellIndex index) {
+        int[] cells = new int[index.size()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = index.get(i);
+        }
+        return cells;
+    }
+
+    @Test
+    void removeMovesLastCellIntoHole() {
+        FreeCellIndex index = new FreeCellIndex(10);
+        for (int cell = 0; cell < 10; cell++) {
+            index.add(cell);
+        }
+        index.remove(3);
+        assertEquals(9, index.size());
+        assertFalse(index.contains(3));
+        assertEquals(-1, index.positionOf(3));
+        assertEquals(9, index.get(3));
+        assertEquals(3, index.positionOf(9));
+
+        index.remove(3); // Повторное удаление игнорируется
+        index.add(5); // Как и повторное добавление
+        assertArrayEquals(new int[]{0, 1, 2, 9, 4, 5, 6, 7, 8}, cells(index));
+    }
+
+    @Test
+    void bitmapConstructorAddsCellsInOrder() {
+        long[] free = new long[2];
+        free[0] = (1L << 2) | (1L << 63);
+        free[1] = 1L << 4; // Клетка 68
+        FreeCellIndex index = new FreeCellIndex(70, free);
+        assertArrayEquals(new int[]{2, 63, 68}, cells(index));
+        assertThrows(IllegalArgumentException.class, () -> new FreeCellIndex(200, free));
+    }
+
+    @Test
+    void undoInReverseOrderRestoresDenseArray() {
+        int cellCount = 64;
+        FreeCellIndex index = new FreeCellIndex(cellCount);
+        for (int cell = 0; cell < cellCount; cell += 2) {
+            index.add(cell);
+        }
+        int[] initial = cells(index);
+
+        // Случайные удаления и добавления; для отмены запоминаются удалённая клетка и её позиция
+        Deque<int[]> changes = new ArrayDeque<>();
+        long random = 42;
+        for (int i = 0; i < 1000; i++) {
+            random = SplitMix64.next(random);
+            int cell = SplitMix64.nextInt(random, cellCount);
+            if (index.contains(cell)) {
+                changes.push(new int[]{cell, index.positionOf(cell)});
+                index.remove(cell);
+            } else {
+                changes.push(new int[]{cell, -1});
+                index.add(cell);
+            }
+        }
+
+        while (!changes.isEmpty()) {
+            int[] change = changes.pop();
+            if (change[1] >= 0) {
+                index.restore(change[0], change[1]);
+            } else {
+                assertEquals(change[0], index.get(index.size() - 1), "Добавленная клетка должна быть последней");
+                index.remove(change[0]);
+            }
+        }
+        assertArrayEquals(initial, cells(index));
+        for (int position = 0; position < initial.length; position++) {
+            assertEquals(position, index.positionOf(initial[position]));
+        }
+    }
+
+    @Test
+    void restoreRejectsPresentCell() {
+        FreeCellIndex index = new FreeCellIndex(4);
+        index.add(1);
+        assertTrue(index.contains(1));
+        assertThrows(IllegalStateException.class, () -> index.restore(1, 0));
+        assertThrows(IllegalStateException.class, () -> index.restore(2, 5));
+    }
+}
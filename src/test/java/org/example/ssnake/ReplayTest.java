@@ -0,0 +1,121 @@
+package org.example.ssnake;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка формата записи партии: заголовок и записи varint читаются обратно без изменений.
+ */
+class ReplayTest {
+
+    private static final Direction[] DIRECTIONS = Direction.values(); // Направления по номеру
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Движок, чьи параметры попадают в заголовок записи.
+     *
+     * @return Движок на поле 40x25 с зерном 123.
+     */
+    private static GameEngine engine() {
+        return new GameEngine(new Board(40, 25), 4, 123);
+    }
+
+    @Test
+    void recordsRoundTripAcrossVarintWidths() throws IOException {
+        // Разности тактов на границах длины varint: 1, 2, 3 и больше байт
+        long[] deltas = {0, 1, 15, 16, 2047, 2048, 262_143, 262_144, 1L << 40, 7};
+        Path path = directory.resolve("widths.snkr");
+        long tick = 0;
+        try (ReplayWriter writer = new ReplayWriter(path, engine(), 6, 2)) {
+            for (int i = 0; i < deltas.length; i++) {
+                tick += deltas[i];
+                writer.recordInput(tick, DIRECTIONS[i % DIRECTIONS.length]);
+            }
+            writer.finish(tick + 3);
+            writer.finish(tick + 100); // Повторное завершение игнорируется
+        }
+        assertEquals(Replay.HEADER_SIZE + 1 + 1 + 1 + 2 + 2 + 3 + 3 + 4 + 7 + 1 + 1, Files.size(path));
+
+        ReplayReader reader = new ReplayReader(path);
+        assertEquals(123, reader.getSeed());
+        assertEquals(4, reader.getInitialLength());
+        assertEquals(6, reader.getSpeedLevel());
+        assertEquals(40, reader.getBoardWidth());
+        assertEquals(25, reader.getBoardHeight());
+        assertEquals(2, reader.getLevel());
+        long expected = 0;
+        for (int i = 0; i < deltas.length; i++) {
+            expected += deltas[i];
+            assertTrue(reader.next());
+            assertFalse(reader.isEnd());
+            assertEquals(expected, reader.getTick());
+            assertEquals(DIRECTIONS[i % DIRECTIONS.length], reader.getDirection());
+        }
+        assertTrue(reader.next());
+        assertTrue(reader.isEnd());
+        assertEquals(expected + 3, reader.getTick());
+        assertFalse(reader.next());
+    }
+
+    @Test
+    void longRecordingCrossesWriteBuffer() throws IOException {
+        // Больше записей, чем помещается в буфер записи, чтобы проверить его сброс в файл
+        Path path = directory.resolve("long.snkr");
+        int records = 100_000;
+        try (ReplayWriter writer = new ReplayWriter(path, engine(), 5)) {
+            for (int i = 1; i <= records; i++) {
+                writer.recordInput(i * 3L, DIRECTIONS[i & 3]);
+            }
+            writer.finish(records * 3L + 1);
+        }
+        ReplayReader reader = new ReplayReader(path);
+        assertEquals(Replay.BORDER_LEVEL, reader.getLevel());
+        for (int i = 1; i <= records; i++) {
+            assertTrue(reader.next());
+            assertEquals(i * 3L, reader.getTick());
+            assertEquals(DIRECTIONS[i & 3], reader.getDirection());
+        }
+        assertTrue(reader.next());
+        assertTrue(reader.isEnd());
+        assertFalse(reader.next());
+    }
+
+    @Test
+    void truncatedRecordingEndsWithoutError() throws IOException {
+        // Запись прервана посреди многобайтового varint (например, при аварийном завершении)
+        Path path = directory.resolve("truncated.snkr");
+        try (ReplayWriter writer = new ReplayWriter(path, engine(), 5)) {
+            writer.recordInput(10, Direction.UP);
+            writer.recordInput(1_000_000, Direction.LEFT);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(path) - 1);
+        }
+        ReplayReader reader = new ReplayReader(path);
+        assertTrue(reader.next());
+        assertEquals(10, reader.getTick());
+        assertEquals(Direction.UP, reader.getDirection());
+        assertTrue(reader.next()); // Неполная запись читается до конца файла
+        assertFalse(reader.next());
+    }
+
+    @Test
+    void rejectsForeignFile() throws IOException {
+        Path path = directory.resolve("foreign.bin");
+        Files.write(path, new byte[Replay.HEADER_SIZE]);
+        assertThrows(IOException.class, () -> new ReplayReader(path));
+    }
+}
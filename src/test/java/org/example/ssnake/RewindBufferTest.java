@@ -0,0 +1,86 @@
+package org.example.ssnake;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка буфера перемотки: после перемотки партия с теми же поворотами повторяется такт в такт,
+ * включая еду, которую выбирает индекс свободных клеток.
+ */
+class RewindBufferTest {
+
+    /**
+     * Снимок состояния движка для сравнения.
+     *
+     * @param engine Движок.
+     * @return Состояние в буфере, готовом к чтению.
+     */
+    private static ByteBuffer state(GameEngine engine) {
+        ByteBuffer buffer = ByteBuffer.allocate(engine.getStateSize(false));
+        engine.saveState(buffer, false);
+        return buffer.flip();
+    }
+
+    @Test
+    void rewindReplaysSameGame() {
+        Board board = new Board(GameEngine.BOARD_WIDTH, GameEngine.BOARD_HEIGHT);
+        GameEngine engine = new GameEngine(board, 3, 7);
+        Autopilot autopilot = new Autopilot(board);
+        RewindBuffer history = new RewindBuffer(100);
+        List<ByteBuffer> states = new ArrayList<>(); // Состояния исходной партии по тактам
+        List<Direction> directions = new ArrayList<>(); // Направления исходной партии по тактам
+        history.record(engine);
+        states.add(state(engine));
+        int foodEaten = 0;
+        while (engine.getTick() < 400 && !engine.isGameOver()) {
+            Direction direction = autopilot.decide(engine, engine.getFoodCell());
+            engine.setDirection(direction);
+            directions.add(engine.getSnake().getDirection());
+            int length = engine.getSnake().getLength();
+            engine.step();
+            if (engine.getSnake().getLength() > length) foodEaten++;
+            history.record(engine);
+            states.add(state(engine));
+        }
+        assertTrue(engine.getTick() >= 200 && foodEaten >= 5, "Партия слишком короткая для проверки");
+
+        // Несколько перемоток подряд, каждая с повтором части партии
+        for (int back : new int[]{60, 1, 30}) {
+            int end = (int) engine.getTick();
+            assertEquals(back, history.rewind(engine, back));
+            int start = end - back;
+            assertEquals(states.get(start), state(engine), "Состояние после перемотки на " + back);
+            for (int tick = start; tick < end - back / 2; tick++) {
+                engine.setDirection(directions.get(tick));
+                engine.step();
+                history.record(engine);
+                assertEquals(states.get(tick + 1), state(engine), "Такт " + (tick + 1) + " после перемотки");
+            }
+        }
+    }
+
+    @Test
+    void rewindStopsAtOldestSnapshot() {
+        GameEngine engine = new GameEngine(new Board(GameEngine.BOARD_WIDTH, GameEngine.BOARD_HEIGHT), 3, 1);
+        RewindBuffer history = new RewindBuffer(10);
+        assertEquals(0, history.rewind(engine, 5));
+        ByteBuffer oldest = null;
+        for (int tick = 0; tick < 30; tick++) {
+            history.record(engine);
+            if (tick == 20) oldest = state(engine);
+            engine.step();
+        }
+        assertEquals(10, history.size());
+        assertEquals(9, history.rewind(engine, 100));
+        assertEquals(oldest, state(engine));
+        assertEquals(1, history.size());
+        assertThrows(IllegalArgumentException.class, () -> history.rewind(engine, -1));
+    }
+}
@@ -0,0 +1,142 @@
+package org.example.ssnake;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка клиента с предсказанием и откатом через {@link LoopbackTransport}: состояние клиента
+ * на каждом полностью подтверждённом такте должно совпадать с состоянием сервера на том же такте.
+ */
+class RollbackClientTest {
+
+    /**
+     * Прогон автопилота на клиенте. Предсказанные состояния клиента запоминаются по тактам и сравниваются
+     * с сервером, как только такт подтверждён; состояния, пересчитанные откатом, запоминаются заново.
+     */
+    private static final class Run {
+        final Board board = new Board(GameEngine.BOARD_WIDTH, GameEngine.BOARD_HEIGHT);
+        final Wall wall = Wall.empty(board.getWidth(), board.getHeight());
+        final int window;
+        final LoopbackTransport transport;
+        final RollbackClient client;
+        final Autopilot autopilot = new Autopilot(board);
+        final Map<Long, ByteBuffer> serverStates = new HashMap<>(); // Состояния сервера по тактам
+        final Map<Long, ByteBuffer> clientStates = new HashMap<>(); // Непроверенные предсказания клиента
+        long checkedTicks = 0; // Количество тактов клиента, сверенных с сервером
+
+        Run(int latency, int jitter, int lead, long seed) {
+            window = 2 * (latency + jitter) + lead + 2;
+            transport = new LoopbackTransport(new GameEngine(board, wall, 3, 1), latency, jitter, lead, seed);
+            client = new RollbackClient(new GameEngine(board, wall, 3, 1), transport, window);
+            serverStates.put(0L, state(transport.getServer()));
+        }
+
+        /**
+         * Один кадр: часы связи, ввод автопилота и такт клиента (если кадр не пропущен).
+         *
+         * @param stalled Пропускает ли клиент кадр.
+         * @param input   Может ли автопилот поворачивать.
+         */
+        void frame(boolean stalled, boolean input) {
+            transport.advance();
+            GameEngine server = transport.getServer();
+            serverStates.putIfAbsent(server.getTick(), state(server));
+            if (stalled) return;
+            GameEngine predicted = client.getEngine();
+            if (input && !predicted.isGameOver()) {
+                Direction direction = autopilot.decide(predicted, predicted.getFoodCell());
+                if (direction != predicted.getSnake().getDirection()) {
+                    client.input(direction);
+                }
+            }
+            long confirmedBefore = client.getConfirmedTick();
+            long rollbacks = client.getRollbacks();
+            client.tick();
+            if (client.getRollbacks() != rollbacks) {
+                clientStates.keySet().removeIf(tick -> tick > confirmedBefore); // Пересчитаны откатом
+            }
+            clientStates.put(predicted.getTick(), state(predicted));
+            clientStates.entrySet().removeIf(entry -> {
+                if (entry.getKey() > client.getConfirmedTick()) return false;
+                assertEquals(serverStates.get(entry.getKey()), entry.getValue(),
+                        "Состояние клиента на подтверждённом такте " + entry.getKey());
+                checkedTicks++;
+                return true;
+            });
+        }
+
+        /**
+         * Ограниченное ожидание без ввода: все повороты подтверждаются, после чего предсказание клиента
+         * больше не меняется и должно совпасть с сервером, когда тот дойдёт до того же такта.
+         */
+        void drain() {
+            for (int i = 0; i < 3 * window; i++) {
+                frame(false, false);
+            }
+            GameEngine predicted = client.getEngine();
+            long tick = predicted.getTick();
+            ByteBuffer expected = state(predicted);
+            for (int i = 0; i < 2 * window && transport.getServer().getTick() < tick; i++) {
+                frame(true, false);
+            }
+            assertEquals(expected, serverStates.get(tick), "Состояние клиента после подтверждения всех поворотов");
+        }
+    }
+
+    /**
+     * Снимок состояния движка для сравнения.
+     *
+     * @param engine Движок.
+     * @return Состояние в буфере, готовом к чтению.
+     */
+    private static ByteBuffer state(GameEngine engine) {
+        ByteBuffer buffer = ByteBuffer.allocate(engine.getStateSize(false));
+        engine.saveState(buffer, false);
+        return buffer.flip();
+    }
+
+    @Test
+    void staysInSyncAfterStallLongerThanWindow() {
+        // Окно 23 такта, пауза 40 тактов: подтверждения приходят быстрее, чем клиент их выполняет
+        for (int[] link : new int[][]{{5, 3, 7}, {2, 0, 5}}) {
+            Run run = new Run(link[0], link[1], link[2], 1);
+            for (int t = 0; t < 600 && !run.transport.getServer().isGameOver(); t++) {
+                run.frame(t >= 60 && t < 100, true);
+            }
+            run.drain();
+            assertTrue(run.checkedTicks > 0);
+        }
+    }
+
+    @Test
+    void longRunWithInputInTimeNeedsNoRollback() {
+        // Сервер отстаёт от клиента не меньше, чем идёт поворот, поэтому каждый поворот применяется в свой такт
+        Run run = new Run(5, 3, 8, 1);
+        for (int t = 0; t < 5000 && !run.transport.getServer().isGameOver(); t++) {
+            run.frame(false, true);
+        }
+        run.drain();
+        assertTrue(run.transport.getServer().getTick() >= 1000, "Партия закончилась слишком рано");
+        assertEquals(0, run.client.getRollbacks());
+    }
+
+    @Test
+    void lateInputIsRolledBack() {
+        // Поворот доходит до сервера позже своего такта, и клиент откатывается к такту, где сервер его применил
+        for (long seed = 1; seed <= 5; seed++) {
+            Run run = new Run(5, 3, 0, seed);
+            for (int t = 0; t < 2000 && !run.transport.getServer().isGameOver(); t++) {
+                run.frame(false, true);
+            }
+            run.drain();
+            assertTrue(run.client.getRollbacks() > 0);
+            assertTrue(run.checkedTicks > 0);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package org.example.ssnake;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Проверка хранилища результатов: восстановление после недописанного хвоста журнала
+ * и согласованность индекса с журналом при повторном открытии.
+ */
+class ScoreStoreTest {
+
+    private static final int HEADER_SIZE = 16; // Размер заголовка журнала
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Таблицы рекордов всех групп, которые заполняет {@link #fill(ScoreStore, int, int)}.
+     *
+     * @param store Хранилище.
+     * @return Результаты по группам со всеми полями.
+     */
+    private static List<String> tables(ScoreStore store) {
+        List<String> tables = new ArrayList<>();
+        for (int speedLevel = 1; speedLevel <= 3; speedLevel++) {
+            for (int initialLength = 1; initialLength <= 2; initialLength++) {
+                StringBuilder table = new StringBuilder();
+                for (ScoreStore.Score score : store.top(speedLevel, initialLength)) {
+                    table.append(score.getLength()).append('/').append(score.getTicks()).append('/')
+                            .append(score.getTime()).append(' ');
+                }
+                tables.add(table.toString());
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Добавляет результаты в шесть групп.
+     *
+     * @param store Хранилище.
+     * @param from  Номер первого результата.
+     * @param count Количество результатов.
+     * @throws IOException Если запись не удалась.
+     */
+    private static void fill(ScoreStore store, int from, int count) throws IOException {
+        for (int i = from; i < from + count; i++) {
+            store.add(3 + (i * 37) % 50, i, 1 + i % 3, 1 + i % 2);
+        }
+    }
+
+    /**
+     * Размер журнала.
+     *
+     * @param dir Каталог хранилища.
+     * @return Размер в байтах.
+     * @throws IOException Если размер не удалось получить.
+     */
+    private static long logSize(Path dir) throws IOException {
+        return Files.size(dir.resolve("scores.log"));
+    }
+
+    /**
+     * Позиция журнала, записанная в индексе.
+     *
+     * @param dir Каталог хранилища.
+     * @return Позиция в байтах.
+     * @throws IOException Если индекс не удалось прочитать.
+     */
+    private static long indexedPosition(Path dir) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(dir.resolve("scores.idx"))).order(ByteOrder.LITTLE_ENDIAN).getLong(8);
+    }
+
+    @Test
+    void reopenRestoresTables() throws IOException {
+        List<String> expected;
+        try (ScoreStore store = new ScoreStore(directory)) {
+            fill(store, 0, 500);
+            expected = tables(store);
+        }
+        assertEquals(HEADER_SIZE + 500L * ScoreStore.RECORD_SIZE, logSize(directory));
+        assertEquals(logSize(directory), indexedPosition(directory));
+        try (ScoreStore store = new ScoreStore(directory)) {
+            assertEquals(expected, tables(store));
+            assertEquals(ScoreStore.TOP_N, store.top(1, 1).size());
+        }
+    }
+
+    @Test
+    void tornTailIsDropped() throws IOException {
+        List<String> expected;
+        try (ScoreStore store = new ScoreStore(directory)) {
+            fill(store, 0, 40);
+            expected = tables(store);
+        }
+        long size = logSize(directory);
+        // Недописанная запись после сбоя: начало новой записи без остатка и контрольной суммы
+        try (FileChannel log = FileChannel.open(directory.resolve("scores.log"), StandardOpenOption.WRITE)) {
+            log.write(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11}), size);
+        }
+        try (ScoreStore store = new ScoreStore(directory)) {
+            assertEquals(size, logSize(directory));
+            assertEquals(expected, tables(store));
+            fill(store, 40, 10);
+            expected = tables(store);
+        }
+        assertEquals(size + 10L * ScoreStore.RECORD_SIZE, logSize(directory));
+        try (ScoreStore store = new ScoreStore(directory)) {
+            assertEquals(expected, tables(store));
+        }
+    }
+
+    @Test
+    void corruptedRecordAfterIndexIsDropped() throws IOException {
+        Path crashed = directory.resolve("crashed");
+        List<String> indexed;
+        try (ScoreStore store = new ScoreStore(directory)) {
+            fill(store, 0, 30);
+        }
+        try (ScoreStore store = new ScoreStore(directory)) {
+            indexed = tables(store);
+            fill(store, 30, 5);
+            store.flush(); // Журнал на диске, индекс ещё нет
+            Files.createDirectories(crashed);
+            for (String name : new String[]{"scores.log", "scores.idx"}) {
+                Files.copy(directory.resolve(name), crashed.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        long indexedSize = HEADER_SIZE + 30L * ScoreStore.RECORD_SIZE;
+        assertEquals(indexedSize, indexedPosition(crashed));
+        assertEquals(indexedSize + 5L * ScoreStore.RECORD_SIZE, logSize(crashed));
+        // Повреждена первая запись после позиции индекса: она и всё после неё отбрасываются
+        try (FileChannel log = FileChannel.open(crashed.resolve("scores.log"), StandardOpenOption.WRITE)) {
+            log.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), indexedSize + 3);
+        }
+        try (ScoreStore store = new ScoreStore(crashed)) {
+            assertEquals(indexedSize, logSize(crashed));
+            assertEquals(indexed, tables(store));
+        }
+    }
+
+    @Test
+    void indexBehindLogIsCaughtUp() throws IOException {
+        Path crashed = directory.resolve("crashed");
+        List<String> expected;
+        try (ScoreStore store = new ScoreStore(directory)) {
+            fill(store, 0, 100);
+        }
+        try (ScoreStore store = new ScoreStore(directory)) {
+            fill(store, 100, 60);
+            store.flush();
+            expected = tables(store);
+            Files.createDirectories(crashed);
+            for (String name : new String[]{"scores.log", "scores.idx"}) {
+                Files.copy(directory.resolve(name), crashed.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        assertEquals(HEADER_SIZE + 100L * ScoreStore.RECORD_SIZE, indexedPosition(crashed));
+        try (ScoreStore store = new ScoreStore(crashed)) {
+            assertEquals(expected, tables(store));
+        }
+        // При открытии индекс дописан до конца журнала
+        assertEquals(logSize(crashed), indexedPosition(crashed));
+    }
+
+    @Test
+    void unusableIndexFallsBackToFullReplay() throws IOException {
+        List<String> expected;
+        try (ScoreStore store = new ScoreStore(directory)) {
+            fill(store, 0, 200);
+            expected = tables(store);
+        }
+        Path index = directory.resolve("scores.idx");
+        byte[] bytes = Files.readAllBytes(index);
+        bytes[bytes.length / 2] ^= 1; // Не сходится контрольная сумма
+        Files.write(index, bytes);
+        try (ScoreStore store = new ScoreStore(directory)) {
+            assertEquals(expected, tables(store));
+        }
+
+        // Индекс ссылается дальше конца журнала (журнал обрезан после записи индекса)
+        long size = logSize(directory);
+        try (FileChannel log = FileChannel.open(directory.resolve("scores.log"), StandardOpenOption.WRITE)) {
+            log.truncate(size - 50L * ScoreStore.RECORD_SIZE);
+        }
+        List<String> truncated;
+        try (ScoreStore store = new ScoreStore(directory.resolve("reference"))) {
+            fill(store, 0, 150);
+            truncated = tables(store);
+        }
+        try (ScoreStore store = new ScoreStore(directory)) {
+            assertEquals(truncated.size(), tables(store).size());
+            for (int i = 0; i < truncated.size(); i++) {
+                assertEquals(lengthsAndTicks(truncated.get(i)), lengthsAndTicks(tables(store).get(i)));
+            }
+        }
+        assertEquals(logSize(directory), indexedPosition(directory));
+    }
+
+    @Test
+    void rejectsForeignLog() throws IOException {
+        Files.write(directory.resolve("scores.log"), new byte[64]);
+        assertThrows(IOException.class, () -> new ScoreStore(directory));
+    }
+
+    /**
+     * Таблица без времени результатов, которое различается у разных прогонов.
+     *
+     * @param table Таблица из {@link #tables(ScoreStore)}.
+     * @return Длины и такты.
+     */
+    private static String lengthsAndTicks(String table) {
+        return table.replaceAll("/\\d+ ", " ");
+    }
+}
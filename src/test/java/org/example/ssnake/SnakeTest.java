@@ -0,0 +1,142 @@
+package org.example.ssnake;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка кольцевого буфера тела змейки и битовой карты занятых клеток
+ * против простой модели на {@link ArrayDeque}, а также сохранения и восстановления состояния.
+ */
+class SnakeTest {
+
+    private final Board board = new Board(GameEngine.BOARD_WIDTH, GameEngine.BOARD_HEIGHT);
+
+    /**
+     * Сверяет змейку с моделью: порядок клеток от головы к хвосту и битовую карту всего поля.
+     *
+     * @param model Клетки сегментов от головы к хвосту (-1 для сегментов вне поля).
+     * @param snake Змейка.
+     */
+    private void assertMatches(Deque<Integer> model, Snake snake) {
+        assertEquals(model.size(), snake.getLength());
+        assertArrayEquals(model.stream().mapToInt(Integer::intValue).filter(cell -> cell >= 0).toArray(), snake.copyCells());
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            assertEquals(model.contains(cell), snake.isOccupied(cell), "Бит занятости клетки " + cell);
+        }
+    }
+
+    /**
+     * Сохранение состояния змейки.
+     *
+     * @param snake Змейка.
+     * @return Состояние в буфере, готовом к чтению.
+     */
+    private static ByteBuffer state(Snake snake) {
+        ByteBuffer buffer = ByteBuffer.allocate(snake.stateSize());
+        snake.save(buffer);
+        return buffer.flip();
+    }
+
+    /**
+     * Змейка, прошедшая случайный путь с ростом на каждом третьем шаге, и её модель.
+     *
+     * @param initialLength Начальная длина.
+     * @param steps         Количество шагов.
+     * @param seed          Зерно поворотов.
+     * @param model         Модель, заполняемая по ходу движения.
+     * @return Змейка.
+     */
+    private Snake walk(int initialLength, int steps, long seed, Deque<Integer> model) {
+        Snake snake = new Snake(board, initialLength);
+        for (int i = 0; i < initialLength; i++) {
+            model.addLast(10 - i >= 0 ? board.cell(10 - i, 10) : -1);
+        }
+        assertMatches(model, snake);
+        long random = seed;
+        for (int step = 0; step < steps; step++) {
+            random = SplitMix64.next(random);
+            Direction turn = Direction.values()[SplitMix64.nextInt(random, 4)];
+            Direction previous = snake.getDirection();
+            if (snake.setDirection(turn) && snake.isOccupied(snake.nextHeadCell())) {
+                snake.setDirection(previous); // Поворот в тело отменяется
+            }
+            if (snake.isOccupied(snake.nextHeadCell())) break;
+            boolean grow = step % 3 == 0;
+            snake.move(grow);
+            assertFalse(snake.isGameOver());
+            model.addFirst(snake.getHeadCell());
+            assertEquals(snake.getHeadCell(), snake.getLastAddedCell());
+            int removed = grow ? -1 : model.removeLast();
+            assertEquals(removed, snake.getLastRemovedCell());
+            assertMatches(model, snake);
+        }
+        return snake;
+    }
+
+    @Test
+    void ringBufferFollowsModel() {
+        for (long seed = 1; seed <= 10; seed++) {
+            Deque<Integer> model = new ArrayDeque<>();
+            Snake snake = walk(3, 400, seed, model);
+            assertTrue(snake.getLength() > 3);
+        }
+    }
+
+    @Test
+    void saveRestoreRoundTrip() {
+        // Короткий путь змейки длины 15 оставляет в состоянии сегменты, ещё не вошедшие на поле
+        for (int[] run : new int[][]{{1, 120}, {3, 120}, {15, 2}, {15, 120}}) {
+            Deque<Integer> model = new ArrayDeque<>();
+            Snake snake = walk(run[0], run[1], run[0], model);
+            ByteBuffer saved = state(snake);
+
+            // Восстановление в змейку другой длины: её старые клетки должны освободиться
+            Snake restored = new Snake(board, 40);
+            restored.restore(saved);
+            assertEquals(snake.getLength(), restored.getLength());
+            assertEquals(snake.getDirection(), restored.getDirection());
+            assertEquals(snake.getLastAddedCell(), restored.getLastAddedCell());
+            assertEquals(snake.getLastRemovedCell(), restored.getLastRemovedCell());
+            assertMatches(model, restored);
+            assertEquals(state(snake), state(restored));
+
+            // Дальше обе змейки двигаются одинаково
+            for (int step = 0; step < 50 && !snake.isGameOver(); step++) {
+                snake.move(step % 5 == 0);
+                restored.move(step % 5 == 0);
+                assertArrayEquals(snake.copyCells(), restored.copyCells());
+                assertEquals(snake.isGameOver(), restored.isGameOver());
+            }
+        }
+    }
+
+    @Test
+    void headIntoBodyEndsGame() {
+        Snake snake = new Snake(board, 5);
+        snake.setDirection(Direction.UP);
+        snake.move();
+        snake.setDirection(Direction.LEFT);
+        snake.move();
+        snake.setDirection(Direction.DOWN);
+        snake.move();
+        assertTrue(snake.isGameOver());
+        assertEquals(5, snake.getLength());
+    }
+
+    @Test
+    void restoreRejectsBadLength() {
+        Snake snake = new Snake(board, 3);
+        ByteBuffer saved = state(snake);
+        saved.putInt(10, -1); // Длина после направления, флага и двух клеток
+        assertThrows(IllegalArgumentException.class, () -> snake.restore(saved));
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.ssnake;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка длин сообщений протокола сервера тактов: сервер разбирает сообщения, пришедшие по частям,
+ * и закрывает соединение клиента, нарушившего протокол, не затрагивая остальных.
+ */
+class TickProtocolTest {
+
+    private static final int TIMEOUT_MILLIS = 5000; // Ожидание ответа сервера
+
+    private TickServer server;
+    private Thread thread;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new TickServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                new Board(GameEngine.BOARD_WIDTH, GameEngine.BOARD_HEIGHT), 10_000_000L);
+        thread = new Thread(server, "tick-server-test");
+        thread.start();
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        server.close();
+        thread.join(TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Подключение к серверу без клиента протокола.
+     *
+     * @return Сокет с ограниченным временем чтения.
+     * @throws IOException Если подключение не удалось.
+     */
+    private Socket connect() throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        socket.setSoTimeout(TIMEOUT_MILLIS);
+        socket.setTcpNoDelay(true);
+        return socket;
+    }
+
+    /**
+     * Сообщение с заданной длиной тела, не обязательно совпадающей с фактической.
+     *
+     * @param length Длина в заголовке.
+     * @param body   Тело сообщения.
+     * @return Байты сообщения.
+     */
+    private static byte[] message(int length, byte... body) {
+        return ByteBuffer.allocate(TickProtocol.LENGTH_BYTES + body.length).putShort((short) length).put(body).array();
+    }
+
+    /**
+     * Отправляет байты и проверяет, что сервер закрыл соединение.
+     *
+     * @param bytes Данные для отправки.
+     * @throws IOException Если отправка не удалась.
+     */
+    private void assertRejected(byte[] bytes) throws IOException {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(bytes);
+            boolean closed;
+            try {
+                closed = socket.getInputStream().read() < 0;
+            } catch (SocketException e) {
+                closed = true; // Сброс соединения сервером
+            }
+            assertTrue(closed, "Сервер должен закрыть соединение");
+        }
+    }
+
+    /**
+     * Читает подтверждение входа в комнату.
+     *
+     * @param in Поток сокета.
+     * @return Слот игрока.
+     * @throws IOException Если чтение не удалось.
+     */
+    private static int readWelcome(DataInputStream in) throws IOException {
+        assertEquals(1 + 1 + 4 + 4 + 8, in.readUnsignedShort());
+        assertEquals(TickProtocol.WELCOME, in.readByte());
+        int slot = in.readByte();
+        assertEquals(GameEngine.BOARD_WIDTH, in.readInt());
+        assertEquals(GameEngine.BOARD_HEIGHT, in.readInt());
+        assertEquals(10_000_000L, in.readLong());
+        return slot;
+    }
+
+    @Test
+    void joinSplitAcrossWritesIsAccepted() throws IOException, InterruptedException {
+        byte[] join = ByteBuffer.allocate(TickProtocol.LENGTH_BYTES + TickProtocol.JOIN_LENGTH)
+                .putShort((short) TickProtocol.JOIN_LENGTH).put(TickProtocol.JOIN).putInt(42).array();
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            // Длина, тип и номер комнаты приходят отдельными пакетами
+            out.write(join, 0, 1);
+            out.flush();
+            Thread.sleep(20);
+            out.write(join, 1, 3);
+            out.flush();
+            Thread.sleep(20);
+            out.write(join, 4, join.length - 4);
+            assertEquals(0, readWelcome(new DataInputStream(socket.getInputStream())));
+        }
+    }
+
+    @Test
+    void wrongLengthsCloseConnection() throws IOException {
+        assertRejected(message(0));
+        assertRejected(message(TickServer.INPUT_BUFFER)); // Не помещается во входящий буфер
+        assertRejected(message(3, TickProtocol.JOIN, (byte) 0, (byte) 0)); // Короткий JOIN
+        assertRejected(message(3, TickProtocol.INPUT, (byte) 1, (byte) 0)); // Лишний байт INPUT
+        assertRejected(message(2, TickProtocol.RESTART, (byte) 0));
+        assertRejected(message(1, (byte) 9)); // Неизвестный тип
+        assertRejected(message(TickProtocol.INPUT_LENGTH, TickProtocol.INPUT, (byte) 7)); // Неверное направление
+    }
+
+    @Test
+    void rejectedClientDoesNotAffectOthers() throws IOException, InterruptedException {
+        try (TickClient client = new TickClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()))) {
+            client.join(1);
+            assertRejected(message(3, TickProtocol.INPUT, (byte) 1, (byte) 0));
+            long deadline = System.nanoTime() + TIMEOUT_MILLIS * 1_000_000L;
+            while (client.getTick() < 50 && System.nanoTime() < deadline) {
+                client.poll();
+                Thread.sleep(1);
+            }
+            assertEquals(0, client.getSlot());
+            assertTrue(client.isPresent(0));
+            assertTrue(client.getTick() >= 50, "Такты сервера должны идти");
+            assertEquals(0, client.getErrors());
+        }
+    }
+}